@@ -0,0 +1,116 @@
+package bench;
+
+import bench.stub.StubAppiumServer;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import io.appium.java_client.pagefactory.AndroidFindBy;
+import io.appium.java_client.pagefactory.AppiumFieldDecorator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.PageFactory;
+import pages.common.ElementBinder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding the annotated fields of a page: PageFactory with the default decorator (what BasePage used),
+ * PageFactory with the AppiumFieldDecorator (which honours @AndroidFindBy), and the lazy ElementBinder.
+ * Setup prints how many findElement calls a test touching every tab three times costs with the
+ * PageFactory proxies versus the cached lazy proxies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ElementBindingBenchmark {
+
+    /**
+     * The bottom navigation of the demo app, declared the way the page objects declare it.
+     */
+    public static class TabBar {
+        @AndroidFindBy(accessibility = "Home")
+        WebElement homeTab;
+        @AndroidFindBy(accessibility = "Webview")
+        WebElement webviewTab;
+        @AndroidFindBy(accessibility = "Login")
+        WebElement loginTab;
+        @AndroidFindBy(accessibility = "Forms")
+        WebElement formsTab;
+        @AndroidFindBy(accessibility = "Swipe")
+        WebElement swipeTab;
+        @AndroidFindBy(accessibility = "Drag")
+        WebElement dragTab;
+
+        List<WebElement> tabs() {
+            return List.of(homeTab, webviewTab, loginTab, formsTab, swipeTab, dragTab);
+        }
+    }
+
+    private StubAppiumServer server;
+    private AndroidDriver driver;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = StubAppiumServer.builder().start();
+        driver = new AndroidDriver(server.url(), new UiAutomator2Options());
+
+        TabBar eager = appiumPageFactory();
+        server.resetCounts();
+        touchEveryTabThreeTimes(eager);
+        long eagerLookups = server.commandCounts().getOrDefault("POST /element", 0L);
+
+        TabBar lazy = lazyBinder();
+        server.resetCounts();
+        touchEveryTabThreeTimes(lazy);
+        long lazyLookups = server.commandCounts().getOrDefault("POST /element", 0L);
+        System.out.println("\nfindElement calls for 6 tabs x 3 uses: PageFactory " + eagerLookups + ", ElementBinder " + lazyLookups);
+    }
+
+    private static void touchEveryTabThreeTimes(TabBar tabBar) {
+        for (int i = 0; i < 3; i++) {
+            tabBar.tabs().forEach(WebElement::isDisplayed);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        driver.quit();
+        server.close();
+    }
+
+    @Benchmark
+    public TabBar defaultPageFactory() {
+        TabBar tabBar = new TabBar();
+        PageFactory.initElements(driver, tabBar);
+        return tabBar;
+    }
+
+    @Benchmark
+    public TabBar appiumPageFactory() {
+        TabBar tabBar = new TabBar();
+        PageFactory.initElements(new AppiumFieldDecorator(driver), tabBar);
+        return tabBar;
+    }
+
+    @Benchmark
+    public TabBar lazyBinder() {
+        TabBar tabBar = new TabBar();
+        ElementBinder.bind(tabBar, driver, Platform.ANDROID);
+        return tabBar;
+    }
+}
@@ -0,0 +1,115 @@
+package bench;
+
+import bench.stub.StubAppiumServer;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import pages.common.BasePage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The BasePage click/type wrappers versus the bare driver calls they end up sending.
+ * At 0 ms latency the difference is the wrappers' own overhead (waits, snapshot invalidation,
+ * logging); the request counts printed at setup show the extra round trips they cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class InteractionBenchmark {
+
+    private static final By FIELD = AppiumBy.accessibilityId("input-email");
+    private static final By BUTTON = AppiumBy.accessibilityId("button-LOGIN");
+
+    @Param({"0", "2"})
+    public int latencyMillis;
+
+    private StubAppiumServer server;
+    private AndroidDriver driver;
+    private ScreenUnderTest screen;
+
+    /**
+     * Exposes the BasePage interaction wrappers to the benchmark.
+     */
+    static final class ScreenUnderTest extends BasePage {
+        ScreenUnderTest(AppiumDriver driver) {
+            super(driver);
+        }
+
+        void wrappedClick(By locator) {
+            click(find(locator));
+        }
+
+        void wrappedType(By locator, String text) {
+            type(find(locator), text);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = StubAppiumServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        driver = new AndroidDriver(server.url(), new UiAutomator2Options());
+        screen = new ScreenUnderTest(driver);
+
+        server.resetCounts();
+        rawClick();
+        long raw = server.totalRequests();
+        server.resetCounts();
+        wrappedClick();
+        System.out.println("\nRequests per click: raw " + raw + ", wrapped " + server.totalRequests());
+        server.resetCounts();
+        rawType();
+        raw = server.totalRequests();
+        server.resetCounts();
+        wrappedType();
+        System.out.println("Requests per type: raw " + raw + ", wrapped " + server.totalRequests());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        driver.quit();
+        server.close();
+    }
+
+    @Benchmark
+    public void rawClick() {
+        driver.findElement(BUTTON).click();
+    }
+
+    @Benchmark
+    public void wrappedClick() {
+        screen.wrappedClick(BUTTON);
+    }
+
+    @Benchmark
+    public void rawType() {
+        WebElement field = driver.findElement(FIELD);
+        field.clear();
+        field.sendKeys("user@example.com");
+    }
+
+    @Benchmark
+    public void wrappedType() {
+        screen.wrappedType(FIELD, "user@example.com");
+    }
+}
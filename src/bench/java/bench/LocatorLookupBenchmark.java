@@ -0,0 +1,69 @@
+package bench;
+
+import bench.stub.StubAppiumServer;
+import core.LocatorCompiler;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.WebElement;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Before/after benchmark of the LocatorCompiler: looks up the login screen's email field with the
+ * original XPath and with its compiled (UiSelector) form against the stub server.
+ * The "hierarchyNodes" parameter controls how many extra nodes the stub's hierarchy carries,
+ * since the XPath cost grows with the size of the screen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocatorLookupBenchmark {
+
+    private static final By EMAIL_XPATH = By.xpath("//android.widget.EditText[@content-desc=\"input-email\"]");
+
+    @Param({"200", "2000"})
+    public int hierarchyNodes;
+
+    @Param({"xpath", "compiled"})
+    public String strategy;
+
+    private StubAppiumServer server;
+    private AndroidDriver driver;
+    private By locator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = StubAppiumServer.builder().fillerNodes(hierarchyNodes).start();
+        driver = new AndroidDriver(server.url(), new UiAutomator2Options());
+        locator = strategy.equals("xpath") ? EMAIL_XPATH : LocatorCompiler.compile(EMAIL_XPATH, Platform.ANDROID);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        driver.quit();
+        server.close();
+    }
+
+    @Benchmark
+    public WebElement findEmailField() {
+        return driver.findElement(locator);
+    }
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import bench.stub.StubAppiumServer;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pages.android.LoginPage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Android login flow (email, password, submit) executed step by step through the page object
+ * versus as one ActionBatch. Prints the number of requests each flow sends to the stub server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LoginFlowBenchmark {
+
+    @Param({"2"})
+    public int latencyMillis;
+
+    @Param({"stepwise", "batched"})
+    public String flow;
+
+    private StubAppiumServer server;
+    private AndroidDriver driver;
+    private LoginPage loginPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("batch.focus.pause.millis", "0");
+        server = StubAppiumServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        driver = new AndroidDriver(server.url(), new UiAutomator2Options());
+        loginPage = new LoginPage(driver);
+
+        server.resetCounts();
+        logIn();
+        System.out.println("\n" + flow + " login flow: " + server.totalRequests() + " requests " + server.commandCounts());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        driver.quit();
+        server.close();
+    }
+
+    @Benchmark
+    public void logIn() {
+        if (flow.equals("batched")) {
+            loginPage.logIn("user@example.com", "secret123");
+        } else {
+            loginPage.enterEmail("user@example.com");
+            loginPage.enterPassword("secret123");
+            loginPage.clickLoginButton();
+        }
+    }
+}
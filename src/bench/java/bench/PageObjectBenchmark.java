@@ -0,0 +1,79 @@
+package bench;
+
+import bench.stub.StubAppiumServer;
+import core.PageObjectManager;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.Platform;
+import pages.android.LoginPage;
+import pages.common.LoginPageBase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of obtaining page objects: a cached PageObjectManager.getPage, a first getPage on a fresh
+ * manager (factory lookup and construction), a plain BasePage construction with
+ * PageFactory.initElements, and the reflective construction getPage used to do.
+ * None of these should send a request to the server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PageObjectBenchmark {
+
+    private StubAppiumServer server;
+    private AndroidDriver driver;
+    private PageObjectManager warmManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = StubAppiumServer.builder().start();
+        driver = new AndroidDriver(server.url(), new UiAutomator2Options());
+        warmManager = new PageObjectManager(driver, Platform.ANDROID);
+        warmManager.getPage(LoginPageBase.class);
+        server.resetCounts();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println("\nRequests sent while obtaining pages: " + server.totalRequests());
+        driver.quit();
+        server.close();
+    }
+
+    @Benchmark
+    public LoginPageBase getPageCached() {
+        return warmManager.getPage(LoginPageBase.class);
+    }
+
+    @Benchmark
+    public LoginPageBase getPageFirstCall() {
+        return new PageObjectManager(driver, Platform.ANDROID).getPage(LoginPageBase.class);
+    }
+
+    @Benchmark
+    public LoginPage constructPage() {
+        return new LoginPage(driver);
+    }
+
+    @Benchmark
+    public LoginPage constructPageReflectively() throws ReflectiveOperationException {
+        return LoginPage.class.getDeclaredConstructor(AppiumDriver.class).newInstance(driver);
+    }
+}
@@ -0,0 +1,109 @@
+package bench;
+
+import bench.stub.StubAppiumServer;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openqa.selenium.By;
+import pages.common.BasePage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ten read-only assertions on the login screen, evaluated with one live lookup each
+ * versus against a single page snapshot. The stub adds a fixed per-request latency
+ * to stand in for the round trip to a device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SnapshotQueryBenchmark {
+
+    private static final List<By> ASSERTIONS = List.of(
+            AppiumBy.accessibilityId("Login-screen"),
+            AppiumBy.accessibilityId("input-email"),
+            AppiumBy.accessibilityId("input-password"),
+            AppiumBy.accessibilityId("button-LOGIN"),
+            AppiumBy.accessibilityId("button-login-container"),
+            AppiumBy.accessibilityId("button-sign-up-container"),
+            AppiumBy.accessibilityId("Home"),
+            AppiumBy.accessibilityId("Login"),
+            AppiumBy.accessibilityId("Forms"),
+            AppiumBy.accessibilityId("Drag"));
+
+    @Param({"2"})
+    public int latencyMillis;
+
+    private StubAppiumServer server;
+    private AndroidDriver driver;
+    private ScreenUnderTest screen;
+
+    /**
+     * Exposes the BasePage queries to the benchmark.
+     */
+    static final class ScreenUnderTest extends BasePage {
+        ScreenUnderTest(AppiumDriver driver) {
+            super(driver);
+        }
+
+        boolean live(By locator) {
+            return driver.findElement(locator).isDisplayed();
+        }
+
+        boolean fromSnapshot(By locator) {
+            return isDisplayed(locator);
+        }
+
+        void reset() {
+            invalidateSnapshot();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = StubAppiumServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        driver = new AndroidDriver(server.url(), new UiAutomator2Options());
+        screen = new ScreenUnderTest(driver);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        driver.quit();
+        server.close();
+    }
+
+    @Benchmark
+    public void tenLiveAssertions(Blackhole blackhole) {
+        for (By locator : ASSERTIONS) {
+            blackhole.consume(screen.live(locator));
+        }
+    }
+
+    @Benchmark
+    public void tenSnapshotAssertions(Blackhole blackhole) {
+        screen.reset(); // every iteration pays for its own snapshot
+        for (By locator : ASSERTIONS) {
+            blackhole.consume(screen.fromSnapshot(locator));
+        }
+    }
+}
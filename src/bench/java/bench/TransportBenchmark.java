@@ -0,0 +1,105 @@
+package bench;
+
+import bench.stub.StubAppiumServer;
+import core.CommandTransport;
+import core.InstrumentedCommandExecutor;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.remote.http.HttpClient;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selenium's default HTTP client ("jdk-http-client", one client per session) versus the pooled
+ * {@link CommandTransport} shared by all sessions, with 32 sessions sending commands concurrently.
+ * After each iteration the JVM's thread count is printed, and for the pooled transport its connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(32)
+@Fork(1)
+public class TransportBenchmark {
+
+    private static final By BUTTON = AppiumBy.accessibilityId("button-LOGIN");
+
+    @Param({"jdk-http-client", "pooled"})
+    public String transport;
+
+    @Param({"0", "2"})
+    public int latencyMillis;
+
+    private StubAppiumServer server;
+    private HttpClient.Factory factory;
+
+    private final List<AndroidDriver> drivers = new CopyOnWriteArrayList<>();
+
+    /**
+     * One session per benchmark thread, quit by the benchmark's teardown just before the server is stopped.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+
+        AndroidDriver driver;
+
+        @Setup(Level.Trial)
+        public void open(TransportBenchmark benchmark) {
+            driver = new AndroidDriver(new InstrumentedCommandExecutor(benchmark.server.url(), "ANDROID", benchmark.factory),
+                    new UiAutomator2Options());
+            benchmark.drivers.add(driver);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = StubAppiumServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        factory = transport.equals(CommandTransport.POOLED)
+                ? new CommandTransport(32, Duration.ofSeconds(10), Duration.ofSeconds(4), command -> Duration.ofSeconds(60))
+                : HttpClient.Factory.create(transport);
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        System.out.println("\nJVM threads: " + ManagementFactory.getThreadMXBean().getThreadCount());
+        if (factory instanceof CommandTransport pooled) {
+            System.out.println(pooled.stats().lines().limit(2).reduce((a, b) -> a + System.lineSeparator() + b).orElse(""));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        drivers.forEach(AndroidDriver::quit);
+        drivers.clear();
+        if (factory instanceof CommandTransport pooled) {
+            pooled.shutdown();
+        }
+        server.close();
+    }
+
+    @Benchmark
+    public void findAndClick(Session session) {
+        session.driver.findElement(BUTTON).click();
+    }
+}
@@ -0,0 +1,108 @@
+package bench;
+
+import bench.stub.StubAppiumServer;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebElement;
+import utils.WaitEngine;
+import utils.WaitHelper;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polling loops of the WaitHelper/WaitEngine against the stub server: waits that succeed on the
+ * first probe (the common case, where any cost beyond one round trip is framework overhead),
+ * the single-probe absence check, and a 200 ms wait for an element that never appears,
+ * which shows how many probes the backoff sends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class WaitHelperBenchmark {
+
+    private static final By PRESENT = AppiumBy.accessibilityId("button-LOGIN");
+    private static final By ABSENT = AppiumBy.accessibilityId("no-such-element");
+    private static final Duration ABSENT_TIMEOUT = Duration.ofMillis(200);
+
+    @Param({"0", "2"})
+    public int latencyMillis;
+
+    private StubAppiumServer server;
+    private AndroidDriver driver;
+    private WaitHelper waitHelper;
+    private WaitEngine waitEngine;
+    private WebElement presentElement;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = StubAppiumServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        driver = new AndroidDriver(server.url(), new UiAutomator2Options());
+        waitHelper = new WaitHelper(driver);
+        waitEngine = new WaitEngine(driver);
+        presentElement = driver.findElement(PRESENT);
+
+        server.resetCounts();
+        absentElementTimeout();
+        System.out.println("\nProbes sent during a " + ABSENT_TIMEOUT.toMillis() + " ms wait: " + server.totalRequests());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        driver.quit();
+        server.close();
+    }
+
+    @Benchmark
+    public WebElement rawFindElement() {
+        return driver.findElement(PRESENT);
+    }
+
+    @Benchmark
+    public WebElement visibilityOfLocator() {
+        return waitHelper.waitForVisibility(PRESENT);
+    }
+
+    @Benchmark
+    public WebElement visibilityOfElement() {
+        return waitHelper.waitForVisibility(presentElement);
+    }
+
+    @Benchmark
+    public WebElement clickabilityOfElement() {
+        return waitHelper.waitForClickability(presentElement);
+    }
+
+    @Benchmark
+    public boolean absentElementFastFail() {
+        return waitHelper.isPresentNow(ABSENT);
+    }
+
+    @Benchmark
+    public boolean absentElementTimeout() {
+        try {
+            return waitEngine.until("absent element", ABSENT_TIMEOUT, () -> driver.findElements(ABSENT).isEmpty() ? null : Boolean.TRUE);
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package bench.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.json.Json;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stub of an Appium server speaking the W3C WebDriver protocol, serving a canned view hierarchy.
+ * It lets benchmarks measure the framework's own overhead without devices.
+ *
+ * Element lookups mimic the cost model of the real drivers: an XPath lookup dumps the whole hierarchy to
+ * XML and evaluates the expression against the re-parsed document (as UiAutomator2 and XCUITest do),
+ * while accessibility id, UiSelector and class chain lookups are answered from the live tree.
+ * Every response can be delayed by a fixed latency to emulate the network hop to a device.
+ */
+public final class StubAppiumServer implements AutoCloseable {
+
+    private static final Pattern SESSION_PATH = Pattern.compile("^/session/([^/]+)(/.*)?$");
+    private static final Pattern ELEMENT_PATH = Pattern.compile("^/element/([^/]+)(/.*)?$");
+    private static final Pattern UI_SELECTOR_CALL = Pattern.compile("\\.(className|description|text|resourceId)\\(\"((?:[^\"\\\\]|\\\\.)*)\"\\)");
+    private static final Pattern CLASS_CHAIN = Pattern.compile("^\\*\\*/([\\w.*]+)\\[`(\\w+) == \"((?:[^\"\\\\]|\\\\.)*)\"`]$");
+
+    static {
+        // Without TCP_NODELAY the JDK server adds ~40 ms of delayed-ACK latency to small responses
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Json json = new Json();
+    private final long latencyNanos;
+    private final String platformName;
+    private final Document document;
+    private final List<Element> elements;
+    private final Map<String, Element> byAccessibilityId = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionCounter = new AtomicInteger();
+    private final Map<String, LongAdder> commandCounts = new ConcurrentHashMap<>();
+
+    private StubAppiumServer(Builder builder) throws IOException {
+        this.latencyNanos = builder.latency.toNanos();
+        this.platformName = builder.platformName;
+        this.document = loadHierarchy(builder.hierarchyResource, builder.fillerNodes);
+        this.elements = new ArrayList<>();
+        NodeList all = document.getElementsByTagName("*");
+        for (int i = 0; i < all.getLength(); i++) {
+            Element element = (Element) all.item(i);
+            elements.add(element);
+            String accessibilityId = element.hasAttribute("content-desc") ? element.getAttribute("content-desc") : element.getAttribute("name");
+            if (!accessibilityId.isEmpty()) {
+                byAccessibilityId.putIfAbsent(accessibilityId, element);
+            }
+        }
+
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-appium");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", builder.port), 128);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public URL url() {
+        try {
+            return new URL("http://127.0.0.1:" + server.getAddress().getPort());
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns how many times each command (e.g. "POST /element") was received, in alphabetical order.
+     */
+    public Map<String, Long> commandCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        commandCounts.forEach((command, count) -> counts.put(command, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Returns the total number of HTTP requests received.
+     */
+    public long totalRequests() {
+        return commandCounts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public void resetCounts() {
+        commandCounts.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String body = readBody(exchange.getRequestBody());
+
+            Matcher sessionMatcher = SESSION_PATH.matcher(path);
+            String command = sessionMatcher.matches() && sessionMatcher.group(2) != null ? sessionMatcher.group(2) : "";
+            String commandKey = sessionMatcher.matches()
+                    ? (command.isEmpty() ? "/session/{id}" : command.replaceAll("/element/[^/]+", "/element/{id}"))
+                    : path;
+            commandCounts.computeIfAbsent(method + " " + commandKey, k -> new LongAdder()).increment();
+
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+
+            Object value;
+            int status = 200;
+            if (path.equals("/status")) {
+                value = Map.of("ready", true, "message", "stub appium server");
+            } else if (path.equals("/session") && method.equals("POST")) {
+                value = newSession(body);
+            } else if (sessionMatcher.matches()) {
+                Object result = sessionCommand(method, command, body);
+                if (result instanceof NoSuchElement) {
+                    status = 404;
+                    value = Map.of("error", "no such element", "message", "An element could not be located", "stacktrace", "");
+                } else {
+                    value = result;
+                }
+            } else {
+                status = 404;
+                value = Map.of("error", "unknown command", "message", path, "stacktrace", "");
+            }
+            respond(exchange, status, value);
+        }
+    }
+
+    private Object newSession(String body) {
+        String sessionId = "stub-session-" + sessionCounter.incrementAndGet();
+        Map<String, Object> capabilities = new LinkedHashMap<>();
+        capabilities.put("platformName", platformName);
+        capabilities.put("automationName", platformName.equals("iOS") ? "XCUITest" : "UiAutomator2");
+        capabilities.put("appium:deviceName", "stub-device");
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("sessionId", sessionId);
+        value.put("capabilities", capabilities);
+        return value;
+    }
+
+    private Object sessionCommand(String method, String command, String body) {
+        if (command.isEmpty() || command.equals("/window/rect") || command.startsWith("/timeouts")
+                || command.startsWith("/actions") || command.startsWith("/appium")) {
+            return command.equals("/window/rect") ? Map.of("x", 0, "y", 0, "width", 1080, "height", 2280) : null;
+        }
+        if (command.equals("/source")) {
+            return serialize(document);
+        }
+        if (command.startsWith("/execute")) {
+            return null;
+        }
+        if (command.equals("/element") || command.equals("/elements")) {
+            Map<String, Object> query = json.toType(body, Json.MAP_TYPE);
+            List<Integer> found = find(String.valueOf(query.get("using")), String.valueOf(query.get("value")));
+            if (command.equals("/element")) {
+                return found.isEmpty() ? new NoSuchElement() : elementReference(found.get(0));
+            }
+            List<Object> references = new ArrayList<>();
+            found.forEach(index -> references.add(elementReference(index)));
+            return references;
+        }
+        Matcher elementMatcher = ELEMENT_PATH.matcher(command);
+        if (elementMatcher.matches()) {
+            return elementCommand(method, elementMatcher.group(1), elementMatcher.group(2) == null ? "" : elementMatcher.group(2));
+        }
+        return null;
+    }
+
+    private Object elementCommand(String method, String elementId, String command) {
+        Element element = elements.get(Integer.parseInt(elementId.substring("el-".length())));
+        return switch (command) {
+            case "/text" -> element.getAttribute("text").isEmpty() ? element.getAttribute("label") : element.getAttribute("text");
+            case "/displayed", "/enabled" -> true;
+            case "/selected" -> false;
+            case "/name" -> element.getTagName();
+            case "/rect" -> rectOf(element);
+            default -> command.startsWith("/attribute/") ? element.getAttribute(command.substring("/attribute/".length())) : null;
+        };
+    }
+
+    private List<Integer> find(String using, String value) {
+        return switch (using) {
+            case "xpath" -> findByXPath(value);
+            case "accessibility id" -> {
+                Element element = byAccessibilityId.get(value);
+                yield element == null ? Collections.emptyList() : List.of(elements.indexOf(element));
+            }
+            case "id" -> scan(e -> value.equals(e.getAttribute("resource-id")));
+            case "class name" -> scan(e -> e.getTagName().equals(value));
+            case "-android uiautomator" -> scan(uiSelector(value));
+            case "-ios class chain" -> scan(classChain(value));
+            default -> Collections.emptyList();
+        };
+    }
+
+    /**
+     * Mimics the server-side XPath cost: dump the hierarchy, re-parse it and evaluate the expression.
+     */
+    private List<Integer> findByXPath(String expression) {
+        try {
+            String dump = serialize(document);
+            Document snapshot = newDocumentBuilder().parse(new ByteArrayInputStream(dump.getBytes(StandardCharsets.UTF_8)));
+            NodeList matches = (NodeList) XPathFactory.newInstance().newXPath().evaluate(expression, snapshot, XPathConstants.NODESET);
+            List<Element> snapshotElements = new ArrayList<>();
+            NodeList all = snapshot.getElementsByTagName("*");
+            for (int i = 0; i < all.getLength(); i++) {
+                snapshotElements.add((Element) all.item(i));
+            }
+            List<Integer> result = new ArrayList<>();
+            for (int i = 0; i < matches.getLength(); i++) {
+                result.add(snapshotElements.indexOf(matches.item(i)));
+            }
+            return result;
+        } catch (Exception e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private List<Integer> scan(Predicate<Element> predicate) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < elements.size(); i++) {
+            if (predicate.test(elements.get(i))) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    private static Predicate<Element> uiSelector(String selector) {
+        Predicate<Element> predicate = e -> true;
+        Matcher matcher = UI_SELECTOR_CALL.matcher(selector);
+        while (matcher.find()) {
+            String expected = matcher.group(2).replace("\\\"", "\"").replace("\\\\", "\\");
+            String attribute = switch (matcher.group(1)) {
+                case "className" -> "class";
+                case "description" -> "content-desc";
+                case "resourceId" -> "resource-id";
+                default -> "text";
+            };
+            predicate = predicate.and(e -> expected.equals(e.getAttribute(attribute)));
+        }
+        return predicate;
+    }
+
+    private static Predicate<Element> classChain(String chain) {
+        Matcher matcher = CLASS_CHAIN.matcher(chain);
+        if (!matcher.matches()) {
+            return e -> false;
+        }
+        String type = matcher.group(1);
+        String attribute = matcher.group(2);
+        String expected = matcher.group(3).replace("\\\"", "\"").replace("\\\\", "\\");
+        return e -> (type.equals("*") || e.getTagName().equals(type)) && expected.equals(e.getAttribute(attribute));
+    }
+
+    private static Map<String, Object> elementReference(int index) {
+        return Map.of("element-6066-11e4-a52e-4f735466cecf", "el-" + index, "ELEMENT", "el-" + index);
+    }
+
+    private static Map<String, Object> rectOf(Element element) {
+        Matcher matcher = Pattern.compile("\\[(\\d+),(\\d+)]\\[(\\d+),(\\d+)]").matcher(element.getAttribute("bounds"));
+        if (!matcher.matches()) {
+            return Map.of("x", 0, "y", 0, "width", 0, "height", 0);
+        }
+        int x1 = Integer.parseInt(matcher.group(1));
+        int y1 = Integer.parseInt(matcher.group(2));
+        return Map.of("x", x1, "y", y1,
+                "width", Integer.parseInt(matcher.group(3)) - x1,
+                "height", Integer.parseInt(matcher.group(4)) - y1);
+    }
+
+    private void respond(HttpExchange exchange, int status, Object value) throws IOException {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("value", value);
+        byte[] bytes = json.toJson(payload).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static Document loadHierarchy(String resource, int fillerNodes) throws IOException {
+        try (InputStream in = StubAppiumServer.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Hierarchy resource not found: " + resource);
+            }
+            Document document = newDocumentBuilder().parse(in);
+            // Filler nodes emulate a heavier screen (lists, nested layouts) without changing the tested elements
+            Element root = document.getDocumentElement();
+            for (int i = 0; i < fillerNodes; i++) {
+                Element filler = document.createElement("android.view.View");
+                filler.setAttribute("index", String.valueOf(i + 1));
+                filler.setAttribute("class", "android.view.View");
+                filler.setAttribute("text", "");
+                filler.setAttribute("content-desc", "");
+                filler.setAttribute("bounds", "[0,0][0,0]");
+                root.appendChild(filler);
+            }
+            return document;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to parse hierarchy " + resource, e);
+        }
+    }
+
+    private static DocumentBuilder newDocumentBuilder() throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    }
+
+    private static String serialize(Document document) {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            StringWriter writer = new StringWriter();
+            transformer.transform(new DOMSource(document), new StreamResult(writer));
+            return writer.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize hierarchy", e);
+        }
+    }
+
+    private static final class NoSuchElement {
+    }
+
+    /**
+     * Builder for the stub server. All settings are optional.
+     */
+    public static final class Builder {
+        private int port = 0;
+        private Duration latency = Duration.ZERO;
+        private String platformName = "Android";
+        private String hierarchyResource = "/bench/android-login-screen.xml";
+        private int fillerNodes = 200;
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Fixed delay added to every response, emulating the round trip to a device.
+         */
+        public Builder latency(Duration latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Builder platformName(String platformName) {
+            this.platformName = platformName;
+            return this;
+        }
+
+        public Builder hierarchy(String resource) {
+            this.hierarchyResource = resource;
+            return this;
+        }
+
+        /**
+         * Number of extra nodes appended to the hierarchy to make it heavier.
+         */
+        public Builder fillerNodes(int fillerNodes) {
+            this.fillerNodes = fillerNodes;
+            return this;
+        }
+
+        public StubAppiumServer start() {
+            try {
+                return new StubAppiumServer(this);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to start stub Appium server", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package core;
+
+import io.appium.java_client.AppiumDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Platform;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Keeps track of which build of the app under test is installed on which device, so that
+ * {@link DriverFactory} only passes the "app" capability (push and reinstall) when the device does not
+ * have this exact build yet. Otherwise the session launches the installed app by package / bundle id,
+ * and only its data is reset.
+ *
+ * A build is identified by the SHA-256 of the .apk (or of every file in the .app bundle), read through
+ * memory-mapped buffers and computed once per JVM as long as the file does not change. The fingerprint
+ * installed per device and the average startup time of an installing session are kept in
+ * .test-history/installed-apps.properties, so the time saved can be reported in later runs.
+ *
+ * That file only says what this machine installed. So that a build installed by someone else, or left over from
+ * another run, is not taken for this one, the installed build as reported by the device is recorded too: the
+ * version name, version code and last update time of the package on Android (dumpsys, through "mobile: shell",
+ * which needs the server's adb_shell feature), the version and build number of the bundle on iOS ("mobile: listApps").
+ * A session that launched the installed app checks it with {@link #isStillInstalled} before it is used. On iOS
+ * a reinstall of the same version and build number cannot be told apart. Devices that cannot report their
+ * installed build are trusted as before.
+ * Disable with -Dapp.skip.reinstall=false.
+ */
+public final class AppDeployment {
+
+    private static final Logger logger = LogManager.getLogger(AppDeployment.class);
+
+    private static final Path STATE_FILE = Paths.get(".test-history", "installed-apps.properties");
+    private static final String INSTALL_MILLIS = "install.millis.";
+    private static final String BUILD = ".build";
+    private static final String UNKNOWN_BUILD = "unknown";
+    private static final String NOT_INSTALLED = "not installed";
+    private static final Pattern ANDROID_BUILD = Pattern.compile(
+            "versionCode=(\\d+)|versionName=(\\S+)|lastUpdateTime=([\\d-]+ [\\d:]+)");
+    private static final double ALPHA = 0.3;
+    private static final long CHUNK = 256L * 1024 * 1024;
+
+    private static final Map<Path, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+    private static final Properties state = loadState();
+
+    private static final AtomicLong installs = new AtomicLong();
+    private static final AtomicLong reuses = new AtomicLong();
+    private static final AtomicLong savedMillis = new AtomicLong();
+
+    private record Fingerprint(long size, long lastModified, String digest) {
+    }
+
+    private AppDeployment() {
+    }
+
+    public static boolean isEnabled() {
+        return MobileConfig.get().getBoolean("app.skip.reinstall", true);
+    }
+
+    /**
+     * Returns the fingerprint of the app file or bundle, or null if it does not exist.
+     */
+    public static String fingerprint(String appPath) {
+        Path path = Paths.get(appPath).toAbsolutePath();
+        if (!Files.exists(path)) {
+            return null;
+        }
+        long[] stamp = stamp(path);
+        Fingerprint cached = fingerprints.get(path);
+        if (cached == null || cached.size() != stamp[0] || cached.lastModified() != stamp[1]) {
+            long start = System.nanoTime();
+            cached = new Fingerprint(stamp[0], stamp[1], digest(path));
+            fingerprints.put(path, cached);
+            logger.info("Fingerprinted {} ({} bytes) in {} ms", path, stamp[0], (System.nanoTime() - start) / 1_000_000);
+        }
+        return cached.digest();
+    }
+
+    /**
+     * Returns true if the device was last seen with this fingerprint installed. Confirm it on the device with
+     * {@link #isStillInstalled} once a session is up.
+     */
+    public static boolean isInstalled(Platform platform, Device device, String fingerprint) {
+        return fingerprint != null && isEnabled() && fingerprint.equals(stateValue(keyOf(platform, device)));
+    }
+
+    /**
+     * Returns true if the device still has the build this machine installed, comparing what the device reports
+     * now with what it reported right after the install.
+     * @param driver A session that launched the installed app.
+     * @param appId The package (Android) or bundle id (iOS) of the app.
+     */
+    public static boolean isStillInstalled(Platform platform, Device device, AppiumDriver driver, String appId) {
+        String recorded = stateValue(keyOf(platform, device) + BUILD);
+        if (recorded == null) {
+            return false;
+        }
+        String current = installedBuild(platform, driver, appId);
+        if (current == null) {
+            // Only a device that could not report the build at install time either is taken at its word
+            return recorded.equals(UNKNOWN_BUILD);
+        }
+        if (!current.equals(recorded)) {
+            logger.warn("{} on {} is {}, but {} was installed from this machine", appId, device, current, recorded);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records that a session installed the app with this fingerprint on the device, with the build the device reports.
+     * @param driver The installing session.
+     * @param appId The package (Android) or bundle id (iOS) of the app.
+     * @param startupMillis How long the installing session took to start.
+     */
+    public static void installed(Platform platform, Device device, String fingerprint, AppiumDriver driver, String appId,
+                                 long startupMillis) {
+        installs.incrementAndGet();
+        String build = fingerprint != null && isEnabled() ? installedBuild(platform, driver, appId) : null;
+        synchronized (state) {
+            if (fingerprint != null) {
+                state.setProperty(keyOf(platform, device), fingerprint);
+                state.setProperty(keyOf(platform, device) + BUILD, build == null ? UNKNOWN_BUILD : build);
+            }
+            String average = state.getProperty(INSTALL_MILLIS + platform);
+            long updated = average == null ? startupMillis
+                    : Math.round(ALPHA * startupMillis + (1 - ALPHA) * Long.parseLong(average));
+            state.setProperty(INSTALL_MILLIS + platform, String.valueOf(updated));
+            saveState();
+        }
+    }
+
+    /**
+     * Records that a session launched the already installed app and prints the time saved.
+     * @param startupMillis How long the session took to start.
+     */
+    public static void reused(Platform platform, Device device, String fingerprint, long startupMillis) {
+        reuses.incrementAndGet();
+        String average = stateValue(INSTALL_MILLIS + platform);
+        String shortFingerprint = fingerprint.substring(0, 12);
+        if (average == null) {
+            System.out.println("App " + shortFingerprint + " already installed on " + device + ", skipped reinstall");
+            return;
+        }
+        long saved = Math.max(0, Long.parseLong(average) - startupMillis);
+        savedMillis.addAndGet(saved);
+        System.out.println("App " + shortFingerprint + " already installed on " + device + ", skipped reinstall: session started in "
+                + startupMillis + " ms, ~" + saved + " ms saved");
+    }
+
+    /**
+     * Forgets what is installed on the device, e.g. after launching the installed app failed.
+     */
+    public static void forget(Platform platform, Device device) {
+        synchronized (state) {
+            boolean known = state.remove(keyOf(platform, device)) != null;
+            if (state.remove(keyOf(platform, device) + BUILD) != null || known) {
+                saveState();
+            }
+        }
+    }
+
+    /**
+     * Returns a one-line summary of the app deployments of this run.
+     */
+    public static String stats() {
+        return String.format("App deployment: installs=%d reuses=%d saved=%.1f s",
+                installs.get(), reuses.get(), savedMillis.get() / 1000.0);
+    }
+
+    private static String keyOf(Platform platform, Device device) {
+        return "device." + platform + "." + (device.udid() != null ? device.udid() : device.name()).replace(' ', '_');
+    }
+
+    /**
+     * Returns the installed build of the app as the device reports it, "not installed", or null if the device
+     * cannot tell (e.g. the server does not allow adb shell).
+     */
+    private static String installedBuild(Platform platform, AppiumDriver driver, String appId) {
+        try {
+            if (platform == Platform.IOS) {
+                Object apps = driver.executeScript("mobile: listApps", Map.of("applicationType", "User"));
+                if (!(apps instanceof Map<?, ?> byId) || !(byId.get(appId) instanceof Map<?, ?> app)) {
+                    return NOT_INSTALLED;
+                }
+                return "version=" + app.get("CFBundleShortVersionString") + " build=" + app.get("CFBundleVersion");
+            }
+            Object output = driver.executeScript("mobile: shell", Map.of("command", "dumpsys", "args", List.of("package", appId)));
+            Map<Integer, String> fields = new TreeMap<>();
+            Matcher matcher = ANDROID_BUILD.matcher(String.valueOf(output));
+            while (matcher.find()) {
+                for (int group = 1; group <= 3; group++) {
+                    if (matcher.group(group) != null) {
+                        // The first package section is the installed one, later ones are older system images
+                        fields.putIfAbsent(group, matcher.group(group));
+                    }
+                }
+            }
+            if (fields.size() < 3) {
+                return NOT_INSTALLED;
+            }
+            return "versionCode=" + fields.get(1) + " versionName=" + fields.get(2) + " lastUpdateTime=" + fields.get(3);
+        } catch (RuntimeException e) {
+            logger.warn("Cannot read the installed build of {} from the device: {}", appId, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String stateValue(String key) {
+        synchronized (state) {
+            return state.getProperty(key);
+        }
+    }
+
+    /**
+     * Returns the total size and latest modification time of the file, or of the files in the directory.
+     */
+    private static long[] stamp(Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            long[] stamp = new long[2];
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                stamp[0] += Files.size(file);
+                stamp[1] = Math.max(stamp[1], Files.getLastModifiedTime(file).toMillis());
+            }
+            return stamp;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + path, e);
+        }
+    }
+
+    private static String digest(Path path) {
+        try (Stream<Path> walk = Files.walk(path)) {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            // Sorted, so a bundle gets the same fingerprint whatever order the file system lists it in
+            List<Path> files = walk.filter(Files::isRegularFile).sorted().toList();
+            for (Path file : files) {
+                sha256.update(path.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    for (long position = 0; position < size; position += CHUNK) {
+                        sha256.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK, size - position)));
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot fingerprint " + path, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Properties loadState() {
+        Properties properties = new Properties();
+        if (Files.isRegularFile(STATE_FILE)) {
+            try (InputStream in = Files.newInputStream(STATE_FILE)) {
+                properties.load(in);
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable installed apps in {}: {}", STATE_FILE, e.getMessage());
+            }
+        }
+        return properties;
+    }
+
+    private static void saveState() {
+        try {
+            Files.createDirectories(STATE_FILE.getParent());
+            try (OutputStream out = Files.newOutputStream(STATE_FILE)) {
+                state.store(out, "App fingerprint and reported build installed per device, average startup (ms) of installing sessions");
+            }
+        } catch (IOException e) {
+            logger.warn("Could not save installed apps to {}: {}", STATE_FILE, e.getMessage());
+        }
+    }
+}
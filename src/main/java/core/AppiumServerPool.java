@@ -0,0 +1,373 @@
+package core;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.serverevents.CommandEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import utils.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of local Appium server processes, so parallel sessions do not all go through one Node process.
+ * Every device is assigned to a server for the whole run, with at most "appium.server.sessions" devices
+ * (default 1) per server. Servers listen on free ports picked at launch; before a session is created on
+ * a server, {@link #urlFor(Device)} checks that it is alive and answers /status. A server whose process died is
+ * relaunched. A live server that does not answer (e.g. slow under load) is only relaunched after
+ * 3 failed checks in a row, and never while another device holds a session on it: that
+ * would end those sessions and count their failures against the other devices. Sessions end with
+ * {@link #sessionEnded(Device)}.
+ *
+ * Enabled with -Dappium.server.pool=true (otherwise every session goes to "appium.url"). The server is started
+ * as "appium.server.command" (default "appium") followed by "appium.server.args" and
+ * "--address 127.0.0.1 --port &lt;port&gt;"; its output goes to "appium.server.log.dir" (default target/appium-servers).
+ * Per server, the command durations measured by the server itself are collected from each session's
+ * events before it is quit, see {@link #recordServerTimings(Device, AppiumDriver)}.
+ *
+ * Tests can build a pool over any command through the public constructor.
+ */
+public final class AppiumServerPool {
+
+    private static final Logger logger = LogManager.getLogger(AppiumServerPool.class);
+
+    private static final Duration HEALTH_CHECK_TIMEOUT = Duration.ofSeconds(5);
+    private static final int MAX_FAILED_CHECKS = 3;
+
+    private static volatile AppiumServerPool defaultPool;
+
+    private final List<String> command;
+    private final int sessionsPerServer;
+    private final Duration startTimeout;
+    private final Path logDirectory;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(HEALTH_CHECK_TIMEOUT).build();
+    private final List<Server> servers = new ArrayList<>();
+    private final Map<String, Server> assignments = new HashMap<>();
+
+    /**
+     * One managed server. Keeps its name and metrics when it is relaunched on another port.
+     */
+    public final class Server {
+
+        private final String name;
+        private final LatencyHistogram serverLatency = new LatencyHistogram();
+        private final AtomicInteger sessions = new AtomicInteger();
+        // Devices with a session on this server
+        private final Set<String> holders = new HashSet<>();
+        private Process process;
+        private int port;
+        private int restarts;
+        private int failedChecks;
+
+        private Server(String name) {
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public synchronized URL url() {
+            try {
+                return new URL("http://127.0.0.1:" + port);
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public synchronized long pid() {
+            return process == null ? -1 : process.pid();
+        }
+
+        public synchronized boolean isAlive() {
+            return process != null && process.isAlive();
+        }
+
+        public synchronized int restarts() {
+            return restarts;
+        }
+
+        public int sessions() {
+            return sessions.get();
+        }
+
+        /**
+         * Returns the URL of the server for a new session of the device, first launching it if it is not running.
+         * A live server that does not answer /status is relaunched only when it failed MAX_FAILED_CHECKS
+         * checks in a row and no other device holds a session on it.
+         */
+        synchronized URL ensureHealthy(String device) {
+            if (process != null && process.isAlive()) {
+                if (isReady(port)) {
+                    failedChecks = 0;
+                    return url();
+                }
+                failedChecks++;
+                List<String> others = holders.stream().filter(holder -> !holder.equals(device)).toList();
+                if (!others.isEmpty() || failedChecks < MAX_FAILED_CHECKS) {
+                    logger.warn("Appium server {} on port {} did not answer /status ({} failed check(s)), not relaunching it{}",
+                            name, port, failedChecks, others.isEmpty() ? "" : ": sessions of " + others + " are running on it");
+                    return url();
+                }
+                logger.warn("Appium server {} on port {} did not answer /status {} times, relaunching it", name, port, failedChecks);
+            } else if (process != null) {
+                logger.warn("Appium server {} on port {} is not running, relaunching it", name, port);
+            }
+            if (process != null) {
+                stop();
+                restarts++;
+            }
+            failedChecks = 0;
+            start();
+            return url();
+        }
+
+        private synchronized void hold(String device) {
+            holders.add(device);
+        }
+
+        private synchronized void release(String device) {
+            holders.remove(device);
+        }
+
+        private void start() {
+            port = freePort();
+            List<String> arguments = new ArrayList<>(command);
+            arguments.addAll(List.of("--address", "127.0.0.1", "--port", String.valueOf(port)));
+            File log = logDirectory.resolve(name + "-" + port + ".log").toFile();
+            try {
+                Files.createDirectories(logDirectory);
+                process = new ProcessBuilder(arguments).redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.appendTo(log)).start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot launch Appium server " + arguments, e);
+            }
+            long deadline = System.nanoTime() + startTimeout.toNanos();
+            while (!isReady(port)) {
+                if (!process.isAlive() || System.nanoTime() > deadline) {
+                    stop();
+                    throw new IllegalStateException("Appium server " + name + " did not become ready on port " + port
+                            + " within " + startTimeout.toSeconds() + " s, see " + log);
+                }
+                sleep(200);
+            }
+            System.out.println("Appium server " + name + " ready on port " + port + " (pid " + process.pid() + ")");
+        }
+
+        private synchronized void stop() {
+            if (process == null) {
+                return;
+            }
+            process.destroy();
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private String summary() {
+            return String.format("  %s port=%d sessions=%d restarts=%d commands=%d p50=%d ms p95=%d ms max=%d ms", name,
+                    port, sessions.get(), restarts, serverLatency.count(), serverLatency.percentileMicros(50) / 1000,
+                    serverLatency.percentileMicros(95) / 1000, serverLatency.maxMicros() / 1000);
+        }
+    }
+
+    /**
+     * Creates a pool launching its servers with the given command.
+     * @param command The executable and its first arguments; the address and port are appended.
+     * @param sessionsPerServer How many devices share a server.
+     * @param startTimeout How long a server may take to answer /status after launch.
+     * @param logDirectory Where the output of each server is written.
+     */
+    public AppiumServerPool(List<String> command, int sessionsPerServer, Duration startTimeout, Path logDirectory) {
+        if (command.isEmpty() || sessionsPerServer < 1) {
+            throw new IllegalArgumentException("An Appium server pool needs a command and at least 1 session per server");
+        }
+        this.command = List.copyOf(command);
+        this.sessionsPerServer = sessionsPerServer;
+        this.startTimeout = startTimeout;
+        this.logDirectory = logDirectory;
+    }
+
+    /**
+     * Returns the pool shared by the whole JVM, configured from MobileConfig. Its servers are stopped when the JVM exits.
+     */
+    public static AppiumServerPool getDefault() {
+        AppiumServerPool pool = defaultPool;
+        if (pool == null) {
+            synchronized (AppiumServerPool.class) {
+                pool = defaultPool;
+                if (pool == null) {
+                    MobileConfig config = MobileConfig.get();
+                    List<String> command = new ArrayList<>(split(config.getString("appium.server.command", "appium")));
+                    command.addAll(split(config.getString("appium.server.args", "")));
+                    pool = new AppiumServerPool(command,
+                            config.getInt("appium.server.sessions", 1),
+                            Duration.ofSeconds(config.getLong("appium.server.start.timeout.seconds", 60)),
+                            Paths.get(config.getString("appium.server.log.dir", "target/appium-servers")));
+                    Runtime.getRuntime().addShutdownHook(new Thread(pool::shutdown, "appium-server-shutdown"));
+                    defaultPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    public static boolean isEnabled() {
+        return MobileConfig.get().getBoolean("appium.server.pool", false);
+    }
+
+    /**
+     * Returns the URL of the server assigned to the device, launching or relaunching it as needed.
+     * Counts as one session on that server, held by the device until {@link #sessionEnded(Device)}.
+     */
+    public URL urlFor(Device device) {
+        Server server;
+        synchronized (servers) {
+            server = assignments.get(device.toString());
+            if (server == null) {
+                server = leastLoaded();
+                assignments.put(device.toString(), server);
+            }
+        }
+        // Outside the pool lock, so servers for different devices start in parallel
+        URL url = server.ensureHealthy(device.toString());
+        server.hold(device.toString());
+        server.sessions.incrementAndGet();
+        return url;
+    }
+
+    /**
+     * Records that the device's session on its server was quit, or could not be created.
+     */
+    public void sessionEnded(Device device) {
+        Server server;
+        synchronized (servers) {
+            server = assignments.get(device.toString());
+        }
+        if (server != null) {
+            server.release(device.toString());
+        }
+    }
+
+    /**
+     * Records the command durations the server measured for the session (available when the session was created
+     * with the "eventTimings" capability) under the server the device is assigned to. Call before quitting the
+     * session; devices without a server of this pool are ignored.
+     */
+    public void recordServerTimings(Device device, AppiumDriver driver) {
+        Server server;
+        synchronized (servers) {
+            server = assignments.get(device.toString());
+        }
+        if (server == null) {
+            return;
+        }
+        try {
+            for (CommandEvent event : driver.getEvents().getCommands()) {
+                server.serverLatency.recordMicros(TimeUnit.MILLISECONDS.toMicros(event.getEndTimestamp() - event.getStartTimestamp()));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not get the command timings of {} from {}: {}", driver.getSessionId(), server.name, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the servers launched so far.
+     */
+    public List<Server> servers() {
+        synchronized (servers) {
+            return List.copyOf(servers);
+        }
+    }
+
+    /**
+     * Stops every server of the pool.
+     */
+    public void shutdown() {
+        servers().forEach(Server::stop);
+    }
+
+    /**
+     * Returns a summary of the servers with the server-side latency of their commands, one line per server.
+     */
+    public String stats() {
+        List<Server> launched = servers();
+        StringBuilder out = new StringBuilder("Appium servers: " + launched.size() + " launched, "
+                + launched.stream().mapToInt(Server::restarts).sum() + " restart(s)");
+        launched.forEach(server -> out.append(System.lineSeparator()).append(server.summary()));
+        return out.toString();
+    }
+
+    private Server leastLoaded() {
+        Map<Server, Integer> devices = new HashMap<>();
+        assignments.values().forEach(server -> devices.merge(server, 1, Integer::sum));
+        for (Server server : servers) {
+            if (devices.getOrDefault(server, 0) < sessionsPerServer) {
+                return server;
+            }
+        }
+        Server server = new Server("appium-" + (servers.size() + 1));
+        servers.add(server);
+        return server;
+    }
+
+    private boolean isReady(int port) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/status"))
+                    .timeout(HEALTH_CHECK_TIMEOUT).GET().build();
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static List<String> split(String value) {
+        return Arrays.stream(value.trim().split("\\s+")).filter(part -> !part.isEmpty()).toList();
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No free port for an Appium server", e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an Appium server", e);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.json.Json;
+import utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of every W3C command sent by the drivers, kept in one {@link LatencyHistogram} per
+ * (command, page, locator, platform), plus a call count and total time per test. The drivers built by
+ * {@link DriverFactory} report here through an {@link InstrumentedCommandExecutor}; the test and page/locator
+ * tags come from a per-thread context set by BaseTest and BasePage.
+ *
+ * The number of histograms is capped by "command.metrics.max.series" (2000): once it is reached, commands on
+ * a new page/locator are folded into the command's "-" series.
+ *
+ * Exported at suite end as JSON and as Prometheus text (metrics "appium_command_duration_seconds" and
+ * "appium_test_command_seconds"). Disable with -Dcommand.metrics=false.
+ */
+public final class CommandMetrics {
+
+    private static final Logger logger = LogManager.getLogger(CommandMetrics.class);
+
+    private static final String NONE = "-";
+    // Prometheus bucket bounds: powers of two from 64 us to ~67 s, exact on the log-linear buckets
+    private static final int FIRST_BOUND_EXPONENT = 6;
+    private static final int LAST_BOUND_EXPONENT = 26;
+
+    private static final Map<Key, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, TestTotals> perTest = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Context> context = ThreadLocal.withInitial(Context::new);
+
+    private record Key(String command, String page, String locator, String platform) {
+    }
+
+    private static final class TestTotals {
+        final LongAdder count = new LongAdder();
+        final LongAdder sumMicros = new LongAdder();
+    }
+
+    private static final class Context {
+        String test = NONE;
+        String page = NONE;
+        String locator = NONE;
+        long commands;
+    }
+
+    private CommandMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return MobileConfig.get().getBoolean("command.metrics", true);
+    }
+
+    /**
+     * Tags the commands sent from this thread with the running test. Pass null when the test ends.
+     */
+    public static void setTest(String test) {
+        Context current = context.get();
+        current.test = test == null ? NONE : test;
+        current.page = NONE;
+        current.locator = NONE;
+    }
+
+    /**
+     * Returns the test running on this thread, or "-" outside of a test.
+     */
+    public static String currentTest() {
+        return context.get().test;
+    }
+
+    /**
+     * Tags the following commands from this thread with the page and locator being worked on.
+     */
+    public static void setTarget(String page, Object locator) {
+        Context current = context.get();
+        current.page = page;
+        current.locator = locator == null ? NONE : locator.toString();
+    }
+
+    /**
+     * Returns how many commands this thread has sent so far; the difference between two calls is the number of
+     * round trips to the server in between. Commands are counted even with command metrics disabled.
+     */
+    public static long commandsSent() {
+        return context.get().commands;
+    }
+
+    static void countCommand() {
+        context.get().commands++;
+    }
+
+    static void record(String command, String platform, long nanos) {
+        Context current = context.get();
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        histogramFor(new Key(command, current.page, current.locator, platform)).recordMicros(micros);
+        TestTotals totals = perTest.computeIfAbsent(current.test, test -> new TestTotals());
+        totals.count.increment();
+        totals.sumMicros.add(micros);
+    }
+
+    private static LatencyHistogram histogramFor(Key key) {
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+        Key series = histograms.size() < MobileConfig.get().getInt("command.metrics.max.series", 2000) ? key : new Key(key.command(), NONE, NONE, key.platform());
+        return histograms.computeIfAbsent(series, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Returns a one-line-per-command summary (all tags merged), slowest total first.
+     */
+    public static String summary() {
+        Map<String, long[]> perCommand = new LinkedHashMap<>();
+        histograms.forEach((key, histogram) -> {
+            long[] totals = perCommand.computeIfAbsent(key.command(), c -> new long[2]);
+            totals[0] += histogram.count();
+            totals[1] += histogram.sumMicros();
+        });
+        StringBuilder out = new StringBuilder("Driver command latency:");
+        perCommand.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[1]).reversed())
+                .forEach(e -> out.append(String.format("%n  %-24s calls=%d total=%d ms", e.getKey(),
+                        e.getValue()[0], TimeUnit.MICROSECONDS.toMillis(e.getValue()[1]))));
+        return out.toString();
+    }
+
+    public static String toJson() {
+        List<Map<String, Object>> series = new ArrayList<>();
+        histograms.forEach((key, histogram) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("command", key.command());
+            entry.put("page", key.page());
+            entry.put("locator", key.locator());
+            entry.put("platform", key.platform());
+            entry.put("count", histogram.count());
+            entry.put("sumMicros", histogram.sumMicros());
+            entry.put("p50Micros", histogram.percentileMicros(50));
+            entry.put("p95Micros", histogram.percentileMicros(95));
+            entry.put("p99Micros", histogram.percentileMicros(99));
+            entry.put("maxMicros", histogram.maxMicros());
+            series.add(entry);
+        });
+        List<Map<String, Object>> tests = new ArrayList<>();
+        perTest.forEach((test, totals) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("test", test);
+            entry.put("count", totals.count.sum());
+            entry.put("sumMicros", totals.sumMicros.sum());
+            tests.add(entry);
+        });
+        return new Json().toJson(Map.of("commands", series, "tests", tests));
+    }
+
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP appium_command_duration_seconds Latency of Appium driver commands.\n");
+        out.append("# TYPE appium_command_duration_seconds histogram\n");
+        histograms.forEach((key, histogram) -> {
+            String labels = "command=\"" + escape(key.command()) + "\",page=\"" + escape(key.page())
+                    + "\",locator=\"" + escape(key.locator()) + "\",platform=\"" + escape(key.platform()) + "\"";
+            for (int exponent = FIRST_BOUND_EXPONENT; exponent <= LAST_BOUND_EXPONENT; exponent++) {
+                long bound = 1L << exponent;
+                out.append("appium_command_duration_seconds_bucket{").append(labels)
+                        .append(",le=\"").append(bound / 1_000_000.0).append("\"} ")
+                        .append(histogram.countBelow(bound)).append('\n');
+            }
+            out.append("appium_command_duration_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ")
+                    .append(histogram.count()).append('\n');
+            out.append("appium_command_duration_seconds_sum{").append(labels).append("} ")
+                    .append(histogram.sumMicros() / 1_000_000.0).append('\n');
+            out.append("appium_command_duration_seconds_count{").append(labels).append("} ")
+                    .append(histogram.count()).append('\n');
+        });
+        out.append("# HELP appium_test_command_seconds Time spent in Appium driver commands per test.\n");
+        out.append("# TYPE appium_test_command_seconds summary\n");
+        perTest.forEach((test, totals) -> {
+            String labels = "test=\"" + escape(test) + "\"";
+            out.append("appium_test_command_seconds_sum{").append(labels).append("} ")
+                    .append(totals.sumMicros.sum() / 1_000_000.0).append('\n');
+            out.append("appium_test_command_seconds_count{").append(labels).append("} ")
+                    .append(totals.count.sum()).append('\n');
+        });
+        return out.toString();
+    }
+
+    /**
+     * Writes command-latency.json and command-latency.prom into the directory.
+     */
+    public static void export(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve("command-latency.json"), toJson());
+            Files.writeString(directory.resolve("command-latency.prom"), toPrometheus());
+            logger.info("Exported latency of {} command series to {}", histograms.size(), directory);
+        } catch (IOException e) {
+            logger.warn("Could not export command metrics to {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,600 @@
+package core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.WebSocket;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Pooled HTTP/1.1 transport for the W3C commands of all sessions, plugged into the drivers as an
+ * {@link HttpClient.Factory}. Selenium's default client builds a JDK HttpClient, with its own connections and
+ * threads, for every session; here all sessions to one server share a pool of keep-alive connections.
+ *
+ * <ul>
+ *     <li>At most "transport.max.connections" (default 32) connections per server. A command waits for a free one,
+ *     up to the connect timeout.</li>
+ *     <li>No I/O threads: a command is written and read on the thread that sends it.</li>
+ *     <li>Read timeout per command: "transport.timeout.&lt;command&gt;" in seconds (e.g. transport.timeout.getPageSource),
+ *     else "transport.timeout.seconds" (default 60). Session creation, page source and scripts get longer defaults.
+ *     The command is named by {@link InstrumentedCommandExecutor}. A client's own read timeout (ClientConfig) is
+ *     never exceeded.</li>
+ *     <li>Idle connections are closed after "transport.idle.millis" (default 4000, below the 5 s keep-alive
+ *     of a Node server). A request that did not reach a reused connection the server already closed is sent again
+ *     once on a new connection. Requests the server may have received are only sent again if they are GET or
+ *     DELETE, so a command such as a click or new session is never run twice.</li>
+ *     <li>Requests, bytes and time are counted per connection, see {@link #stats()}.</li>
+ * </ul>
+ *
+ * Only plain http without a proxy or credentials is pooled; other clients (https, proxy, authentication) are
+ * created by Selenium's default factory.
+ *
+ * DriverFactory uses Selenium's default client unless "http.transport" is "pooled" or the name of another
+ * Selenium client factory.
+ */
+public final class CommandTransport implements HttpClient.Factory {
+
+    private static final Logger logger = LogManager.getLogger(CommandTransport.class);
+
+    public static final String POOLED = "pooled";
+
+    private static final Map<String, Long> DEFAULT_TIMEOUT_SECONDS = Map.of(
+            "newSession", 600L,
+            "getPageSource", 180L,
+            "executeScript", 180L,
+            "executeAsyncScript", 180L,
+            "actions", 120L);
+
+    private static final ThreadLocal<String> currentCommand = new ThreadLocal<>();
+
+    private static volatile CommandTransport defaultTransport;
+
+    private final int maxConnections;
+    private final Duration connectTimeout;
+    private final long idleNanos;
+    private final Function<String, Duration> timeouts;
+    private final Map<String, Server> servers = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionIds = new AtomicInteger();
+    private final AtomicInteger unpooledClients = new AtomicInteger();
+
+    /**
+     * Connections to one server.
+     */
+    private final class Server {
+
+        final String address;
+        final InetSocketAddress socketAddress;
+        final Semaphore permits = new Semaphore(maxConnections, true);
+        final Deque<Connection> idle = new ArrayDeque<>();
+        final List<Connection> all = new ArrayList<>();
+        final AtomicLong waits = new AtomicLong();
+        final AtomicLong staleRetries = new AtomicLong();
+        final AtomicLong timeouts = new AtomicLong();
+
+        Server(String host, int port) {
+            this.address = host + ":" + port;
+            this.socketAddress = new InetSocketAddress(host, port);
+        }
+
+        Connection acquire() throws IOException {
+            try {
+                if (!permits.tryAcquire()) {
+                    waits.incrementAndGet();
+                    if (!permits.tryAcquire(connectTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                        throw new IOException("No free connection to " + address + " within " + connectTimeout.toSeconds()
+                                + " s (transport.max.connections=" + maxConnections + ")");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a connection to " + address, e);
+            }
+            synchronized (this) {
+                long now = System.nanoTime();
+                for (Connection connection; (connection = idle.pollFirst()) != null; ) {
+                    if (now - connection.lastUsedNanos < idleNanos && !connection.socket.isClosed()) {
+                        return connection;
+                    }
+                    connection.close("idle");
+                }
+            }
+            try {
+                return open();
+            } catch (IOException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        Connection open() throws IOException {
+            Socket socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true);
+                socket.connect(socketAddress, (int) connectTimeout.toMillis());
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            Connection connection = new Connection(connectionIds.incrementAndGet(), this, socket);
+            synchronized (this) {
+                all.add(connection);
+            }
+            return connection;
+        }
+
+        void release(Connection connection, boolean reusable) {
+            if (reusable) {
+                synchronized (this) {
+                    idle.addFirst(connection); // most recently used first, so surplus connections age out
+                    long now = System.nanoTime();
+                    while (!idle.isEmpty() && now - idle.peekLast().lastUsedNanos >= idleNanos) {
+                        idle.pollLast().close("idle");
+                    }
+                }
+            } else {
+                connection.close("not reusable");
+            }
+            permits.release();
+        }
+
+        synchronized void closeIdle() {
+            idle.forEach(connection -> connection.close("idle"));
+            idle.clear();
+        }
+    }
+
+    /**
+     * One keep-alive connection with its counters.
+     */
+    private static final class Connection {
+
+        final int id;
+        final Server server;
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        long lastUsedNanos = System.nanoTime();
+        long requests;
+        long bytesSent;
+        long bytesReceived;
+        long busyNanos;
+        String closedBecause;
+
+        Connection(int id, Server server, Socket socket) throws IOException {
+            this.id = id;
+            this.server = server;
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+        }
+
+        void close(String reason) {
+            if (closedBecause == null) {
+                closedBecause = reason;
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Closing connection {} to {}: {}", id, server.address, e.getMessage());
+            }
+        }
+
+        String summary() {
+            return String.format("    #%d requests=%d sent=%d kB received=%d kB busy=%d ms %s", id, requests,
+                    bytesSent / 1024, bytesReceived / 1024, TimeUnit.NANOSECONDS.toMillis(busyNanos),
+                    closedBecause == null ? "open" : "closed (" + closedBecause + ")");
+        }
+    }
+
+    /**
+     * Client of one driver: sends through the pool of its server and applies the driver's filters.
+     * Closing it leaves the shared connections open.
+     */
+    private final class PooledClient implements HttpClient {
+
+        private final ClientConfig config;
+        private final URI baseUri;
+        private final Server server;
+        private final HttpHandler handler;
+
+        PooledClient(ClientConfig config) {
+            this.config = config;
+            this.baseUri = config.baseUri();
+            int port = baseUri.getPort() != -1 ? baseUri.getPort() : 80;
+            this.server = servers.computeIfAbsent(baseUri.getHost() + ":" + port, key -> new Server(baseUri.getHost(), port));
+            this.handler = config.filter().andFinally(this::send);
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) {
+            return handler.execute(request);
+        }
+
+        @Override
+        public WebSocket openSocket(HttpRequest request, WebSocket.Listener listener) {
+            return HttpClient.Factory.createDefault().createClient(config).openSocket(request, listener);
+        }
+
+        private HttpResponse send(HttpRequest request) {
+            String command = currentCommand.get();
+            Duration timeout = timeouts.apply(command);
+            if (timeout.compareTo(config.readTimeout()) > 0) {
+                timeout = config.readTimeout();
+            }
+            byte[] body = request.getMethod() == HttpMethod.GET ? new byte[0] : Contents.bytes(request.getContent());
+            byte[] head = head(request, baseUri, server.address, body.length);
+            try {
+                Connection connection = server.acquire();
+                try {
+                    return exchange(connection, head, body, timeout, request.getMethod());
+                } catch (StaleConnectionException e) {
+                    // The server closed the idle connection without running the request: safe to send again
+                    server.staleRetries.incrementAndGet();
+                    logger.debug("Connection {} to {} was closed by the server, sending {} again", connection.id, server.address, command);
+                    Connection fresh;
+                    try {
+                        fresh = server.open();
+                    } catch (IOException | RuntimeException failure) {
+                        server.permits.release();
+                        throw failure;
+                    }
+                    return exchange(fresh, head, body, timeout, request.getMethod());
+                }
+            } catch (SocketTimeoutException e) {
+                server.timeouts.incrementAndGet();
+                throw new TimeoutException("No response to " + (command == null ? request.getUri() : command) + " from "
+                        + server.address + " within " + timeout.toSeconds() + " s", e);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Command " + (command == null ? request.getUri() : command) + " to "
+                        + server.address + " failed: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Sends one request on the connection and reads the response, then gives the connection back to the pool
+         * (or closes it) and releases its permit. Only on a {@link StaleConnectionException} the permit is kept,
+         * for the caller to send again on a new connection. That is thrown when a reused connection fails before any
+         * of the response arrived, and either the request could not be written or it is a GET or DELETE: a POST that
+         * was written may have been run by the server before it closed the connection.
+         */
+        private HttpResponse exchange(Connection connection, byte[] head, byte[] body, Duration timeout, HttpMethod method)
+                throws IOException {
+            long start = System.nanoTime();
+            boolean reused = connection.requests > 0;
+            boolean written = false;
+            boolean responseStarted = false;
+            try {
+                connection.socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, timeout.toMillis()));
+                connection.out.write(head);
+                connection.out.write(body);
+                connection.out.flush();
+                written = true;
+                connection.bytesSent += head.length + body.length;
+
+                int first = connection.in.read();
+                if (first == -1) {
+                    throw new EOFException("Connection closed by " + server.address);
+                }
+                responseStarted = true;
+                ResponseReader reader = new ResponseReader(connection.in, first);
+                HttpResponse response = reader.read(method);
+                connection.bytesReceived += reader.bytesRead;
+                connection.requests++;
+                connection.busyNanos += System.nanoTime() - start;
+                connection.lastUsedNanos = System.nanoTime();
+                server.release(connection, reader.keepAlive);
+                return response;
+            } catch (IOException | RuntimeException e) {
+                connection.busyNanos += System.nanoTime() - start;
+                boolean replayable = !written || method == HttpMethod.GET || method == HttpMethod.DELETE;
+                if (reused && !responseStarted && replayable && e instanceof IOException
+                        && !(e instanceof SocketTimeoutException)) {
+                    connection.close("closed by server");
+                    throw new StaleConnectionException(e);
+                }
+                connection.close(e instanceof SocketTimeoutException ? "read timeout" : "error: " + e.getMessage());
+                server.permits.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * A reused connection turned out to be closed before any of the response arrived, and the request is safe to
+     * send again.
+     */
+    private static final class StaleConnectionException extends IOException {
+
+        StaleConnectionException(Throwable cause) {
+            super("Connection closed by the server", cause);
+        }
+    }
+
+    /**
+     * Reads one HTTP/1.1 response: Content-Length, chunked, or until the connection closes.
+     */
+    private static final class ResponseReader {
+
+        private final InputStream in;
+        private int pending;
+        long bytesRead;
+        boolean keepAlive = true;
+
+        ResponseReader(InputStream in, int firstByte) {
+            this.in = in;
+            this.pending = firstByte;
+        }
+
+        HttpResponse read(HttpMethod method) throws IOException {
+            String statusLine = line();
+            String[] parts = statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new IOException("Malformed status line: " + statusLine);
+            }
+            int status = Integer.parseInt(parts[1]);
+            keepAlive = !parts[0].equals("HTTP/1.0");
+            HttpResponse response = new HttpResponse().setStatus(status);
+            long contentLength = -1;
+            boolean chunked = false;
+            for (String header = line(); !header.isEmpty(); header = line()) {
+                int colon = header.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = header.substring(0, colon).trim();
+                String value = header.substring(colon + 1).trim();
+                switch (name.toLowerCase(Locale.ROOT)) {
+                    case "content-length" -> contentLength = Long.parseLong(value);
+                    case "transfer-encoding" -> chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+                    case "connection" -> keepAlive = !value.equalsIgnoreCase("close");
+                    default -> {
+                    }
+                }
+                response.addHeader(name, value);
+            }
+            byte[] body;
+            if (method == HttpMethod.HEAD || status == 204 || status == 304 || (status >= 100 && status < 200)) {
+                body = new byte[0];
+            } else if (chunked) {
+                body = chunked();
+            } else if (contentLength >= 0) {
+                body = exactly((int) contentLength);
+            } else {
+                body = in.readAllBytes();
+                bytesRead += body.length;
+                keepAlive = false;
+            }
+            return response.setContent(Contents.bytes(body));
+        }
+
+        private byte[] chunked() throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                String size = line();
+                int extension = size.indexOf(';');
+                int length = Integer.parseInt((extension >= 0 ? size.substring(0, extension) : size).trim(), 16);
+                if (length == 0) {
+                    while (!line().isEmpty()) {
+                        // trailers are not used by WebDriver servers
+                    }
+                    return body.toByteArray();
+                }
+                body.write(exactly(length));
+                line();
+            }
+        }
+
+        private byte[] exactly(int length) throws IOException {
+            byte[] bytes = in.readNBytes(length);
+            bytesRead += bytes.length;
+            if (bytes.length < length) {
+                throw new EOFException("Response body ended after " + bytes.length + " of " + length + " bytes");
+            }
+            return bytes;
+        }
+
+        private String line() throws IOException {
+            StringBuilder line = new StringBuilder();
+            while (true) {
+                int b = pending >= 0 ? pending : in.read();
+                pending = -1;
+                if (b == -1) {
+                    throw new EOFException("Response ended in the headers");
+                }
+                bytesRead++;
+                if (b == '\n') {
+                    int end = line.length();
+                    return end > 0 && line.charAt(end - 1) == '\r' ? line.substring(0, end - 1) : line.toString();
+                }
+                line.append((char) b);
+            }
+        }
+    }
+
+    /**
+     * Creates a transport.
+     * @param maxConnections Connections per server; further commands wait for a free one.
+     * @param connectTimeout Timeout to connect, and to wait for a free connection.
+     * @param idleTimeout How long an unused connection is kept; zero closes connections after each request.
+     * @param timeouts Read timeout per command name (e.g. "getPageSource"); the name is null for requests sent
+     *                 outside of a command. Capped by the read timeout of each client's ClientConfig.
+     */
+    public CommandTransport(int maxConnections, Duration connectTimeout, Duration idleTimeout,
+                            Function<String, Duration> timeouts) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("A transport needs at least 1 connection per server");
+        }
+        if (idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("The idle timeout cannot be negative: " + idleTimeout);
+        }
+        this.maxConnections = maxConnections;
+        this.connectTimeout = connectTimeout;
+        this.idleNanos = idleTimeout.toNanos();
+        this.timeouts = timeouts;
+    }
+
+    /**
+     * Returns the transport shared by the whole JVM, configured from MobileConfig.
+     */
+    public static CommandTransport getDefault() {
+        CommandTransport transport = defaultTransport;
+        if (transport == null) {
+            synchronized (CommandTransport.class) {
+                transport = defaultTransport;
+                if (transport == null) {
+                    MobileConfig config = MobileConfig.get();
+                    transport = new CommandTransport(
+                            config.getInt("transport.max.connections", 32),
+                            Duration.ofSeconds(config.getLong("transport.connect.timeout.seconds", 10)),
+                            Duration.ofMillis(config.getLong("transport.idle.millis", 4000)),
+                            CommandTransport::configuredTimeout);
+                    defaultTransport = transport;
+                }
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * Returns the client factory selected by "http.transport" (see the class comment).
+     */
+    public static HttpClient.Factory selected(MobileConfig config) {
+        String name = config.getString("http.transport", null);
+        if (name == null) {
+            return HttpClient.Factory.createDefault();
+        }
+        return name.equals(POOLED) ? getDefault() : HttpClient.Factory.create(name);
+    }
+
+    public static boolean isSelected() {
+        return POOLED.equals(MobileConfig.get().getString("http.transport", null));
+    }
+
+    /**
+     * Names the W3C command the current thread is about to send, so its read timeout applies. Pass null when done.
+     */
+    public static void setCommand(String command) {
+        if (command == null) {
+            currentCommand.remove();
+        } else {
+            currentCommand.set(command);
+        }
+    }
+
+    /**
+     * Returns a pooled client for plain http without a proxy or credentials, otherwise Selenium's default client.
+     */
+    @Override
+    public HttpClient createClient(ClientConfig config) {
+        if (!"http".equalsIgnoreCase(config.baseUri().getScheme()) || config.proxy() != null || config.credentials() != null) {
+            unpooledClients.incrementAndGet();
+            logger.debug("Not pooling the client for {}: https, proxy or credentials", config.baseUri());
+            return HttpClient.Factory.createDefault().createClient(config);
+        }
+        return new PooledClient(config);
+    }
+
+    /**
+     * Closes every idle connection. Connections in use are closed when they are given back.
+     */
+    public void shutdown() {
+        servers.values().forEach(Server::closeIdle);
+    }
+
+    /**
+     * Returns a summary of the connections per server, one line per connection.
+     */
+    public String stats() {
+        StringBuilder out = new StringBuilder("HTTP transport (pooled):");
+        if (servers.isEmpty()) {
+            out.append(" no requests");
+        }
+        if (unpooledClients.get() > 0) {
+            out.append(" (").append(unpooledClients.get()).append(" client(s) left to Selenium's default: https, proxy or credentials)");
+        }
+        servers.values().forEach(server -> {
+            List<Connection> connections;
+            synchronized (server) {
+                connections = List.copyOf(server.all);
+            }
+            long requests = connections.stream().mapToLong(c -> c.requests).sum();
+            out.append(String.format("%n  %s connections=%d requests=%d (%.1f per connection) waits for a connection=%d"
+                            + " stale retries=%d timeouts=%d", server.address, connections.size(), requests,
+                    connections.isEmpty() ? 0.0 : (double) requests / connections.size(), server.waits.get(),
+                    server.staleRetries.get(), server.timeouts.get()));
+            connections.forEach(connection -> out.append(System.lineSeparator()).append(connection.summary()));
+        });
+        return out.toString();
+    }
+
+    /**
+     * Read timeout of a command from the current configuration, so a reload applies to the next command.
+     */
+    private static Duration configuredTimeout(String command) {
+        MobileConfig config = MobileConfig.get();
+        long fallback = config.getLong("transport.timeout.seconds", 60);
+        if (command == null) {
+            return Duration.ofSeconds(fallback);
+        }
+        return Duration.ofSeconds(config.getLong("transport.timeout." + command, DEFAULT_TIMEOUT_SECONDS.getOrDefault(command, fallback)));
+    }
+
+    private static byte[] head(HttpRequest request, URI baseUri, String address, int contentLength) {
+        String basePath = baseUri.getRawPath() == null ? "" : baseUri.getRawPath().replaceAll("/$", "");
+        StringBuilder target = new StringBuilder(basePath).append(request.getUri());
+        String query = request.getQueryString();
+        if (query != null && !query.isEmpty()) {
+            target.append('?').append(query);
+        }
+        StringBuilder head = new StringBuilder()
+                .append(request.getMethod()).append(' ').append(target).append(" HTTP/1.1\r\n")
+                .append("Host: ").append(address).append("\r\n")
+                .append("Connection: keep-alive\r\n");
+        request.forEachHeader((name, value) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (!lower.equals("host") && !lower.equals("connection") && !lower.equals("content-length")
+                    && !lower.equals("transfer-encoding")) {
+                head.append(name).append(": ").append(value).append("\r\n");
+            }
+        });
+        if (request.getMethod() != HttpMethod.GET) {
+            head.append("Content-Length: ").append(contentLength).append("\r\n");
+        }
+        head.append("\r\n");
+        return head.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
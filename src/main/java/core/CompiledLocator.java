@@ -0,0 +1,90 @@
+package core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebElement;
+
+import java.util.List;
+
+/**
+ * A locator produced by the {@link LocatorCompiler}: looks elements up with the native strategy
+ * and falls back to the original XPath if the server rejects that strategy
+ * (e.g. an older driver without UiAutomator or class chain support).
+ * Once a fallback happened, the locator keeps using the XPath for the rest of the run.
+ */
+public final class CompiledLocator extends By {
+
+    private static final Logger logger = LogManager.getLogger(CompiledLocator.class);
+
+    private final By optimized;
+    private final By fallback;
+    private volatile boolean degraded;
+
+    CompiledLocator(By optimized, By fallback) {
+        this.optimized = optimized;
+        this.fallback = fallback;
+    }
+
+    public By getOptimized() {
+        return optimized;
+    }
+
+    /**
+     * Returns the original XPath locator.
+     */
+    public By getFallback() {
+        return fallback;
+    }
+
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    @Override
+    public WebElement findElement(SearchContext context) {
+        if (!degraded) {
+            try {
+                return context.findElement(optimized);
+            } catch (InvalidSelectorException | UnsupportedCommandException e) {
+                degrade(e);
+            }
+        }
+        return context.findElement(fallback);
+    }
+
+    @Override
+    public List<WebElement> findElements(SearchContext context) {
+        if (!degraded) {
+            try {
+                return context.findElements(optimized);
+            } catch (InvalidSelectorException | UnsupportedCommandException e) {
+                degrade(e);
+            }
+        }
+        return context.findElements(fallback);
+    }
+
+    private void degrade(RuntimeException e) {
+        degraded = true;
+        logger.warn("Native strategy {} rejected by the server, falling back to {}: {}", optimized, fallback, e.getMessage());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CompiledLocator other && optimized.equals(other.optimized) && fallback.equals(other.fallback);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * optimized.hashCode() + fallback.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return (degraded ? fallback : optimized) + " (compiled from " + fallback + ")";
+    }
+}
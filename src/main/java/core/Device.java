@@ -0,0 +1,32 @@
+package core;
+
+import org.openqa.selenium.Platform;
+
+/**
+ * Immutable description of a physical device, emulator or simulator that the suite may run on.
+ * Every device carries its own set of local ports so that parallel sessions never collide
+ * on the UiAutomator2 system port, the WebDriverAgent port or the MJPEG screen streaming port.
+ *
+ * @param id              Registry key of the device (e.g. "android-1").
+ * @param platform        The mobile platform (ANDROID or IOS).
+ * @param name            Device name passed as the deviceName capability.
+ * @param udid            Unique device identifier, or null to let Appium pick the device by name.
+ * @param platformVersion OS version, or null when it does not need to be pinned.
+ * @param systemPort      UiAutomator2 server port (Android only).
+ * @param wdaLocalPort    WebDriverAgent port (iOS only).
+ * @param mjpegServerPort MJPEG screen streaming port.
+ */
+public record Device(String id,
+                     Platform platform,
+                     String name,
+                     String udid,
+                     String platformVersion,
+                     int systemPort,
+                     int wdaLocalPort,
+                     int mjpegServerPort) {
+
+    @Override
+    public String toString() {
+        return platform + ":" + id + (udid != null ? " (" + udid + ")" : "");
+    }
+}
@@ -0,0 +1,39 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exclusive lease of a single device, handed out by the {@link DeviceRegistry}.
+ * The device is returned to the registry when the lease is closed; closing twice has no effect.
+ */
+public final class DeviceLease implements AutoCloseable {
+
+    private final DeviceRegistry registry;
+    private final Device device;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    DeviceLease(DeviceRegistry registry, Device device) {
+        this.registry = registry;
+        this.device = device;
+    }
+
+    public Device getDevice() {
+        return device;
+    }
+
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            registry.giveBack(device);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceLease[" + device + "]";
+    }
+}
@@ -0,0 +1,373 @@
+package core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Platform;
+import utils.PropertyReader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the devices available to the suite and scheduler of exclusive device leases.
+ * Each TestNG worker acquires a {@link DeviceLease} before creating a session, so two sessions
+ * never land on the same device. Workers that find no free device wait in FIFO order
+ * (fair queue per platform) until a device is given back.
+ *
+ * Devices are loaded from the file named by the "devices.config" system property
+ * (default: src/test/resources/properties/devices.properties). Tests can build a registry
+ * from any list of devices through the public constructors.
+ *
+ * Each device has a circuit breaker: after "device.failure.threshold" (default 3) infrastructure failures
+ * in a row, the device is quarantined for "device.quarantine.seconds" (default 300) and not leased.
+ * It then gets one trial lease; a failure there quarantines it again right away. While every device
+ * of a platform is quarantined, leases fail fast instead of waiting for one to come back.
+ */
+public final class DeviceRegistry {
+
+    private static final Logger logger = LogManager.getLogger(DeviceRegistry.class);
+
+    public static final String DEFAULT_CONFIG_PATH = "src/test/resources/properties/devices.properties";
+
+    // --- Base ports used when a device entry does not define its own ---
+    static final int SYSTEM_PORT_BASE = 8200;
+    static final int WDA_LOCAL_PORT_BASE = 8100;
+    static final int MJPEG_SERVER_PORT_BASE = 9100;
+
+    private static volatile DeviceRegistry defaultRegistry;
+
+    private final Map<Platform, List<Device>> devices = new EnumMap<>(Platform.class);
+    private final Map<Platform, BlockingQueue<Device>> freeDevices = new EnumMap<>(Platform.class);
+    private final long leaseTimeoutMillis;
+    private final int failureThreshold;
+    private final long quarantineMillis;
+
+    // Circuit breaker state per device id; guarded by itself
+    private final Map<String, Health> health = new HashMap<>();
+    private long quarantines;
+    private double avoidedLeases;
+    private long failedAttempts;
+    private long failedAttemptMillis;
+
+    private static final class Health {
+        int consecutiveFailures;
+        long quarantinedUntil; // System.currentTimeMillis() deadline, 0 when not quarantined
+        boolean trial;
+        boolean free; // whether the device is (or will be, once it leaves quarantine) in the free queue
+    }
+
+    /**
+     * Creates a registry over the given devices.
+     * @param deviceList The devices to schedule; ids, udids and ports must be unique.
+     * @param leaseTimeoutMillis How long a worker waits for a free device before failing.
+     */
+    public DeviceRegistry(List<Device> deviceList, long leaseTimeoutMillis) {
+        this(deviceList, leaseTimeoutMillis, 3, TimeUnit.MINUTES.toMillis(5));
+    }
+
+    /**
+     * Creates a registry over the given devices with the given circuit breaker settings.
+     * @param failureThreshold Infrastructure failures in a row that quarantine a device.
+     * @param quarantineMillis How long a quarantined device is not leased.
+     */
+    public DeviceRegistry(List<Device> deviceList, long leaseTimeoutMillis, int failureThreshold, long quarantineMillis) {
+        validate(deviceList);
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        this.failureThreshold = failureThreshold;
+        this.quarantineMillis = quarantineMillis;
+        for (Device device : deviceList) {
+            devices.computeIfAbsent(device.platform(), p -> new ArrayList<>()).add(device);
+            Health state = new Health();
+            state.free = true;
+            health.put(device.id(), state);
+        }
+        devices.forEach((platform, list) -> {
+            // Fair queue: blocked workers are served in arrival order
+            BlockingQueue<Device> queue = new ArrayBlockingQueue<>(list.size(), true);
+            queue.addAll(list);
+            freeDevices.put(platform, queue);
+        });
+    }
+
+    /**
+     * Returns the registry shared by the whole JVM, loading it on first use.
+     */
+    public static DeviceRegistry getDefault() {
+        DeviceRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (DeviceRegistry.class) {
+                registry = defaultRegistry;
+                if (registry == null) {
+                    registry = load(MobileConfig.get().getString("devices.config", DEFAULT_CONFIG_PATH));
+                    defaultRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Loads a registry from a properties file. Entries look like:
+     * <pre>
+     * device.android-1.platform=ANDROID
+     * device.android-1.name=emulator-5554
+     * device.android-1.udid=emulator-5554
+     * device.android-1.systemPort=8200
+     * </pre>
+     * If the file does not exist, the single default device per platform from MobileConfig is used.
+     * @param path The path to the properties file (relative to project root).
+     */
+    public static DeviceRegistry load(String path) {
+        MobileConfig config = MobileConfig.get();
+        long timeout = TimeUnit.SECONDS.toMillis(config.getLong("device.lease.timeout.seconds", 600));
+        int threshold = config.getInt("device.failure.threshold", 3);
+        long quarantine = TimeUnit.SECONDS.toMillis(config.getLong("device.quarantine.seconds", 300));
+        if (!new File(path).isFile()) {
+            logger.warn("Device config {} not found. Falling back to the default devices from MobileConfig.", path);
+            return new DeviceRegistry(defaultDevices(), timeout, threshold, quarantine);
+        }
+
+        PropertyReader reader = new PropertyReader(path);
+        Set<String> ids = new TreeSet<>();
+        for (String key : reader.getPropertyNames()) {
+            if (key.startsWith("device.") && key.indexOf('.', "device.".length()) > 0) {
+                ids.add(key.substring("device.".length(), key.indexOf('.', "device.".length())));
+            }
+        }
+
+        List<Device> list = new ArrayList<>();
+        int index = 0;
+        for (String id : ids) {
+            String prefix = "device." + id + ".";
+            Platform platform = Platform.fromString(reader.getProperty(prefix + "platform", "ANDROID").toUpperCase());
+            String name = reader.getProperty(prefix + "name", id);
+            list.add(new Device(
+                    id,
+                    platform,
+                    name,
+                    reader.getProperty(prefix + "udid", null),
+                    reader.getProperty(prefix + "platformVersion", null),
+                    Integer.parseInt(reader.getProperty(prefix + "systemPort", String.valueOf(SYSTEM_PORT_BASE + index))),
+                    Integer.parseInt(reader.getProperty(prefix + "wdaLocalPort", String.valueOf(WDA_LOCAL_PORT_BASE + index))),
+                    Integer.parseInt(reader.getProperty(prefix + "mjpegServerPort", String.valueOf(MJPEG_SERVER_PORT_BASE + index)))));
+            index++;
+        }
+        logger.info("Loaded {} device(s) from {}", list.size(), path);
+        return new DeviceRegistry(list, timeout, threshold, quarantine);
+    }
+
+    /**
+     * Acquires an exclusive lease on a free device of the given platform, waiting in line if all are busy.
+     * Quarantined devices are skipped.
+     * @param platform The mobile platform (ANDROID or IOS).
+     * @return The lease; close it to give the device back.
+     * @throws IllegalStateException if no device frees up in time, or every device of the platform is quarantined.
+     */
+    public DeviceLease acquire(Platform platform) {
+        DeviceLease lease = tryAcquire(platform, leaseTimeoutMillis);
+        if (lease == null) {
+            throw new IllegalStateException("No free " + platform + " device within " + leaseTimeoutMillis + " ms");
+        }
+        return lease;
+    }
+
+    /**
+     * Like {@link #acquire(Platform)}, but returns null if no device frees up within the timeout (0 to not wait).
+     */
+    public DeviceLease tryAcquire(Platform platform, long timeoutMillis) {
+        BlockingQueue<Device> queue = freeDevices.get(platform);
+        if (queue == null) {
+            throw new IllegalArgumentException("No devices registered for platform " + platform);
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            while (true) {
+                long wait;
+                synchronized (health) {
+                    long now = System.currentTimeMillis();
+                    long nextTrial = endQuarantines(platform, now);
+                    int quarantined = quarantinedCount(platform, now);
+                    if (quarantined == getDevices(platform).size()) {
+                        avoidedLeases++;
+                        throw new IllegalStateException("All " + quarantined + " " + platform
+                                + " device(s) are quarantined after repeated infrastructure failures");
+                    }
+                    wait = Math.min(deadline - now, nextTrial - now);
+                }
+                Device device = queue.poll(Math.max(0, wait), TimeUnit.MILLISECONDS);
+                synchronized (health) {
+                    long now = System.currentTimeMillis();
+                    if (device != null && health.get(device.id()).quarantinedUntil != 0) {
+                        // Quarantined between the poll and this lock: it stays free, and endQuarantines
+                        // puts it back in the queue when the quarantine is over
+                        continue;
+                    }
+                    if (device != null) {
+                        health.get(device.id()).free = false;
+                        // The share of this lease that would have gone to the quarantined devices
+                        avoidedLeases += (double) quarantinedCount(platform, now) / getDevices(platform).size();
+                        logger.info("Leased {} to thread {}", device, Thread.currentThread().getId());
+                        return new DeviceLease(this, device);
+                    }
+                    if (now >= deadline) {
+                        return null;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a " + platform + " device", e);
+        }
+    }
+
+    /**
+     * Records a successful session or test on the device, closing its circuit breaker.
+     */
+    public void reportSuccess(Device device) {
+        synchronized (health) {
+            Health state = health.get(device.id());
+            state.consecutiveFailures = 0;
+            state.trial = false;
+        }
+    }
+
+    /**
+     * Records an infrastructure failure on the device, quarantining it once it failed too often in a row.
+     * @param failedMillis How long the failed attempt took, used to estimate the time quarantines save.
+     */
+    public void reportFailure(Device device, long failedMillis) {
+        synchronized (health) {
+            failedAttempts++;
+            failedAttemptMillis += Math.max(0, failedMillis);
+            Health state = health.get(device.id());
+            state.consecutiveFailures++;
+            if (state.quarantinedUntil == 0 && (state.trial || state.consecutiveFailures >= failureThreshold)) {
+                state.quarantinedUntil = System.currentTimeMillis() + quarantineMillis;
+                state.trial = false;
+                quarantines++;
+                if (state.free) {
+                    freeDevices.get(device.platform()).remove(device);
+                }
+                logger.warn("Quarantined {} for {} s after {} infrastructure failure(s) in a row",
+                        device, TimeUnit.MILLISECONDS.toSeconds(quarantineMillis), state.consecutiveFailures);
+            }
+        }
+    }
+
+    public boolean isQuarantined(Device device) {
+        synchronized (health) {
+            return health.get(device.id()).quarantinedUntil > System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Returns a one-line summary of the circuit breakers, with the time quarantines are estimated to have saved:
+     * the leases kept off quarantined devices times the average duration of a failed attempt.
+     */
+    public String stats() {
+        synchronized (health) {
+            long averageFailure = failedAttempts == 0 ? 0 : failedAttemptMillis / failedAttempts;
+            return String.format("Device health: %d infrastructure failure(s), %d quarantine(s), ~%.1f lease(s) kept off "
+                            + "quarantined devices, ~%.1f s saved", failedAttempts, quarantines, avoidedLeases,
+                    avoidedLeases * averageFailure / 1000.0);
+        }
+    }
+
+    /**
+     * Puts the devices whose quarantine is over back in the free queue for a trial lease.
+     * @return When the next quarantine of the platform ends, or Long.MAX_VALUE if none is running.
+     */
+    private long endQuarantines(Platform platform, long now) {
+        long next = Long.MAX_VALUE;
+        for (Device device : getDevices(platform)) {
+            Health state = health.get(device.id());
+            if (state.quarantinedUntil != 0 && state.quarantinedUntil <= now) {
+                state.quarantinedUntil = 0;
+                state.trial = true;
+                if (state.free) {
+                    freeDevices.get(platform).offer(device);
+                }
+                logger.warn("Quarantine of {} is over, trying it again", device);
+            } else if (state.quarantinedUntil != 0) {
+                next = Math.min(next, state.quarantinedUntil);
+            }
+        }
+        return next;
+    }
+
+    private int quarantinedCount(Platform platform, long now) {
+        int count = 0;
+        for (Device device : getDevices(platform)) {
+            if (health.get(device.id()).quarantinedUntil > now) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns all devices registered for the platform.
+     */
+    public List<Device> getDevices(Platform platform) {
+        return Collections.unmodifiableList(devices.getOrDefault(platform, Collections.emptyList()));
+    }
+
+    /**
+     * Returns the number of devices currently free for the platform.
+     */
+    public int freeCount(Platform platform) {
+        BlockingQueue<Device> queue = freeDevices.get(platform);
+        return queue == null ? 0 : queue.size();
+    }
+
+    void giveBack(Device device) {
+        synchronized (health) {
+            Health state = health.get(device.id());
+            state.free = true;
+            if (state.quarantinedUntil == 0) {
+                freeDevices.get(device.platform()).offer(device);
+            }
+        }
+        logger.debug("Device {} returned to the registry", device);
+    }
+
+    private static List<Device> defaultDevices() {
+        return List.of(
+                new Device("android-1", Platform.ANDROID, MobileConfig.get().androidDeviceName(), null, null,
+                        SYSTEM_PORT_BASE, WDA_LOCAL_PORT_BASE, MJPEG_SERVER_PORT_BASE),
+                new Device("ios-1", Platform.IOS, MobileConfig.get().iosDeviceName(), null, MobileConfig.get().iosPlatformVersion(),
+                        SYSTEM_PORT_BASE + 1, WDA_LOCAL_PORT_BASE + 1, MJPEG_SERVER_PORT_BASE + 1));
+    }
+
+    private static void validate(List<Device> deviceList) {
+        Set<String> ids = new HashSet<>();
+        Set<String> udids = new HashSet<>();
+        Set<Integer> ports = new HashSet<>();
+        for (Device device : deviceList) {
+            if (!ids.add(device.id())) {
+                throw new IllegalArgumentException("Duplicate device id: " + device.id());
+            }
+            if (device.udid() != null && !udids.add(device.udid())) {
+                throw new IllegalArgumentException("Duplicate device udid: " + device.udid());
+            }
+            // Only the ports the platform's driver actually binds can collide
+            int driverPort = device.platform() == Platform.IOS ? device.wdaLocalPort() : device.systemPort();
+            for (int port : new int[]{driverPort, device.mjpegServerPort()}) {
+                if (!ports.add(port)) {
+                    throw new IllegalArgumentException("Port " + port + " of device " + device.id() + " is already used by another device");
+                }
+            }
+        }
+    }
+}
@@ -5,15 +5,15 @@ import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.android.options.UiAutomator2Options;
 import io.appium.java_client.ios.IOSDriver;
 import io.appium.java_client.ios.options.XCUITestOptions;
+import io.appium.java_client.remote.options.BaseOptions;
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.Platform;
+import org.openqa.selenium.remote.HttpCommandExecutor;
 
-import java.net.MalformedURLException;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.time.Duration;
 
-import static core.MobileConfig.getAndroidAppPath;
-import static core.MobileConfig.getIosAppPath;
-
 /**
  * Factory class responsible for initializing and configuring platform-specific Appium Drivers.
  * It centralizes all driver initialization logic, using advanced Appium 2.x Options
@@ -21,45 +21,40 @@ import static core.MobileConfig.getIosAppPath;
  */
 public class DriverFactory {
 
-    // Centralized Appium Server URL initialization (best practice)
-    private static final URL APPIUM_SERVER_URL;
-
-    static {
-        try {
-            APPIUM_SERVER_URL = new URL(MobileConfig.APPIUM_URL);
-        } catch (MalformedURLException e) {
-            throw new RuntimeException("Invalid Appium Server URL: " + e.getMessage(), e);
-        }
-    }
-
     /**
-     * Initializes and returns an AppiumDriver instance based on the specified platform.
-     * This method is called by BaseTest.
+     * Initializes and returns an AppiumDriver instance for the given device.
+     * This method is called by the DriverPool once a device has been leased.
      * @param platform The mobile platform (ANDROID or IOS).
+     * @param device The leased device the session must be created on.
      * @return The initialized AppiumDriver.
      */
-    public static AppiumDriver initializeDriver(String platform) {
+    public static AppiumDriver initializeDriver(String platform, Device device) {
         // Normalize platform input to prevent errors (e.g., "android" -> ANDROID)
         Platform plat = Platform.fromString(platform.toUpperCase());
 
-        System.out.println("Initializing driver for platform: " + plat);
+        System.out.println("Initializing driver for platform: " + plat + " on device: " + device);
         AppiumDriver driver;
 
         try {
             // Use switch expression to create the correct driver type
+            // One snapshot per session, so a configuration reload never mixes old and new values
+            MobileConfig config = MobileConfig.get();
             driver = switch (plat) {
-                case ANDROID -> createAndroidDriver();
-                case IOS -> createIOSDriver();
+                case ANDROID -> createAndroidDriver(config, device);
+                case IOS -> createIOSDriver(config, device);
                 default -> throw new IllegalArgumentException("Unsupported platform: " + platform);
             };
 
-            // Set a global implicit wait after the driver is created
-            driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(15));
+            // No implicit wait: it would stack with the explicit waits of WaitEngine
+            driver.manage().timeouts().implicitlyWait(Duration.ZERO);
             System.out.println("Driver initialized successfully.");
             return driver;
 
         } catch (Exception e) {
             System.err.println("Failed to initialize driver for " + platform + ". Error: " + e.getMessage());
+            if (AppiumServerPool.isEnabled()) {
+                AppiumServerPool.getDefault().sessionEnded(device);
+            }
             // Throw a runtime exception to stop tests immediately on configuration failure
             throw new RuntimeException("Appium Driver initialization failed.", e);
         }
@@ -67,43 +62,154 @@ public class DriverFactory {
 
     /**
      * Builds comprehensive capabilities and creates the AndroidDriver.
+     * The capabilities from android-caps.properties override the defaults below; the device's own settings override both.
      */
-    private static AndroidDriver createAndroidDriver() {
+    private static AndroidDriver createAndroidDriver(MobileConfig config, Device device) {
         // Capabilities based on the requested options for Android
         UiAutomator2Options options = new UiAutomator2Options()
                 .setPlatformName("Android")
-                .setDeviceName("emulator-5554") // Generic name for CI/Cloud integration
-                .setApp(getAndroidAppPath()) // Connects the external .apk file from the 'apps' folder
-                .setAppPackage(MobileConfig.ANDROID_APP_PACKAGE)
+                .setAppPackage(config.androidAppPackage())
                 .setAutomationName("UiAutomator2")
                 // CI/CD and Stability settings
-                .setNoReset(false) // Prevents data wipe between tests
+                .setNoReset(false) // Clears the app data at session start, also when the app is not reinstalled
                 .setSkipDeviceInitialization(false) // Speeds up session startup
                 .setSkipServerInstallation(false)
                 .setAutoGrantPermissions(true)
                 .setNewCommandTimeout(Duration.ofSeconds(60)); // Standard timeout
+        config.capabilities(Platform.ANDROID).forEach(options::amend);
+        options.setDeviceName(device.name())
+                // Per-device ports so parallel sessions never collide
+                .setSystemPort(device.systemPort())
+                .setMjpegServerPort(device.mjpegServerPort());
+        if (device.udid() != null) {
+            options.setUdid(device.udid());
+        }
+        if (device.platformVersion() != null) {
+            options.setPlatformVersion(device.platformVersion());
+        }
 
         System.out.println("Android capabilities set. Launching driver.");
-        return new AndroidDriver(APPIUM_SERVER_URL, options);
+        return launch(AndroidDriver.class, config, options, Platform.ANDROID, device, config.androidAppPath(),
+                config.androidAppPackage());
     }
 
     /**
      * Builds comprehensive capabilities and creates the IOSDriver.
+     * The capabilities from ios-caps.properties override the defaults below; the device's own settings override both.
      */
-    private static IOSDriver createIOSDriver() {
+    private static IOSDriver createIOSDriver(MobileConfig config, Device device) {
         // Capabilities based on the requested options for iOS
         XCUITestOptions options = new XCUITestOptions()
                 .setPlatformName("iOS")
-                .setDeviceName("iPhone 16e") // Generic name for simulator/CI
-                .setPlatformVersion("26.0") // IMPORTANT: Change this to match your target iOS simulator version
-                .setApp(getIosAppPath()) // Connects the external .app file from the 'apps' folder
-                .setBundleId(MobileConfig.IOS_BUNDLE_ID)
+                .setBundleId(config.iosBundleId())
                 .setAutomationName("XCUITest")
                 // CI/CD and Stability settings
                 .setWdaLaunchTimeout(Duration.ofSeconds(120)) // WebDriverAgent launch can take time
                 .setNewCommandTimeout(Duration.ofSeconds(3600));
+        config.capabilities(Platform.IOS).forEach(options::amend);
+        options.setDeviceName(device.name())
+                // Per-device ports so parallel sessions never collide
+                .setWdaLocalPort(device.wdaLocalPort())
+                .setMjpegServerPort(device.mjpegServerPort());
+        if (device.udid() != null) {
+            options.setUdid(device.udid());
+        }
+        if (device.platformVersion() != null) {
+            options.setPlatformVersion(device.platformVersion());
+        }
 
         System.out.println("iOS capabilities set. Launching driver.");
-        return new IOSDriver(APPIUM_SERVER_URL, options);
+        return launch(IOSDriver.class, config, options, Platform.IOS, device, config.iosAppPath(), config.iosBundleId());
+    }
+
+    /**
+     * Creates the driver, installing the app from the 'apps' folder only if {@link AppDeployment} does not know
+     * this build to be on the device already. If launching the installed app fails (e.g. it was uninstalled
+     * since), or the device reports another build than the one installed from here, the session is retried once
+     * with a full install. The startup is profiled by {@link StartupProfiler}
+     * as an install or a reuse; a failed reuse attempt is not part of it.
+     */
+    private static <T extends AppiumDriver> T launch(Class<T> driverClass, MobileConfig config, BaseOptions<?> options,
+                                                     Platform platform, Device device, String appPath, String appId) {
+        if (StartupProfiler.isEnabled() || AppiumServerPool.isEnabled()) {
+            // Makes the server time the session startup and every command, see StartupProfiler and AppiumServerPool
+            options.setCapability("eventTimings", true);
+        }
+        long preparation = System.nanoTime();
+        String fingerprint = AppDeployment.fingerprint(appPath);
+        boolean installed = AppDeployment.isInstalled(platform, device, fingerprint);
+        preparation = System.nanoTime() - preparation;
+        if (installed) {
+            long start = System.nanoTime();
+            try {
+                T driver = newDriver(driverClass, config, serverUrl(config, device), options, platform.name());
+                long end = System.nanoTime();
+                if (AppDeployment.isStillInstalled(platform, device, driver, appId)) {
+                    AppDeployment.reused(platform, device, fingerprint, (end - start) / 1_000_000);
+                    profile(device, driver, StartupProfiler.Launch.REUSE, preparation, start, end);
+                    return driver;
+                }
+                System.err.println("The app on " + device + " is not the build installed from here, reinstalling it");
+                AppDeployment.forget(platform, device);
+                quitQuietly(driver);
+            } catch (RuntimeException e) {
+                System.err.println("Could not launch the installed app on " + device + ", reinstalling it: " + e.getMessage());
+                AppDeployment.forget(platform, device);
+            }
+        }
+        options.setCapability("app", appPath);
+        long start = System.nanoTime();
+        T driver = newDriver(driverClass, config, serverUrl(config, device), options, platform.name());
+        long end = System.nanoTime();
+        AppDeployment.installed(platform, device, fingerprint, driver, appId, (end - start) / 1_000_000);
+        profile(device, driver, StartupProfiler.Launch.INSTALL, preparation, start, end);
+        return driver;
+    }
+
+    /**
+     * Profiles the startup of a session: the preparation before the first attempt plus the attempt that succeeded.
+     */
+    private static void profile(Device device, AppiumDriver driver, StartupProfiler.Launch launch,
+                                long preparationNanos, long attemptStart, long attemptEnd) {
+        if (StartupProfiler.isEnabled()) {
+            StartupProfiler.getDefault().record(device, driver, launch,
+                    (preparationNanos + attemptEnd - attemptStart) / 1_000_000);
+        }
+    }
+
+    /**
+     * Quits a session that is not handed out, e.g. one found to run another build of the app.
+     */
+    private static void quitQuietly(AppiumDriver driver) {
+        try {
+            driver.quit();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to quit driver session: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the Appium server the device's sessions go to: its own server of the {@link AppiumServerPool}
+     * if the pool is enabled, "appium.url" otherwise.
+     */
+    private static URL serverUrl(MobileConfig config, Device device) {
+        return AppiumServerPool.isEnabled() ? AppiumServerPool.getDefault().urlFor(device) : config.appiumUrl();
+    }
+
+    /**
+     * Creates the driver. Its commands go through an {@link InstrumentedCommandExecutor}, which times each of them
+     * (unless command metrics are disabled), over Selenium's default HTTP client or the one selected by "http.transport" (see {@link CommandTransport}).
+     */
+    private static <T extends AppiumDriver> T newDriver(Class<T> driverClass, MobileConfig config, URL serverUrl,
+                                                        Capabilities options, String platform) {
+        try {
+            InstrumentedCommandExecutor executor = new InstrumentedCommandExecutor(serverUrl, platform,
+                    CommandTransport.selected(config));
+            return driverClass.getConstructor(HttpCommandExecutor.class, Capabilities.class).newInstance(executor, options);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Cannot create " + driverClass.getSimpleName(), e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,341 @@
+package core;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.InteractsWithApps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of warm Appium sessions, keyed per platform and device.
+ * Every lease first takes an exclusive device lease from the {@link DeviceRegistry}; the warm
+ * session of that device (if any) is then handed to the test.
+ * Instead of paying the full session startup (app install, UiAutomator2/WDA launch) for every
+ * test method, a released driver has its app state reset cheaply and is handed to the next test.
+ * A session is only rebuilt when it turns out to be unhealthy; with the {@link SessionPrewarmer}
+ * enabled that rebuild (and the first session of every device) happens in the background.
+ *
+ * The pool is controlled by the "driver.pool.mode" system property:
+ * REUSE (default) keeps sessions between tests, OFF creates and quits a session per test.
+ */
+public final class DriverPool {
+
+    private static final Logger logger = LogManager.getLogger(DriverPool.class);
+
+    /**
+     * Pooling strategy selected for the current run.
+     */
+    public enum Mode {
+        OFF,
+        REUSE
+    }
+
+    // One session slot per "PLATFORM:deviceId" key. The slot may hold a session that is still being built.
+    // Since a device is leased exclusively, there is never more than one session per device.
+    private static final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    // Keys whose device is currently leased; guarded by the slots monitor so that pre-warming never
+    // starts a second session on a device that is in use
+    private static final Set<String> leasedKeys = new HashSet<>();
+
+    // Sessions currently leased to a test, mapped to the key and device lease they have to be returned to
+    private static final Map<AppiumDriver, Leased> leasedSessions = new ConcurrentHashMap<>();
+
+    private record Slot(CompletableFuture<SessionPrewarmer.WarmSession> session, boolean served, Device device) {
+    }
+
+    private record Leased(String key, Platform platform, DeviceLease deviceLease) {
+    }
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    private static final AtomicLong recoveredSessions = new AtomicLong();
+
+    private DriverPool() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Starts building a session in the background for every registered device of the platform
+     * that does not have one yet, so the first test on each device finds a warm session.
+     * @param platform The mobile platform (ANDROID or IOS).
+     */
+    public static void prewarm(String platform) {
+        if (!SessionPrewarmer.isEnabled()) {
+            return;
+        }
+        Platform plat = Platform.fromString(platform.toUpperCase());
+        for (Device device : DeviceRegistry.getDefault().getDevices(plat)) {
+            String key = keyFor(plat, device);
+            synchronized (slots) {
+                if (!leasedKeys.contains(key)) {
+                    slots.computeIfAbsent(key, k -> new Slot(SessionPrewarmer.submit(plat, device), false, device));
+                }
+            }
+        }
+    }
+
+    /**
+     * Leases a driver for the given platform. A free device is leased first (waiting if all are busy);
+     * its warm (or pre-warming) session is reused when available, otherwise a new one is created
+     * through the DriverFactory on the calling thread.
+     * If the session cannot be started for infrastructure reasons (see {@link FailureClassifier}), the failure
+     * is reported to the device's circuit breaker and the session is retried on another device, up to
+     * "retry.session.attempts" (default 2) times and within the run's retry budget.
+     * @param platform The mobile platform (ANDROID or IOS).
+     * @return A driver exclusively owned by the caller until it is released.
+     */
+    public static AppiumDriver lease(String platform) {
+        Platform plat = Platform.fromString(platform.toUpperCase());
+        DeviceRegistry registry = DeviceRegistry.getDefault();
+        int retries = MobileConfig.get().getInt("retry.session.attempts", 2);
+        DeviceLease deviceLease = registry.acquire(plat);
+        for (int attempt = 0; ; attempt++) {
+            Device device = deviceLease.getDevice();
+            long start = System.nanoTime();
+            try {
+                AppiumDriver driver = startOn(plat, deviceLease);
+                registry.reportSuccess(device);
+                if (attempt > 0) {
+                    recoveredSessions.incrementAndGet();
+                }
+                return driver;
+            } catch (RuntimeException e) {
+                boolean infrastructure = FailureClassifier.isInfrastructure(e);
+                if (infrastructure) {
+                    registry.reportFailure(device, (System.nanoTime() - start) / 1_000_000);
+                }
+                boolean otherDevice = registry.getDevices(plat).size() > 1;
+                if (!infrastructure || !otherDevice || attempt >= retries || !FailureClassifier.tryConsumeRetry()) {
+                    deviceLease.close();
+                    throw e;
+                }
+                logger.warn("Session on {} failed ({}), retrying on another device", device, e.getMessage());
+                // Take a device that is free right now before giving this one back, so the retry lands elsewhere
+                DeviceLease next = registry.tryAcquire(plat, 0);
+                deviceLease.close();
+                deviceLease = next != null ? next : registry.acquire(plat);
+            }
+        }
+    }
+
+    private static AppiumDriver startOn(Platform plat, DeviceLease deviceLease) {
+        Device device = deviceLease.getDevice();
+        String key = keyFor(plat, device);
+
+        Slot slot;
+        synchronized (slots) {
+            leasedKeys.add(key);
+            slot = slots.remove(key);
+        }
+
+        try {
+            AppiumDriver driver = null;
+            if (slot != null) {
+                hits.incrementAndGet();
+                logger.info("Pool hit for {} ({})", key, slot.served() ? "reused session" : "pre-warmed session");
+                try {
+                    driver = SessionPrewarmer.await(slot.session(), slot.served());
+                } catch (RuntimeException e) {
+                    logger.warn("Pre-warmed session for {} failed, creating a new one: {}", key, e.getMessage());
+                }
+            } else {
+                misses.incrementAndGet();
+                logger.info("Pool miss for {}. Creating a new session.", key);
+            }
+            if (driver == null) {
+                driver = SessionPrewarmer.await(SessionPrewarmer.buildNow(plat, device), false);
+            }
+            leasedSessions.put(driver, new Leased(key, plat, deviceLease));
+            return driver;
+        } catch (RuntimeException e) {
+            synchronized (slots) {
+                leasedKeys.remove(key);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a driver to the pool. The app state is reset so the next test starts from a clean
+     * launch; if the reset fails the session is considered unhealthy and is quit instead,
+     * and a replacement is pre-warmed in the background.
+     * @param driver The driver obtained from {@link #lease(String)}.
+     * @param passed Whether the test passed; only then the device's circuit breaker is told the device works.
+     */
+    public static void release(AppiumDriver driver, boolean passed) {
+        if (driver == null) {
+            return;
+        }
+        Leased leased = leasedSessions.remove(driver);
+        if (leased == null) {
+            quitQuietly(driver, null);
+            return;
+        }
+
+        String key = leased.key();
+        Device device = leased.deviceLease().getDevice();
+        Slot next = null;
+        try {
+            if (passed) {
+                DeviceRegistry.getDefault().reportSuccess(device);
+            }
+            if (mode() == Mode.REUSE && resetAppState(driver, leased.platform(), key)) {
+                next = new Slot(CompletableFuture.completedFuture(new SessionPrewarmer.WarmSession(driver, 0)), true, device);
+                logger.debug("Session {} returned to the pool for {}", driver.getSessionId(), key);
+            } else {
+                if (mode() == Mode.REUSE) {
+                    evictions.incrementAndGet();
+                    logger.warn("Session for {} is unhealthy and will be rebuilt.", key);
+                }
+                quitQuietly(driver, device);
+                if (SessionPrewarmer.isEnabled()) {
+                    next = new Slot(SessionPrewarmer.submit(leased.platform(), device), false, device);
+                }
+            }
+        } finally {
+            synchronized (slots) {
+                if (next != null) {
+                    slots.put(key, next);
+                }
+                leasedKeys.remove(key);
+            }
+            leased.deviceLease().close();
+        }
+    }
+
+    /**
+     * Gives back a driver whose test failed for infrastructure reasons: the session is quit instead of reset,
+     * and the failure is reported to the device's circuit breaker. A replacement session is pre-warmed
+     * unless the device was quarantined.
+     * @param driver The driver obtained from {@link #lease(String)}.
+     * @param failedMillis How long the failed test took.
+     */
+    public static void discard(AppiumDriver driver, long failedMillis) {
+        Leased leased = leasedSessions.remove(driver);
+        if (leased == null) {
+            quitQuietly(driver, null);
+            return;
+        }
+        Device device = leased.deviceLease().getDevice();
+        quitQuietly(driver, device);
+        DeviceRegistry registry = DeviceRegistry.getDefault();
+        registry.reportFailure(device, failedMillis);
+        evictions.incrementAndGet();
+        synchronized (slots) {
+            if (SessionPrewarmer.isEnabled() && !registry.isQuarantined(device)) {
+                slots.put(leased.key(), new Slot(SessionPrewarmer.submit(leased.platform(), device), false, device));
+            }
+            leasedKeys.remove(leased.key());
+        }
+        leased.deviceLease().close();
+    }
+
+    /**
+     * Quits every idle, pre-warming and leased session. Called once at the end of the suite.
+     */
+    public static void shutdown() {
+        synchronized (slots) {
+            slots.values().forEach(slot -> slot.session().thenAccept(warm -> quitQuietly(warm.driver(), slot.device())).exceptionally(e -> null));
+            slots.clear();
+        }
+        leasedSessions.forEach((driver, leased) -> {
+            quitQuietly(driver, leased.deviceLease().getDevice());
+            leased.deviceLease().close();
+        });
+        leasedSessions.clear();
+        logger.info("Driver pool shut down. {} {}", stats(), SessionPrewarmer.stats());
+    }
+
+    public static Mode mode() {
+        return Mode.valueOf(MobileConfig.get().getString("driver.pool.mode", "REUSE").toUpperCase());
+    }
+
+    public static long hits() {
+        return hits.get();
+    }
+
+    public static long misses() {
+        return misses.get();
+    }
+
+    public static long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns a one-line summary of the pool metrics.
+     */
+    public static String stats() {
+        long total = hits.get() + misses.get();
+        double hitRate = total == 0 ? 0 : (hits.get() * 100.0) / total;
+        return String.format("mode=%s hits=%d misses=%d evictions=%d hitRate=%.1f%% sessionsRecoveredOnAnotherDevice=%d",
+                mode(), hits.get(), misses.get(), evictions.get(), hitRate, recoveredSessions.get());
+    }
+
+    private static String keyFor(Platform platform, Device device) {
+        return platform + ":" + device.id();
+    }
+
+    /**
+     * Resets the application under test without recreating the session.
+     * Both platforms clear the app data with "mobile: clearApp" (which also stops the app) and re-activate it.
+     * XCUITest only supports that on simulators, so on a real iOS device the app is reinstalled instead.
+     * @return true if the session responded to every command, false if it should be discarded.
+     */
+    private static boolean resetAppState(AppiumDriver driver, Platform platform, String key) {
+        try {
+            if (driver.getSessionId() == null) {
+                return false;
+            }
+            InteractsWithApps apps = (InteractsWithApps) driver;
+            if (platform == Platform.ANDROID) {
+                driver.executeScript("mobile: clearApp", Map.of("appId", MobileConfig.get().androidAppPackage()));
+                apps.activateApp(MobileConfig.get().androidAppPackage());
+            } else {
+                String bundleId = MobileConfig.get().iosBundleId();
+                try {
+                    driver.executeScript("mobile: clearApp", Map.of("bundleId", bundleId));
+                } catch (WebDriverException e) {
+                    // Not a simulator: the only way to drop the app's data is a reinstall
+                    logger.debug("mobile: clearApp unavailable for {} ({}), reinstalling the app", key, e.getMessage());
+                    apps.removeApp(bundleId);
+                    apps.installApp(MobileConfig.get().iosAppPath());
+                }
+                apps.activateApp(bundleId);
+            }
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to reset app state for {}: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Quits the session, first collecting its server-side timings when the device (if known) runs on a pooled server,
+     * and tells the pool the device no longer holds a session there.
+     */
+    private static void quitQuietly(AppiumDriver driver, Device device) {
+        try {
+            if (device != null && AppiumServerPool.isEnabled()) {
+                AppiumServerPool.getDefault().recordServerTimings(device, driver);
+            }
+            driver.quit();
+        } catch (Exception e) {
+            logger.warn("Failed to quit driver session: {}", e.getMessage());
+        } finally {
+            if (device != null && AppiumServerPool.isEnabled()) {
+                AppiumServerPool.getDefault().sessionEnded(device);
+            }
+        }
+    }
+}
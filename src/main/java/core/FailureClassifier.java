@@ -0,0 +1,88 @@
+package core;
+
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tells infrastructure failures (session creation, lost connection to the server or device, crashed
+ * UiAutomator2 / WebDriverAgent) apart from failures of the app and failed assertions. Only infrastructure
+ * failures are worth retrying on another device; those retries draw from one budget per run,
+ * "retry.infra.budget" (default 5).
+ */
+public final class FailureClassifier {
+
+    public enum Kind {
+        INFRASTRUCTURE,
+        APP,
+        ASSERTION
+    }
+
+    // Lower-case fragments of the messages the servers and drivers use when the device side broke
+    private static final List<String> INFRASTRUCTURE_MESSAGES = List.of(
+            "instrumentation process is not running",
+            "uiautomator2 server",
+            "socket hang up",
+            "econnrefused",
+            "econnreset",
+            "could not proxy command",
+            "webdriveragent",
+            "xcodebuild failed",
+            "session is either terminated or not started",
+            "device offline",
+            "device not found",
+            "device unauthorized");
+
+    private static final AtomicInteger retriesUsed = new AtomicInteger();
+
+    private FailureClassifier() {
+    }
+
+    /**
+     * Classifies a failure by its whole cause chain. A failed assertion anywhere in the chain wins.
+     */
+    public static Kind classify(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = next(cause)) {
+            if (cause instanceof AssertionError) {
+                return Kind.ASSERTION;
+            }
+        }
+        for (Throwable cause = failure; cause != null; cause = next(cause)) {
+            if (cause instanceof SessionNotCreatedException || cause instanceof NoSuchSessionException
+                    || cause instanceof UnreachableBrowserException || cause instanceof IOException) {
+                return Kind.INFRASTRUCTURE;
+            }
+            String message = cause.getMessage() == null ? "" : cause.getMessage().toLowerCase(Locale.ROOT);
+            if (INFRASTRUCTURE_MESSAGES.stream().anyMatch(message::contains)) {
+                return Kind.INFRASTRUCTURE;
+            }
+        }
+        return Kind.APP;
+    }
+
+    public static boolean isInfrastructure(Throwable failure) {
+        return failure != null && classify(failure) == Kind.INFRASTRUCTURE;
+    }
+
+    /**
+     * Takes one retry from the run's budget.
+     * @return false if the budget is used up.
+     */
+    public static boolean tryConsumeRetry() {
+        int budget = MobileConfig.get().getInt("retry.infra.budget", 5);
+        return retriesUsed.getAndUpdate(used -> used < budget ? used + 1 : used) < budget;
+    }
+
+    public static int retriesUsed() {
+        return retriesUsed.get();
+    }
+
+    private static Throwable next(Throwable cause) {
+        return cause.getCause() == cause ? null : cause.getCause();
+    }
+}
@@ -0,0 +1,47 @@
+package core;
+
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.http.HttpClient;
+
+import java.net.URL;
+
+/**
+ * Command executor that counts and times every W3C command of a session (including session creation)
+ * and reports it to {@link CommandMetrics}. All driver and element commands pass through here.
+ * It also names the command for the {@link CommandTransport}, which picks its read timeout from it.
+ */
+public class InstrumentedCommandExecutor extends AppiumCommandExecutor {
+
+    private final String platform;
+
+    public InstrumentedCommandExecutor(URL serverUrl, String platform) {
+        super(MobileCommand.commandRepository, serverUrl);
+        this.platform = platform;
+    }
+
+    /**
+     * Creates an executor sending its commands through the given HTTP client factory.
+     */
+    public InstrumentedCommandExecutor(URL serverUrl, String platform, HttpClient.Factory transport) {
+        super(MobileCommand.commandRepository, serverUrl, transport);
+        this.platform = platform;
+    }
+
+    @Override
+    public Response execute(Command command) {
+        long start = System.nanoTime();
+        CommandTransport.setCommand(command.getName());
+        try {
+            return super.execute(command);
+        } finally {
+            CommandTransport.setCommand(null);
+            CommandMetrics.countCommand();
+            if (CommandMetrics.isEnabled()) {
+                CommandMetrics.record(command.getName(), platform, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package core;
+
+import io.appium.java_client.AppiumBy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Platform;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites simple XPath locators into the native lookup strategies of each platform.
+ * XPath is the slowest strategy on both UiAutomator2 and XCUITest because the server has to
+ * serialize the whole view hierarchy; a lookup by accessibility id, UiSelector or class chain
+ * is resolved directly by the platform's accessibility layer.
+ *
+ * Supported patterns (double or single quotes):
+ * <pre>
+ * //Class[@attribute="value"]            Android and iOS
+ * //*[@attribute="value"]                Android and iOS
+ * //Class[@name="value"]/Child/...       iOS only (plain child class steps)
+ * </pre>
+ * Anything else is returned unchanged and reported by {@link #unoptimized()}.
+ * Compiled locators keep the original XPath as a fallback (see {@link CompiledLocator}).
+ */
+public final class LocatorCompiler {
+
+    private static final Logger logger = LogManager.getLogger(LocatorCompiler.class);
+
+    // //Class[@attr="value"] optionally followed by /Child steps
+    private static final Pattern SINGLE_ATTRIBUTE_XPATH = Pattern.compile(
+            "^//([\\w.]+|\\*)\\[@([\\w-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')]((?:/[\\w.]+)*)$");
+
+    private static final Map<String, By> cache = new ConcurrentHashMap<>();
+    private static final Set<String> unoptimized = ConcurrentHashMap.newKeySet();
+
+    private LocatorCompiler() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Compiles a locator for the given platform. Results are cached per platform and locator.
+     * @param locator Any By; only XPath locators are rewritten.
+     * @param platform The platform the locator is used on (ANDROID or IOS).
+     * @return A {@link CompiledLocator} if the XPath could be translated, otherwise the original locator.
+     */
+    public static By compile(By locator, Platform platform) {
+        String xpath = xpathOf(locator);
+        if (xpath == null) {
+            return locator;
+        }
+        return cache.computeIfAbsent(platform + "|" + xpath, key -> {
+            By optimized = translate(xpath, platform);
+            if (optimized == null) {
+                unoptimized.add(platform + ": " + xpath);
+                logger.warn("Locator could not be optimized for {} and stays XPath: {}", platform, xpath);
+                return locator;
+            }
+            logger.debug("Compiled {} -> {}", xpath, optimized);
+            return new CompiledLocator(optimized, locator);
+        });
+    }
+
+    /**
+     * Returns the XPath locators that could not be translated, prefixed with their platform.
+     */
+    public static List<String> unoptimized() {
+        List<String> list = new ArrayList<>(unoptimized);
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * Returns a one-line summary of the compilation results.
+     */
+    public static String report() {
+        long compiled = cache.values().stream().filter(CompiledLocator.class::isInstance).count();
+        return "Locators compiled=" + compiled + " unoptimized=" + unoptimized.size()
+                + (unoptimized.isEmpty() ? "" : " " + unoptimized());
+    }
+
+    /**
+     * Translates an XPath expression into a native strategy, or returns null if the pattern is not supported.
+     */
+    static By translate(String xpath, Platform platform) {
+        Matcher matcher = SINGLE_ATTRIBUTE_XPATH.matcher(xpath.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        String className = matcher.group(1);
+        String attribute = matcher.group(2);
+        String value = matcher.group(3) != null ? matcher.group(3) : matcher.group(4);
+        String childSteps = matcher.group(5);
+
+        return switch (platform) {
+            case ANDROID -> childSteps.isEmpty() ? toUiSelector(className, attribute, value) : null;
+            case IOS -> toClassChain(className, attribute, value, childSteps);
+            default -> null;
+        };
+    }
+
+    private static By toUiSelector(String className, String attribute, String value) {
+        String method = switch (attribute) {
+            case "content-desc" -> "description";
+            case "text" -> "text";
+            case "resource-id" -> "resourceId";
+            default -> null;
+        };
+        if (method == null) {
+            return null;
+        }
+        if (className.equals("*") && method.equals("description")) {
+            return AppiumBy.accessibilityId(value);
+        }
+        StringBuilder selector = new StringBuilder("new UiSelector()");
+        if (!className.equals("*")) {
+            selector.append(".className(").append(javaString(className)).append(')');
+        }
+        selector.append('.').append(method).append('(').append(javaString(value)).append(')');
+        return AppiumBy.androidUIAutomator(selector.toString());
+    }
+
+    private static By toClassChain(String className, String attribute, String value, String childSteps) {
+        if (!attribute.equals("name") && !attribute.equals("label") && !attribute.equals("value")) {
+            return null;
+        }
+        if (className.equals("*") && attribute.equals("name") && childSteps.isEmpty()) {
+            return AppiumBy.accessibilityId(value);
+        }
+        String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"");
+        return AppiumBy.iOSClassChain("**/" + (className.equals("*") ? "*" : className)
+                + "[`" + attribute + " == \"" + escaped + "\"`]" + childSteps);
+    }
+
+    private static String javaString(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private static String xpathOf(By locator) {
+        if (locator instanceof CompiledLocator) {
+            return null;
+        }
+        String description = locator.toString();
+        return description.startsWith("By.xpath: ") ? description.substring("By.xpath: ".length()) : null;
+    }
+}
@@ -1,62 +1,346 @@
 package core;
 
-import java.io.File;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Platform;
+import utils.PropertyReader;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.util.Map.entry;
 
 /**
- * Configuration class to hold constants related to application paths and settings.
- * This ensures clean separation of configuration from test logic and makes it CI/CD ready.
- *
- * CRITICAL UPDATE: This class now determines the application path dynamically
- * based on the execution environment (Local vs. CI).
+ * Framework configuration, resolved once into an immutable snapshot from these layers (later layers win):
+ * <ol>
+ *     <li>built-in defaults (app identifiers and paths, default devices, config file locations);</li>
+ *     <li>properties files: "config.files" (comma separated, default src/test/resources/properties/config.properties),
+ *     then the capability files "android.caps.file" / "ios.caps.file", whose entries become extra Appium
+ *     capabilities (keys android.caps.* / ios.caps.*);</li>
+ *     <li>environment variables named "MOBILE_" plus the key in upper case with '_' for '.' (MOBILE_APPIUM_URL for
+ *     appium.url); without the prefix (APPIUM_URL) a variable only overrides a key set by an earlier layer;</li>
+ *     <li>system properties (-Dappium.url=...) overriding a key set by an earlier layer or adding a capability
+ *     (-Dandroid.caps.* / -Dios.caps.*). Any other key is looked up as a system property when it is read.</li>
+ * </ol>
+ * Code reads the current snapshot with {@link #get()}. With -Dconfig.watch=true the files are watched, and
+ * {@link #reloadIfChanged()}, called by BaseTest between tests, switches to a new snapshot after a file changed.
+ * A reload reaches the settings that are read when used. Those read once at startup are not reloaded:
+ * report.dir, artifacts.*, shard.*, schedule.*, driver.prewarm.threads and the transport.* pool settings.
  */
-public class MobileConfig {
+public final class MobileConfig {
+
+    private static final Logger logger = LogManager.getLogger(MobileConfig.class);
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            entry("appium.url", "http://127.0.0.1:4723"),
+            entry("android.app.package", "com.wdiodemoapp"),
+            entry("android.app.path", "apps/android.wdio.native.app.v1.0.8.apk"),
+            entry("android.device.name", "emulator-5554"),
+            entry("ios.bundle.id", "org.reactjs.native.example.wdiodemoapp"),
+            entry("ios.app.path", "apps/ios/wdiodemoapp.app"),
+            entry("ios.device.name", "iPhone 16e"),
+            entry("ios.platform.version", "26.0"),
+            entry("config.files", "src/test/resources/properties/config.properties"),
+            entry("android.caps.file", "src/test/resources/properties/android-caps.properties"),
+            entry("ios.caps.file", "src/test/resources/properties/ios-caps.properties"));
+
+    private static final String ANDROID_CAPS = "android.caps.";
+    private static final String IOS_CAPS = "ios.caps.";
+    private static final String ENV_PREFIX = "MOBILE_";
+
+    private static volatile MobileConfig current = resolve();
+    private static volatile boolean filesChanged;
+    private static Thread watcher;
+
+    private final Map<String, String> values;
+    private final URL appiumUrl;
+    private final Map<String, Object> androidCapabilities;
+    private final Map<String, Object> iosCapabilities;
+
+    private MobileConfig(Map<String, String> values) {
+        this.values = Collections.unmodifiableMap(values);
+        try {
+            this.appiumUrl = new URL(getString("appium.url", null));
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid Appium Server URL: " + e.getMessage(), e);
+        }
+        this.androidCapabilities = capabilitiesWithPrefix(ANDROID_CAPS);
+        this.iosCapabilities = capabilitiesWithPrefix(IOS_CAPS);
+    }
+
+    /**
+     * Returns the current configuration snapshot.
+     */
+    public static MobileConfig get() {
+        return current;
+    }
+
+    /**
+     * Switches to a freshly resolved snapshot if a watched configuration file changed since the last call.
+     * Meant to be called between tests, so a test never sees its configuration change midway.
+     * @return true if the configuration was reloaded.
+     */
+    public static boolean reloadIfChanged() {
+        if (!filesChanged) {
+            return false;
+        }
+        filesChanged = false;
+        MobileConfig previous = current;
+        MobileConfig next = resolve();
+        Set<String> changedKeys = new TreeSet<>();
+        for (String key : union(previous.values.keySet(), next.values.keySet())) {
+            if (!String.valueOf(previous.values.get(key)).equals(String.valueOf(next.values.get(key)))) {
+                changedKeys.add(key);
+            }
+        }
+        current = next;
+        System.out.println("Configuration reloaded, changed keys: " + changedKeys);
+        return true;
+    }
+
+    // --- Typed settings ---
+
+    public URL appiumUrl() {
+        return appiumUrl;
+    }
+
+    public String androidAppPackage() {
+        return getString("android.app.package", null);
+    }
+
+    public String iosBundleId() {
+        return getString("ios.bundle.id", null);
+    }
+
+    public String androidDeviceName() {
+        return getString("android.device.name", null);
+    }
+
+    public String iosDeviceName() {
+        return getString("ios.device.name", null);
+    }
+
+    public String iosPlatformVersion() {
+        return getString("ios.platform.version", null);
+    }
+
+    /**
+     * Returns the absolute path of the Android application (relative paths are resolved against the project root).
+     */
+    public String androidAppPath() {
+        return absolute(getString("android.app.path", null));
+    }
+
+    /**
+     * Returns the absolute path of the iOS application (relative paths are resolved against the project root).
+     */
+    public String iosAppPath() {
+        return absolute(getString("ios.app.path", null));
+    }
+
+    /**
+     * Returns the extra Appium capabilities configured for the platform (android.caps.* / ios.caps.*),
+     * with "true"/"false" and integral values converted to booleans and numbers.
+     */
+    public Map<String, Object> capabilities(Platform platform) {
+        return platform == Platform.IOS ? iosCapabilities : androidCapabilities;
+    }
+
+    // --- Generic settings ---
+
+    public String getString(String key, String defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            // A key without a default or file entry can still be given with -D
+            value = System.getProperty(key);
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Configuration value " + key + "=" + value + " is not a whole number", e);
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Configuration value " + key + "=" + value + " is not a number", e);
+        }
+    }
 
-    // --- Appium Server Details (Standard local URL) ---
-    public static final String APPIUM_URL = "http://127.0.0.1:4723";
+    // --- Resolution ---
 
-    // --- App Identifiers ---
-    public static final String ANDROID_APP_PACKAGE = "com.wdiodemoapp";
-    public static final String IOS_BUNDLE_ID = "org.reactjs.native.example.wdiodemoapp"; // Use your app's Bundle ID
+    private static MobileConfig resolve() {
+        // Environment and system properties also decide which files are read
+        Map<String, String> locations = new HashMap<>(DEFAULTS);
+        putEnvironment(locations);
+        putSystemProperties(locations);
 
-    // --- Application Path Constants (Relative paths used for both CI and Local) ---
-    private static final String RELATIVE_ANDROID_APP_PATH = "apps/android.wdio.native.app.v1.0.8.apk";
-    private static final String RELATIVE_IOS_APP_PATH = "apps/ios/wdiodemoapp.app";
+        Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        List<Path> files = new ArrayList<>();
+        for (String file : locations.get("config.files").split(",")) {
+            if (!file.isBlank()) {
+                load(Paths.get(file.trim()), "", values, files);
+            }
+        }
+        load(Paths.get(locations.get("android.caps.file")), ANDROID_CAPS, values, files);
+        load(Paths.get(locations.get("ios.caps.file")), IOS_CAPS, values, files);
+        putEnvironment(values);
+        putSystemProperties(values);
+
+        MobileConfig config = new MobileConfig(values);
+        if (config.getBoolean("config.watch", false)) {
+            watch(files);
+        }
+        return config;
+    }
 
+    private static void load(Path file, String prefix, Map<String, String> values, List<Path> files) {
+        files.add(file.toAbsolutePath());
+        if (!Files.isRegularFile(file)) {
+            logger.debug("Configuration file {} not found, skipping it", file);
+            return;
+        }
+        PropertyReader reader = new PropertyReader(file.toString());
+        for (String name : reader.getPropertyNames()) {
+            values.put(prefix + name, reader.getProperty(name));
+        }
+    }
 
     /**
-     * Determines if the current environment is running on GitHub Actions CI.
-     * @return true if running in CI, false otherwise.
+     * Adds the environment variables meant for the framework: MOBILE_APPIUM_URL sets appium.url, and a variable
+     * without the prefix (APPIUM_URL) only overrides a key that is already known. Keys are matched ignoring case,
+     * so camel-cased capability names can be overridden too.
      */
-    public static boolean isRunningInCI() {
-        // GitHub Actions always sets this environment variable.
-        return System.getenv("GITHUB_ACTIONS") != null && System.getenv("GITHUB_ACTIONS").equals("true");
+    private static void putEnvironment(Map<String, String> values) {
+        Map<String, String> knownKeys = new HashMap<>();
+        values.keySet().forEach(key -> knownKeys.put(key.toLowerCase(Locale.ROOT), key));
+        System.getenv().forEach((name, value) -> {
+            boolean prefixed = name.startsWith(ENV_PREFIX);
+            String key = (prefixed ? name.substring(ENV_PREFIX.length()) : name).toLowerCase(Locale.ROOT).replace('_', '.');
+            String knownKey = knownKeys.get(key);
+            if (knownKey != null) {
+                values.put(knownKey, value);
+            } else if (prefixed) {
+                values.put(key, value);
+            }
+        });
     }
 
     /**
-     * Gets the dynamically calculated full path for the Android application.
-     * In CI: Returns the simple relative path (e.g., "apps/android.apk")
-     * Locally: Returns the absolute path (e.g., "/Users/user/project/apps/android.apk")
+     * Adds the system properties that override a known key or add a capability. The JVM's own properties
+     * (java.*, user.*, ...) stay out of the snapshot.
      */
-    public static String getAndroidAppPath() {
-        if (isRunningInCI()) {
-            // CI checks out the repo and knows the relative path directly from the root
-            return System.getProperty("user.dir") + "/" + RELATIVE_ANDROID_APP_PATH;
-        } else {
-            // Locally, we need the absolute path for Appium to find the file correctly
-            return new File(RELATIVE_ANDROID_APP_PATH).getAbsolutePath();
+    private static void putSystemProperties(Map<String, String> values) {
+        System.getProperties().stringPropertyNames().forEach(name -> {
+            if (values.containsKey(name) || name.startsWith(ANDROID_CAPS) || name.startsWith(IOS_CAPS)) {
+                values.put(name, System.getProperty(name));
+            }
+        });
+    }
+
+    private Map<String, Object> capabilitiesWithPrefix(String prefix) {
+        Map<String, Object> capabilities = new LinkedHashMap<>();
+        values.forEach((key, value) -> {
+            if (key.startsWith(prefix) && !key.equals(prefix + "file") && value != null && !value.isBlank()) {
+                capabilities.put(key.substring(prefix.length()), typed(value.trim()));
+            }
+        });
+        return Collections.unmodifiableMap(capabilities);
+    }
+
+    private static Object typed(String value) {
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(value);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return value;
         }
     }
 
+    private static String absolute(String path) {
+        return Paths.get(path).isAbsolute() ? path : Paths.get(System.getProperty("user.dir"), path).toString();
+    }
+
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        Set<String> union = new TreeSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+
     /**
-     * Gets the dynamically calculated full path for the iOS application.
-     * In CI: Returns the simple relative path (e.g., "apps/ios/wdiodemoapp.app")
-     * Locally: Returns the absolute path.
+     * Starts a daemon thread flagging changes to the configuration files. Only the first call has an effect.
      */
-    public static String getIosAppPath() {
-        if (isRunningInCI()) {
-            return System.getProperty("user.dir") + "/" + RELATIVE_IOS_APP_PATH;
-        } else {
-            return new File(RELATIVE_IOS_APP_PATH).getAbsolutePath();
+    private static synchronized void watch(List<Path> files) {
+        if (watcher != null) {
+            return;
+        }
+        try {
+            WatchService service = files.get(0).getFileSystem().newWatchService();
+            Set<Path> directories = new TreeSet<>();
+            for (Path file : files) {
+                if (Files.isDirectory(file.getParent()) && directories.add(file.getParent())) {
+                    file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                }
+            }
+            watcher = new Thread(() -> {
+                while (true) {
+                    WatchKey key;
+                    try {
+                        key = service.take();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path name
+                                && files.contains(((Path) key.watchable()).resolve(name))) {
+                            filesChanged = true;
+                        }
+                    }
+                    key.reset();
+                }
+            }, "config-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+            logger.info("Watching configuration files {}", files);
+        } catch (IOException e) {
+            logger.warn("Cannot watch the configuration files: {}", e.getMessage());
         }
     }
 }
@@ -0,0 +1,32 @@
+package core;
+
+import org.openqa.selenium.Platform;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Registers a page object as the implementation of a page contract on one platform.
+ * At build time the {@link PageRegistryProcessor} turns all registrations into the generated
+ * {@code core.PageRegistry} used by the {@link PageObjectManager}.
+ *
+ * <pre>
+ * &#64;PageImpl(platform = Platform.ANDROID, contract = LoginPageBase.class)
+ * public class LoginPage extends BasePage implements LoginPageBase { ... }
+ * </pre>
+ *
+ * The build fails if the class does not implement the contract, has no public (AppiumDriver) constructor,
+ * duplicates another registration, or if a contract lacks an implementation on one of the platforms.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface PageImpl {
+
+    Platform platform();
+
+    Class<?> contract();
+}
@@ -2,27 +2,30 @@ package core;
 
 import io.appium.java_client.AppiumDriver;
 
-import java.lang.reflect.InvocationTargetException;
-import java.util.Collections;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.openqa.selenium.Platform;
 
 /**
  * Service Locator implementation for Page Objects.
- * This class uses reflection and PageConfig to dynamically instantiate the correct
- * platform-specific page object based on the current execution platform.
+ * This class uses the generated {@code PageRegistry} (built from the {@link PageImpl} annotations at compile time)
+ * to instantiate the correct platform-specific page object based on the current execution platform.
  * This approach eliminates the need for hardcoded page getters and keeps the Manager highly scalable.
+ *
+ * A lookup is an identity check against the known contracts followed by an array read;
+ * pages are created by direct constructor calls, without reflection.
  */
 public class PageObjectManager {
 
+    private static final Logger logger = LogManager.getLogger(PageObjectManager.class);
+
     private final AppiumDriver driver;
     private final Platform platform; // This is the core.Platform enum, which is correct
-    private final Logger logger = LogManager.getLogger(PageObjectManager.class);
 
-    // Cache for pages to prevent redundant reflection calls and re-instantiation (Lazy Initialization)
-    private final ConcurrentHashMap<Class<?>, Object> pageCache = new ConcurrentHashMap<>();
+    // Cache for pages, indexed like PageRegistry.CONTRACTS (Lazy Initialization)
+    private final AtomicReferenceArray<Object> pageCache = new AtomicReferenceArray<>(PageRegistry.CONTRACTS.size());
 
 
     /**
@@ -35,6 +38,10 @@ public class PageObjectManager {
         this.driver = driver;
         this.platform = platform;
         logger.info("PageObjectManager initialized for platform: {}", platform);
+        // Pre-instantiates every registered page in the background
+        if (MobileConfig.get().getBoolean("page.warmup", false)) {
+            warmUp();
+        }
     }
 
     /**
@@ -46,38 +53,55 @@ public class PageObjectManager {
      */
     @SuppressWarnings("unchecked")
     public <T> T getPage(Class<T> pageInterface) {
-        // 1. Check if the page is already in the cache
-        if (pageCache.containsKey(pageInterface)) {
-            // Using Log4j2 parameterization with '{}'
-            logger.debug("Returning cached instance of: {}", pageInterface.getSimpleName());
-            return (T) pageCache.get(pageInterface);
+        int index = PageRegistry.indexOf(pageInterface);
+        if (index < 0) {
+            throw noImplementation(pageInterface);
         }
+        Object page = pageCache.get(index);
+        return (T) (page != null ? page : createPage(index, pageInterface));
+    }
 
-        // 2. Find the concrete class from the PageConfig MAPPINGS
-        Class<?> concreteClass = PageConfig.MAPPINGS
-                .getOrDefault(platform, Collections.emptyMap())
-                .get(pageInterface);
+    /**
+     * Instantiates every page registered for this platform on a background thread, so that the
+     * first getPage of each page is a cache hit. Page construction sends no server requests.
+     * @return A future completing when all pages are cached.
+     */
+    public CompletableFuture<Void> warmUp() {
+        return CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < PageRegistry.CONTRACTS.size(); i++) {
+                if (PageRegistry.implementation(platform, i) != null) {
+                    getPage(PageRegistry.CONTRACTS.get(i));
+                }
+            }
+            logger.debug("Warmed up the pages of platform {}", platform);
+        });
+    }
 
-        if (concreteClass == null) {
-            logger.error("No concrete implementation found for interface {} on platform {}", pageInterface.getName(), platform);
-            throw new IllegalArgumentException(
-                    "No concrete implementation found for interface " + pageInterface.getName() + " on platform " + platform
-            );
+    // Synchronized so that concurrent callers (e.g. the warm-up) never create a page twice
+    private synchronized Object createPage(int index, Class<?> pageInterface) {
+        Object page = pageCache.get(index);
+        if (page != null) {
+            return page;
         }
-
-        // 3. Instantiate the concrete class using reflection
+        logger.info("Initializing {} for platform {}", pageInterface.getSimpleName(), platform);
         try {
-            logger.info("Initializing {} via {}", pageInterface.getSimpleName(), concreteClass.getSimpleName());
-            // Get the constructor that accepts an AppiumDriver
-            T pageInstance = (T) concreteClass.getDeclaredConstructor(AppiumDriver.class).newInstance(driver);
-
-            // 4. Cache the newly created instance
-            pageCache.put(pageInterface, pageInstance);
-            return pageInstance;
-
-        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-            logger.error("Failed to instantiate page object: {}. Ensure it has a public constructor accepting AppiumDriver.", concreteClass.getName(), e);
-            throw new RuntimeException("Failed to instantiate page object: " + concreteClass.getName() + ". Ensure it has a public constructor accepting AppiumDriver.", e);
+            page = PageRegistry.create(platform, index, driver);
+        } catch (RuntimeException e) {
+            Class<?> concreteClass = PageRegistry.implementation(platform, index);
+            logger.error("Failed to instantiate page object: {}", concreteClass.getName(), e);
+            throw new RuntimeException("Failed to instantiate page object: " + concreteClass.getName(), e);
         }
+        if (page == null) {
+            throw noImplementation(pageInterface);
+        }
+        pageCache.set(index, page);
+        return page;
+    }
+
+    private IllegalArgumentException noImplementation(Class<?> pageInterface) {
+        logger.error("No concrete implementation found for interface {} on platform {}", pageInterface.getName(), platform);
+        return new IllegalArgumentException(
+                "No concrete implementation found for interface " + pageInterface.getName() + " on platform " + platform
+        );
     }
 }
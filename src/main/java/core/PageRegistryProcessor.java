@@ -0,0 +1,203 @@
+package core;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor generating {@code core.PageRegistry} from the {@link PageImpl} registrations:
+ * an index per page contract and, per platform, a switch on that index calling the page constructor directly.
+ * Invalid or incomplete registrations are reported as compile errors.
+ *
+ * Compiled ahead of the rest of the sources by the "compile-page-processor" execution in pom.xml.
+ */
+@SupportedAnnotationTypes("core.PageImpl")
+public class PageRegistryProcessor extends AbstractProcessor {
+
+    private static final String REGISTRY_PACKAGE = "core";
+    private static final String REGISTRY_NAME = "PageRegistry";
+    private static final String DRIVER_TYPE = "io.appium.java_client.AppiumDriver";
+
+    private boolean generated;
+
+    private record Registration(String platform, String contract, String implementation, Element element) {
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (generated || roundEnv.processingOver()) {
+            return false;
+        }
+        generated = true;
+
+        List<Registration> registrations = new ArrayList<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(PageImpl.class)) {
+            Registration registration = read(element);
+            if (registration != null) {
+                registrations.add(registration);
+            }
+        }
+
+        // contract -> (platform -> implementation), sorted so the generated source is stable
+        Map<String, Map<String, Registration>> byContract = new TreeMap<>();
+        Set<String> platforms = new TreeSet<>();
+        boolean valid = true;
+        for (Registration registration : registrations) {
+            platforms.add(registration.platform());
+            Registration previous = byContract.computeIfAbsent(registration.contract(), c -> new TreeMap<>())
+                    .putIfAbsent(registration.platform(), registration);
+            if (previous != null) {
+                error(registration.element(), registration.contract() + " already has a " + registration.platform()
+                        + " implementation: " + previous.implementation());
+                valid = false;
+            }
+        }
+        for (Map.Entry<String, Map<String, Registration>> contract : byContract.entrySet()) {
+            for (String platform : platforms) {
+                if (!contract.getValue().containsKey(platform)) {
+                    Registration existing = contract.getValue().values().iterator().next();
+                    error(existing.element(), "Page contract " + contract.getKey() + " has no " + platform
+                            + " implementation (no class annotated with @PageImpl(platform = Platform." + platform
+                            + ", contract = " + contract.getKey() + ".class))");
+                    valid = false;
+                }
+            }
+        }
+
+        if (valid && registrations.size() == roundEnv.getElementsAnnotatedWith(PageImpl.class).size()) {
+            write(new ArrayList<>(byContract.keySet()), platforms, byContract);
+        }
+        return true;
+    }
+
+    private Registration read(Element element) {
+        if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)
+                || !element.getModifiers().contains(Modifier.PUBLIC)) {
+            error(element, "@PageImpl must be placed on a public, non-abstract class");
+            return null;
+        }
+        TypeElement type = (TypeElement) element;
+        String platform = null;
+        TypeMirror contract = null;
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(PageImpl.class.getName())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror.getElementValues().entrySet()) {
+                String name = value.getKey().getSimpleName().toString();
+                if (name.equals("platform")) {
+                    platform = ((VariableElement) value.getValue().getValue()).getSimpleName().toString();
+                } else if (name.equals("contract")) {
+                    contract = (TypeMirror) value.getValue().getValue();
+                }
+            }
+        }
+        if (platform == null || contract == null) {
+            return null; // malformed annotation, already reported by javac
+        }
+
+        Types types = processingEnv.getTypeUtils();
+        if (!types.isAssignable(types.erasure(type.asType()), types.erasure(contract))) {
+            error(element, type.getSimpleName() + " does not implement its contract " + contract);
+            return null;
+        }
+        boolean hasDriverConstructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                .anyMatch(constructor -> constructor.getModifiers().contains(Modifier.PUBLIC)
+                        && constructor.getParameters().size() == 1
+                        && types.erasure(constructor.getParameters().get(0).asType()).toString().equals(DRIVER_TYPE));
+        if (!hasDriverConstructor) {
+            error(element, type.getSimpleName() + " needs a public constructor accepting " + DRIVER_TYPE);
+            return null;
+        }
+        return new Registration(platform, types.erasure(contract).toString(), type.getQualifiedName().toString(), element);
+    }
+
+    private void write(List<String> contracts, Set<String> platforms, Map<String, Map<String, Registration>> byContract) {
+        StringBuilder src = new StringBuilder();
+        src.append("package ").append(REGISTRY_PACKAGE).append(";\n\n");
+        src.append("import io.appium.java_client.AppiumDriver;\n");
+        src.append("import org.openqa.selenium.Platform;\n\n");
+        src.append("import javax.annotation.processing.Generated;\n");
+        src.append("import java.util.List;\n\n");
+        src.append("/**\n * Page registry generated from the @PageImpl registrations. Do not edit.\n */\n");
+        src.append("@Generated(\"").append(PageRegistryProcessor.class.getName()).append("\")\n");
+        src.append("public final class ").append(REGISTRY_NAME).append(" {\n\n");
+
+        src.append("    /**\n     * Page contracts, in index order.\n     */\n");
+        src.append("    public static final List<Class<?>> CONTRACTS = List.of(");
+        for (int i = 0; i < contracts.size(); i++) {
+            src.append(i == 0 ? "\n" : ",\n").append("            ").append(contracts.get(i)).append(".class");
+        }
+        src.append(");\n\n");
+        src.append("    private ").append(REGISTRY_NAME).append("() {\n    }\n\n");
+
+        src.append("    /**\n     * Returns the index of the page contract, or -1 if no page implements it.\n     */\n");
+        src.append("    public static int indexOf(Class<?> contract) {\n");
+        for (int i = 0; i < contracts.size(); i++) {
+            src.append("        if (contract == ").append(contracts.get(i)).append(".class) {\n")
+                    .append("            return ").append(i).append(";\n        }\n");
+        }
+        src.append("        return -1;\n    }\n\n");
+
+        src.append("    /**\n     * Returns the page class implementing the contract on the platform, or null if there is none.\n     */\n");
+        appendSwitch(src, "Class<?> implementation(Platform platform, int contract)", contracts, platforms, byContract, "%s.class");
+        src.append("\n    /**\n     * Creates the page implementing the contract on the platform, or returns null if there is none.\n     */\n");
+        appendSwitch(src, "Object create(Platform platform, int contract, AppiumDriver driver)", contracts, platforms, byContract, "new %s(driver)");
+        src.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(REGISTRY_PACKAGE + "." + REGISTRY_NAME).openWriter()) {
+            writer.write(src.toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + REGISTRY_NAME + ": " + e.getMessage());
+        }
+    }
+
+    private static void appendSwitch(StringBuilder src, String signature, List<String> contracts, Set<String> platforms,
+                                     Map<String, Map<String, Registration>> byContract, String expression) {
+        src.append("    public static ").append(signature).append(" {\n");
+        src.append("        switch (platform) {\n");
+        for (String platform : platforms) {
+            src.append("            case ").append(platform).append(":\n");
+            src.append("                switch (contract) {\n");
+            for (int i = 0; i < contracts.size(); i++) {
+                Registration registration = byContract.get(contracts.get(i)).get(platform);
+                src.append("                    case ").append(i).append(":\n")
+                        .append("                        return ").append(String.format(expression, registration.implementation())).append(";\n");
+            }
+            src.append("                    default:\n                        return null;\n                }\n");
+        }
+        src.append("            default:\n                return null;\n        }\n    }\n");
+    }
+
+    private void error(Element element, String message) {
+        Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,337 @@
+package core;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.Rectangle;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, in-memory copy of the screen's view hierarchy taken from a single {@code getPageSource()} call.
+ * Read-only checks (is an element there, what is its text or attribute) are evaluated locally against
+ * the snapshot instead of costing a server round trip each.
+ *
+ * The hierarchy is kept as a compact flat node list; native strategies (accessibility id, id, class name,
+ * simple UiSelector / class chain / predicate expressions) are matched directly on it, and XPath is
+ * evaluated against a DOM that is only built on the first XPath query.
+ * Locators the snapshot cannot evaluate raise {@link UnsupportedOperationException}, so callers can
+ * fall back to a live query.
+ */
+public final class PageSnapshot {
+
+    private static final Pattern UI_SELECTOR_CALL = Pattern.compile("\\.(className|description|text|resourceId)\\(\"((?:[^\"\\\\]|\\\\.)*)\"\\)");
+    private static final Pattern UI_SELECTOR = Pattern.compile("^new UiSelector\\(\\)(\\.(className|description|text|resourceId)\\(\"((?:[^\"\\\\]|\\\\.)*)\"\\))+;?$");
+    private static final Pattern CLASS_CHAIN_STEP = Pattern.compile("^\\*\\*/([\\w.*]+)\\[`(\\w+) == \"((?:[^\"\\\\]|\\\\.)*)\"`]((?:/[\\w.]+)*)$");
+    private static final Pattern ANDROID_BOUNDS = Pattern.compile("^\\[(-?\\d+),(-?\\d+)]\\[(-?\\d+),(-?\\d+)]$");
+    private static final Pattern PREDICATE_TERM = Pattern.compile("^\\s*(\\w+)\\s*==\\s*(?:\"([^\"]*)\"|'([^']*)')\\s*$");
+
+    private final String source;
+    private final Platform platform;
+    private final List<Node> nodes;
+    private final long createdAtNanos = System.nanoTime();
+    private volatile Document document;
+
+    /**
+     * A single element of the snapshot.
+     * @param tag The element type (Android class name or XCUIElementType).
+     * @param parent Index of the parent node, or -1 for the root.
+     * @param attributes The element's attributes as reported by the server.
+     */
+    public record Node(String tag, int parent, Map<String, String> attributes) {
+
+        public String attribute(String name) {
+            return attributes.get(name);
+        }
+
+        /**
+         * Returns the visible text, following the same rules as the drivers' getText.
+         */
+        public String text() {
+            String text = attributes.get("text");
+            if (text == null) {
+                text = attributes.get("value");
+                if (text == null || text.isEmpty()) {
+                    text = attributes.getOrDefault("label", "");
+                }
+            }
+            return text;
+        }
+
+        /**
+         * Returns the element's rectangle in screen coordinates, or null if the source does not carry it.
+         * Android reports "bounds" as [x1,y1][x2,y2], iOS reports x, y, width and height.
+         */
+        public Rectangle bounds() {
+            String bounds = attributes.get("bounds");
+            if (bounds != null) {
+                Matcher matcher = ANDROID_BOUNDS.matcher(bounds);
+                if (!matcher.matches()) {
+                    return null;
+                }
+                int x1 = Integer.parseInt(matcher.group(1));
+                int y1 = Integer.parseInt(matcher.group(2));
+                return new Rectangle(x1, y1, Integer.parseInt(matcher.group(4)) - y1, Integer.parseInt(matcher.group(3)) - x1);
+            }
+            try {
+                return new Rectangle(Integer.parseInt(attributes.get("x")), Integer.parseInt(attributes.get("y")),
+                        Integer.parseInt(attributes.get("height")), Integer.parseInt(attributes.get("width")));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        public boolean isDisplayed() {
+            String displayed = attributes.containsKey("displayed") ? attributes.get("displayed") : attributes.get("visible");
+            return displayed == null || Boolean.parseBoolean(displayed);
+        }
+    }
+
+    private PageSnapshot(String source, Platform platform, List<Node> nodes) {
+        this.source = source;
+        this.platform = platform;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Parses a page source into a snapshot.
+     * @param source The XML returned by {@code driver.getPageSource()}.
+     * @param platform The platform the source comes from (ANDROID or IOS).
+     */
+    public static PageSnapshot parse(String source, Platform platform) {
+        List<Node> nodes = new ArrayList<>();
+        try {
+            SAXParserFactory.newInstance().newSAXParser().parse(new InputSource(new StringReader(source)), new DefaultHandler() {
+                private final List<Integer> stack = new ArrayList<>();
+
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    Map<String, String> values = new HashMap<>(attributes.getLength() * 2);
+                    for (int i = 0; i < attributes.getLength(); i++) {
+                        values.put(attributes.getQName(i), attributes.getValue(i));
+                    }
+                    int parent = stack.isEmpty() ? -1 : stack.get(stack.size() - 1);
+                    nodes.add(new Node(qName, parent, Collections.unmodifiableMap(values)));
+                    stack.add(nodes.size() - 1);
+                }
+
+                @Override
+                public void endElement(String uri, String localName, String qName) {
+                    stack.remove(stack.size() - 1);
+                }
+            });
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Failed to parse page source into a snapshot", e);
+        }
+        return new PageSnapshot(source, platform, Collections.unmodifiableList(nodes));
+    }
+
+    public long ageMillis() {
+        return (System.nanoTime() - createdAtNanos) / 1_000_000;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Returns a hash of the screen structure (element types and ids, not texts or positions),
+     * so typing into a field keeps the fingerprint while moving to another screen changes it.
+     */
+    public int fingerprint() {
+        int hash = 1;
+        for (Node node : nodes) {
+            hash = 31 * hash + node.tag().hashCode();
+            hash = 31 * hash + Objects.hashCode(node.attribute("resource-id"));
+            hash = 31 * hash + Objects.hashCode(node.attribute(platform == Platform.IOS ? "name" : "content-desc"));
+        }
+        return hash;
+    }
+
+    /**
+     * Returns all nodes matching the locator, in document order.
+     * @throws UnsupportedOperationException if the locator cannot be evaluated offline.
+     */
+    public List<Node> findAll(By locator) {
+        if (locator instanceof CompiledLocator compiled) {
+            try {
+                return findAll(compiled.getOptimized());
+            } catch (UnsupportedOperationException e) {
+                return findAll(compiled.getFallback());
+            }
+        }
+        if (!(locator instanceof By.Remotable remotable)) {
+            throw new UnsupportedOperationException("Locator cannot be evaluated on a snapshot: " + locator);
+        }
+        By.Remotable.Parameters parameters = remotable.getRemoteParameters();
+        String value = String.valueOf(parameters.value());
+        return switch (parameters.using()) {
+            case "xpath" -> byXPath(value);
+            case "accessibility id" -> scan(n -> value.equals(n.attribute(platform == Platform.IOS ? "name" : "content-desc")));
+            case "id" -> scan(n -> value.equals(n.attribute(platform == Platform.IOS ? "name" : "resource-id")));
+            case "class name" -> scan(n -> n.tag().equals(value));
+            case "css selector" -> {
+                if (!value.matches("^#[\\w-]+$")) {
+                    throw new UnsupportedOperationException("Only id CSS selectors are supported on a snapshot: " + value);
+                }
+                String id = value.substring(1);
+                yield scan(n -> id.equals(n.attribute(platform == Platform.IOS ? "name" : "resource-id")));
+            }
+            case "-android uiautomator" -> scan(uiSelector(value));
+            case "-ios class chain" -> byClassChain(value);
+            case "-ios predicate string" -> scan(predicate(value));
+            default -> throw new UnsupportedOperationException("Strategy not supported on a snapshot: " + parameters.using());
+        };
+    }
+
+    /**
+     * Returns the first node matching the locator.
+     */
+    public Optional<Node> find(By locator) {
+        List<Node> found = findAll(locator);
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * Returns true if a displayed node matches the locator.
+     */
+    public boolean isDisplayed(By locator) {
+        return find(locator).map(Node::isDisplayed).orElse(false);
+    }
+
+    /**
+     * Returns the text of the first node matching the locator, or null if there is none.
+     */
+    public String text(By locator) {
+        return find(locator).map(Node::text).orElse(null);
+    }
+
+    /**
+     * Returns an attribute of the first node matching the locator, or null if there is none.
+     */
+    public String attribute(By locator, String name) {
+        return find(locator).map(node -> node.attribute(name)).orElse(null);
+    }
+
+    private List<Node> scan(Predicate<Node> predicate) {
+        List<Node> result = new ArrayList<>();
+        for (Node node : nodes) {
+            if (predicate.test(node)) {
+                result.add(node);
+            }
+        }
+        return result;
+    }
+
+    private List<Node> byXPath(String expression) {
+        try {
+            Document dom = document;
+            if (dom == null) {
+                dom = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(source)));
+                document = dom;
+            }
+            // DOM elements and snapshot nodes are both in document order, so indexes line up
+            NodeList all = dom.getElementsByTagName("*");
+            Map<Element, Integer> indexes = new IdentityHashMap<>();
+            for (int i = 0; i < all.getLength(); i++) {
+                indexes.put((Element) all.item(i), i);
+            }
+            NodeList matches;
+            synchronized (this) {
+                matches = (NodeList) XPathFactory.newInstance().newXPath().evaluate(expression, dom, XPathConstants.NODESET);
+            }
+            List<Node> result = new ArrayList<>();
+            for (int i = 0; i < matches.getLength(); i++) {
+                Integer index = indexes.get(matches.item(i));
+                if (index != null) {
+                    result.add(nodes.get(index));
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("XPath could not be evaluated on the snapshot: " + expression, e);
+        }
+    }
+
+    private List<Node> byClassChain(String chain) {
+        Matcher matcher = CLASS_CHAIN_STEP.matcher(chain);
+        if (!matcher.matches()) {
+            throw new UnsupportedOperationException("Class chain not supported on a snapshot: " + chain);
+        }
+        String type = matcher.group(1);
+        String attribute = matcher.group(2);
+        String expected = unescape(matcher.group(3));
+        List<Node> current = scan(n -> (type.equals("*") || n.tag().equals(type)) && expected.equals(n.attribute(attribute)));
+        for (String childType : matcher.group(4).split("/")) {
+            if (childType.isEmpty()) {
+                continue;
+            }
+            List<Node> children = new ArrayList<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                Node node = nodes.get(i);
+                if (node.parent() >= 0 && node.tag().equals(childType) && current.contains(nodes.get(node.parent()))) {
+                    children.add(node);
+                }
+            }
+            current = children;
+        }
+        return current;
+    }
+
+    private static Predicate<Node> uiSelector(String selector) {
+        if (!UI_SELECTOR.matcher(selector.trim()).matches()) {
+            throw new UnsupportedOperationException("UiSelector not supported on a snapshot: " + selector);
+        }
+        Predicate<Node> predicate = n -> true;
+        Matcher matcher = UI_SELECTOR_CALL.matcher(selector);
+        while (matcher.find()) {
+            String expected = unescape(matcher.group(2));
+            String attribute = switch (matcher.group(1)) {
+                case "className" -> "class";
+                case "description" -> "content-desc";
+                case "resourceId" -> "resource-id";
+                default -> "text";
+            };
+            predicate = predicate.and(n -> expected.equals(attribute.equals("class") ? n.tag() : n.attribute(attribute)));
+        }
+        return predicate;
+    }
+
+    private static Predicate<Node> predicate(String expression) {
+        Predicate<Node> predicate = n -> true;
+        for (String term : expression.split("(?i)\\s+AND\\s+")) {
+            Matcher matcher = PREDICATE_TERM.matcher(term);
+            if (!matcher.matches()) {
+                throw new UnsupportedOperationException("Predicate not supported on a snapshot: " + expression);
+            }
+            String attribute = matcher.group(1);
+            String expected = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+            predicate = predicate.and(n -> expected.equals(attribute.equals("type") ? n.tag() : n.attribute(attribute)));
+        }
+        return predicate;
+    }
+
+    private static String unescape(String value) {
+        return value.replace("\\\"", "\"").replace("\\\\", "\\");
+    }
+}
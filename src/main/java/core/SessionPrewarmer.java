@@ -0,0 +1,174 @@
+package core;
+
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.AppiumDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Platform;
+import utils.WaitEngine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds Appium sessions on a background executor so that their startup cost overlaps with
+ * running tests instead of blocking {@code BaseTest.setupDriver}. A warm session has its
+ * capabilities prepared, the session created and the app landed on its home screen.
+ *
+ * For every lease it records how much of the session startup was hidden behind other work
+ * and how much the test still had to wait for ("exposed").
+ *
+ * Enabled with the "driver.prewarm" system property (default true); the executor size is
+ * set with "driver.prewarm.threads" (default 2), read once at startup.
+ */
+public final class SessionPrewarmer {
+
+    private static final Logger logger = LogManager.getLogger(SessionPrewarmer.class);
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            MobileConfig.get().getInt("driver.prewarm.threads", 2), new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "session-prewarm-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private static final AtomicLong totalHiddenMillis = new AtomicLong();
+    private static final AtomicLong totalExposedMillis = new AtomicLong();
+
+    // Startup latency of the last lease on the current thread, read by BaseTest for per-test reporting
+    private static final ThreadLocal<StartupLatency> lastLatency = new ThreadLocal<>();
+
+    /**
+     * A created session together with how long its creation took.
+     */
+    public record WarmSession(AppiumDriver driver, long buildMillis) {
+    }
+
+    /**
+     * Session startup cost as seen by a single test.
+     * @param buildMillis Total time spent creating the session.
+     * @param exposedMillis Part of it the test actually waited for.
+     */
+    public record StartupLatency(long buildMillis, long exposedMillis) {
+
+        public long hiddenMillis() {
+            return Math.max(0, buildMillis - exposedMillis);
+        }
+
+        @Override
+        public String toString() {
+            return "startup=" + buildMillis + "ms hidden=" + hiddenMillis() + "ms exposed=" + exposedMillis + "ms";
+        }
+    }
+
+    private SessionPrewarmer() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static boolean isEnabled() {
+        return MobileConfig.get().getBoolean("driver.prewarm", true);
+    }
+
+    /**
+     * Starts building a session for the device in the background.
+     */
+    public static CompletableFuture<WarmSession> submit(Platform platform, Device device) {
+        logger.info("Pre-warming a session for {}", device);
+        return CompletableFuture.supplyAsync(() -> build(platform, device), executor);
+    }
+
+    /**
+     * Builds a session for the device on the calling thread. The whole startup is exposed to the caller.
+     */
+    public static CompletableFuture<WarmSession> buildNow(Platform platform, Device device) {
+        try {
+            return CompletableFuture.completedFuture(build(platform, device));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Waits for a (possibly still building) session and records the hidden/exposed startup latency.
+     * @param session The future returned by {@link #submit} or {@link #buildNow}.
+     * @param reused true if the session had already served a previous test, so no startup was paid for this lease.
+     * @return The ready driver.
+     */
+    public static AppiumDriver await(CompletableFuture<WarmSession> session, boolean reused) {
+        long waitStart = System.nanoTime();
+        WarmSession warm;
+        try {
+            warm = session.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+        long exposedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+
+        // A reused session already paid its startup for an earlier test
+        StartupLatency latency = reused
+                ? new StartupLatency(0, 0)
+                : new StartupLatency(warm.buildMillis(), Math.min(exposedMillis, warm.buildMillis()));
+        totalHiddenMillis.addAndGet(latency.hiddenMillis());
+        totalExposedMillis.addAndGet(latency.exposedMillis());
+        lastLatency.set(latency);
+        return warm.driver();
+    }
+
+    /**
+     * Returns the startup latency of the last driver leased on the current thread.
+     */
+    public static StartupLatency lastLatency() {
+        StartupLatency latency = lastLatency.get();
+        return latency != null ? latency : new StartupLatency(0, 0);
+    }
+
+    public static long totalHiddenMillis() {
+        return totalHiddenMillis.get();
+    }
+
+    public static long totalExposedMillis() {
+        return totalExposedMillis.get();
+    }
+
+    /**
+     * Returns a one-line summary of the hidden versus exposed startup latency.
+     */
+    public static String stats() {
+        return String.format("prewarm=%s hiddenStartup=%dms exposedStartup=%dms",
+                isEnabled(), totalHiddenMillis.get(), totalExposedMillis.get());
+    }
+
+    public static void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static WarmSession build(Platform platform, Device device) {
+        long start = System.nanoTime();
+        AppiumDriver driver = DriverFactory.initializeDriver(platform.name(), device);
+        landOnHomeScreen(driver, device);
+        return new WarmSession(driver, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Waits until the app shows its home screen, so the first
+     * command of the test does not pay for the app's own launch time.
+     */
+    private static void landOnHomeScreen(AppiumDriver driver, Device device) {
+        try {
+            new WaitEngine(driver).waitForPresence(AppiumBy.accessibilityId("Home-screen"));
+        } catch (Exception e) {
+            logger.warn("Home screen not detected after session start on {}: {}", device, e.getMessage());
+        }
+    }
+}
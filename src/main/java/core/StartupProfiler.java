@@ -0,0 +1,259 @@
+package core;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.serverevents.TimedEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Capabilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Breaks the startup of every session down into phases and compares them with earlier sessions on the
+ * same device. The server phases come from the event timeline Appium returns when a session is created with
+ * "eventTimings" (each phase ends at an event such as wdaSessionStarted and is named after it); "client" is
+ * what the startup took on this side beyond the server timeline (app fingerprint, network).
+ *
+ * The last "startup.profile.window" (default 10) durations of each phase are kept per device and {@link Launch}
+ * in .test-history/startup-profiles.properties, so sessions that install the app are only compared with each other,
+ * never with the much faster sessions that reuse the installed app. Once a phase has 3 of them, a duration above
+ * "startup.regression.factor" (default 1.5) times their median, and at least "startup.regression.min.millis"
+ * (default 2000) above it, is reported as a regression.
+ *
+ * Tests can build a profiler over any history file through the public constructor.
+ * Disable with -Dstartup.profile=false.
+ */
+public final class StartupProfiler {
+
+    private static final Logger logger = LogManager.getLogger(StartupProfiler.class);
+
+    public static final String DEFAULT_HISTORY_PATH = ".test-history/startup-profiles.properties";
+    public static final String TOTAL = "total";
+    public static final String CLIENT = "client";
+    private static final int MIN_SAMPLES = 3;
+
+    private static volatile StartupProfiler defaultProfiler;
+
+    private final Path historyFile;
+    private final int window;
+    private final double factor;
+    private final long minRegressionMillis;
+    private final Map<String, List<Long>> history;
+    private final List<Profile> profiles = new ArrayList<>();
+
+    /**
+     * How a session got the app under test, see {@link AppDeployment}.
+     */
+    public enum Launch {
+        /** The session installed the app. */
+        INSTALL,
+        /** The session launched the app already installed on the device. */
+        REUSE
+    }
+
+    /**
+     * Startup of one session: phase durations in order of occurrence, and the phases that regressed.
+     */
+    public record Profile(Device device, Launch launch, long totalMillis, Map<String, Long> phases, List<String> regressions) {
+
+        @Override
+        public String toString() {
+            return "Session startup on " + device + " (" + launch.name().toLowerCase(Locale.ROOT) + "): " + totalMillis + " ms "
+                    + phases.entrySet().stream().filter(e -> !e.getKey().equals(TOTAL))
+                    .map(e -> e.getKey() + "=" + e.getValue() + " ms")
+                    .collect(Collectors.joining(", ", "[", "]"));
+        }
+    }
+
+    /**
+     * Creates a profiler keeping its history in the given file.
+     * @param window How many past durations are kept per device and phase.
+     * @param factor How many times the median a duration must reach to be a regression.
+     * @param minRegressionMillis How far above the median a duration must be to be a regression.
+     */
+    public StartupProfiler(Path historyFile, int window, double factor, long minRegressionMillis) {
+        this.historyFile = historyFile;
+        this.window = window;
+        this.factor = factor;
+        this.minRegressionMillis = minRegressionMillis;
+        this.history = load(historyFile);
+    }
+
+    /**
+     * Returns the profiler shared by the whole JVM, configured from MobileConfig.
+     */
+    public static StartupProfiler getDefault() {
+        StartupProfiler profiler = defaultProfiler;
+        if (profiler == null) {
+            synchronized (StartupProfiler.class) {
+                profiler = defaultProfiler;
+                if (profiler == null) {
+                    MobileConfig config = MobileConfig.get();
+                    profiler = new StartupProfiler(Paths.get(config.getString("startup.profile.file", DEFAULT_HISTORY_PATH)),
+                            config.getInt("startup.profile.window", 10),
+                            config.getDouble("startup.regression.factor", 1.5),
+                            config.getLong("startup.regression.min.millis", 2000));
+                    defaultProfiler = profiler;
+                }
+            }
+        }
+        return profiler;
+    }
+
+    public static boolean isEnabled() {
+        return MobileConfig.get().getBoolean("startup.profile", true);
+    }
+
+    /**
+     * Profiles the startup of a new session, prints its phases and warns about regressions.
+     * @param launch Whether the session installed the app; each kind has its own baseline.
+     * @param clientMillis How long the startup took as measured by the caller, from first preparation
+     *                     to a usable driver.
+     */
+    public Profile record(Device device, AppiumDriver driver, Launch launch, long clientMillis) {
+        return record(device, eventsOf(driver), launch, clientMillis);
+    }
+
+    /**
+     * Profiles a startup from its server event timeline (event name to epoch-millisecond occurrences).
+     */
+    public synchronized Profile record(Device device, Map<String, List<Long>> events, Launch launch, long clientMillis) {
+        Map<String, Long> phases = phases(events, clientMillis);
+        List<String> regressions = new ArrayList<>();
+        String prefix = device.platform() + "." + device.id() + "." + launch.name().toLowerCase(Locale.ROOT) + ".";
+        phases.forEach((phase, millis) -> {
+            List<Long> samples = history.computeIfAbsent(prefix + phase, k -> new ArrayList<>());
+            if (samples.size() >= MIN_SAMPLES) {
+                long baseline = median(samples);
+                if (millis >= baseline * factor && millis - baseline >= minRegressionMillis) {
+                    regressions.add(phase);
+                    logger.warn("Startup regression on {}: {} took {} ms, baseline {} ms (median of the last {} {} sessions)",
+                            device, phase, millis, baseline, samples.size(), launch.name().toLowerCase(Locale.ROOT));
+                }
+            }
+            samples.add(millis);
+            if (samples.size() > window) {
+                samples.subList(0, samples.size() - window).clear();
+            }
+        });
+        Profile profile = new Profile(device, launch, phases.get(TOTAL), phases, List.copyOf(regressions));
+        profiles.add(profile);
+        save();
+        System.out.println(profile);
+        return profile;
+    }
+
+    /**
+     * Returns a one-line summary of the startups profiled in this run.
+     */
+    public synchronized String stats() {
+        long total = profiles.stream().mapToLong(Profile::totalMillis).sum();
+        long regressed = profiles.stream().filter(profile -> !profile.regressions().isEmpty()).count();
+        return String.format("Session startup: %d session(s) profiled, mean %.1f s, %d with regressions",
+                profiles.size(), profiles.isEmpty() ? 0.0 : total / 1000.0 / profiles.size(), regressed);
+    }
+
+    /**
+     * Splits the startup into "total", "client" and one phase per server event after the first one,
+     * each lasting from the previous event to that event.
+     */
+    private static Map<String, Long> phases(Map<String, List<Long>> events, long clientMillis) {
+        List<Map.Entry<Long, String>> timeline = new ArrayList<>();
+        events.forEach((name, occurrences) -> occurrences.forEach(at -> timeline.add(Map.entry(at, name))));
+        timeline.sort(Map.Entry.comparingByKey());
+
+        Map<String, Long> phases = new LinkedHashMap<>();
+        phases.put(TOTAL, clientMillis);
+        long serverMillis = timeline.isEmpty() ? 0 : timeline.get(timeline.size() - 1).getKey() - timeline.get(0).getKey();
+        // Server and client clocks may differ, so only server durations are compared with each other
+        phases.put(CLIENT, Math.max(0, clientMillis - serverMillis));
+        for (int i = 1; i < timeline.size(); i++) {
+            phases.merge(timeline.get(i).getValue(), timeline.get(i).getKey() - timeline.get(i - 1).getKey(), Long::sum);
+        }
+        return phases;
+    }
+
+    /**
+     * Reads the event timeline from the "events" capability of the session, or else from the events endpoint.
+     */
+    private static Map<String, List<Long>> eventsOf(AppiumDriver driver) {
+        Map<String, List<Long>> events = new TreeMap<>();
+        Capabilities capabilities = driver.getCapabilities();
+        Object raw = capabilities.getCapability("events");
+        if (raw == null) {
+            raw = capabilities.getCapability("appium:events");
+        }
+        if (raw instanceof Map<?, ?> map) {
+            map.forEach((name, occurrences) -> {
+                if (occurrences instanceof List<?> list) {
+                    List<Long> timestamps = list.stream().filter(Number.class::isInstance)
+                            .map(at -> ((Number) at).longValue()).toList();
+                    if (!timestamps.isEmpty()) {
+                        events.put(String.valueOf(name), timestamps);
+                    }
+                }
+            });
+        } else {
+            try {
+                for (TimedEvent event : driver.getEvents().getEvents()) {
+                    events.put(event.getName(), event.getOccurrences());
+                }
+            } catch (RuntimeException e) {
+                logger.warn("No startup events from the session: {}", e.getMessage());
+            }
+        }
+        return events;
+    }
+
+    private static long median(List<Long> samples) {
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static Map<String, List<Long>> load(Path file) {
+        Map<String, List<Long>> loaded = new TreeMap<>();
+        if (Files.isRegularFile(file)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+                properties.stringPropertyNames().forEach(key -> loaded.put(key, new ArrayList<>(
+                        Arrays.stream(properties.getProperty(key).split(",")).map(Long::parseLong).toList())));
+            } catch (IOException | NumberFormatException e) {
+                logger.warn("Ignoring unreadable startup profiles in {}: {}", file, e.getMessage());
+            }
+        }
+        return loaded;
+    }
+
+    private void save() {
+        Properties properties = new Properties();
+        history.forEach((key, samples) -> properties.setProperty(key,
+                samples.stream().map(String::valueOf).collect(Collectors.joining(","))));
+        try {
+            if (historyFile.getParent() != null) {
+                Files.createDirectories(historyFile.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(historyFile)) {
+                properties.store(out, "Last startup phase durations (ms) per platform, device, launch and phase");
+            }
+        } catch (IOException e) {
+            logger.warn("Could not save startup profiles to {}: {}", historyFile, e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package pages.android;
 
+import core.PageImpl;
+import io.appium.java_client.AppiumBy;
 import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.pagefactory.AndroidFindBy;
 import org.openqa.selenium.By;
+import org.openqa.selenium.Platform;
 import org.openqa.selenium.WebElement;
 
 import pages.common.BasePage;
@@ -11,17 +14,19 @@ import pages.common.BottomNavigationBase;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import static core.LocatorCompiler.compile;
+
 /**
  * Concrete Page Object Model for the Android Dashboard Screen.
  * Implements the DashboardPageBase contract using Android-specific locators.
  */
+@PageImpl(platform = Platform.ANDROID, contract = BottomNavigationBase.class)
 public class HomePage extends BasePage implements BottomNavigationBase {
 
     private static final Logger logger = LogManager.getLogger(HomePage.class);
 
     // --- SECTION 1: Bottom Navigation Bar Locators (Using Accessibility ID) ---
-    @AndroidFindBy(accessibility = "Home-screen")
-    private WebElement homeScreen;
+    private final By homeScreen = AppiumBy.accessibilityId("Home-screen");
 
     @AndroidFindBy(accessibility = "Home")
     private WebElement homeTab;
@@ -32,7 +37,7 @@ public class HomePage extends BasePage implements BottomNavigationBase {
 //    @AndroidFindBy(accessibility = "Login")
 //    private WebElement loginTab;
 
-    private final By loginTab = By.xpath("//android.view.View[@content-desc=\"Login\"]");
+    private final By loginTab = compile(By.xpath("//android.view.View[@content-desc=\"Login\"]"), Platform.ANDROID);
 
     @AndroidFindBy(accessibility = "Forms")
     private WebElement formsTab;
@@ -54,34 +59,34 @@ public class HomePage extends BasePage implements BottomNavigationBase {
 
     @Override
     public void goToHome() {
-        click(homeTab);
+        navigate(homeTab);
     }
 
     @Override
     public void goToWebview() {
-        click(webviewTab);
+        navigate(webviewTab);
     }
 
     @Override
     public void goToLogin() {
-        click(driver.findElement(loginTab));
+        navigate(find(loginTab));
 
     }
 
     @Override
     public void goToForms() {
-        click(formsTab);
+        navigate(formsTab);
 
     }
 
     @Override
     public void goToSwipe() {
-        click(swipeTab);
+        navigate(swipeTab);
     }
 
     @Override
     public void goToDrag() {
-        click(dragTab);
+        navigate(dragTab);
     }
 
     @Override
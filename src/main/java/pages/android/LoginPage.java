@@ -1,42 +1,47 @@
 package pages.android;
 
+import core.PageImpl;
 import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.pagefactory.AndroidFindBy;
 import org.openqa.selenium.By;
+import org.openqa.selenium.Platform;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.FindBy;
 import pages.common.BasePage;
 import pages.common.LoginPageBase;
 
+import static core.LocatorCompiler.compile;
+
 /**
  * Concrete implementation of the LoginPageBase for the Android platform.
  * Inherits utility methods from BasePage and uses platform-specific locators.
  */
+@PageImpl(platform = Platform.ANDROID, contract = LoginPageBase.class)
 public class LoginPage extends BasePage implements LoginPageBase {
 
     // --- SECTION 1: Locators (The "WHERE" on the screen for Android) ---
 //    @FindBy(accessibility = "Login-screen")
 //    private WebElement loginScreen;
-    private final By loginScreen = By.xpath("//android.widget.ScrollView[@content-desc=\"Login-screen\"]");
+    private final By loginScreen = compile(By.xpath("//android.widget.ScrollView[@content-desc=\"Login-screen\"]"), Platform.ANDROID);
 //    @AndroidFindBy(xpath = "/android.widget.TextView[@text=\"Login / Sign up Form\"]")
 //    private WebElement loginSignUpForm;
-    private final By loginSignUpForm = By.xpath("/android.widget.TextView[@text=\"Login / Sign up Form\"]");
+    private final By loginSignUpForm = compile(By.xpath("/android.widget.TextView[@text=\"Login / Sign up Form\"]"), Platform.ANDROID);
 //    @AndroidFindBy(accessibility = "input-email")
 //    private WebElement emailField;
-    private final By emailField = By.xpath("//android.widget.EditText[@content-desc=\"input-email\"]");
+    private final By emailField = compile(By.xpath("//android.widget.EditText[@content-desc=\"input-email\"]"), Platform.ANDROID);
 //    @AndroidFindBy(accessibility = "input-password")
 //    private WebElement passwordField;
-    private final By passwordField = By.xpath("//android.widget.EditText[@content-desc=\"input-password\"]");
+    private final By passwordField = compile(By.xpath("//android.widget.EditText[@content-desc=\"input-password\"]"), Platform.ANDROID);
 //    @AndroidFindBy(accessibility = "button-LOGIN")
 //    private WebElement loginButton;
-    private final By loginButton = By.xpath("//android.view.ViewGroup[@content-desc=\"button-LOGIN\"]/android.view.ViewGroup");
+    private final By loginButton = compile(By.xpath("//android.view.ViewGroup[@content-desc=\"button-LOGIN\"]/android.view.ViewGroup"), Platform.ANDROID);
     // Locator for an error message after failed login
 //    @AndroidFindBy(xpath = "//android.widget.TextView[@text=\"Please enter a valid email address\"]")
 //    private WebElement loginInputErrorMessage;
-    private final By loginInputErrorMessage = By.xpath("//android.widget.TextView[@text=\"Please enter a valid email address\"]");
+    private final By loginInputErrorMessage = compile(By.xpath("//android.widget.TextView[@text=\"Please enter a valid email address\"]"), Platform.ANDROID);
 //    @AndroidFindBy(xpath = "//android.widget.TextView[@text=\"Please enter at least 8 characters\"]")
 //    private WebElement passwordInputErrorMessage;
-    private final By passwordInputErrorMessage = By.xpath("//android.widget.TextView[@text=\"Please enter at least 8 characters\"]");
+    private final By passwordInputErrorMessage = compile(By.xpath("//android.widget.TextView[@text=\"Please enter at least 8 characters\"]"), Platform.ANDROID);
 
 
     // --- SECTION 2: Constructor (Initialization) ---
@@ -48,30 +53,34 @@ public class LoginPage extends BasePage implements LoginPageBase {
     // --- SECTION 3: Business Logic (Implementing the Contract) ---
     @Override
     public void enterEmail(String email) {
-        type(driver.findElement(emailField), email);
+        type(find(emailField), email);
     }
 
     @Override
     public void enterPassword(String password) {
-        type(driver.findElement(passwordField), password);
+        type(find(passwordField), password);
     }
 
     @Override
     public void clickLoginButton() {
-        click(driver.findElement(loginButton));
+        click(find(loginButton));
+    }
+
+    @Override
+    public void logIn(String email, String password) {
+        batch().type(emailField, email)
+                .type(passwordField, password)
+                .click(loginButton)
+                .perform();
     }
 
     @Override
     public boolean isLoginScreenDisplayed() {
-        try {
-            return isDisplayed(driver.findElement(loginScreen));
-        } catch (Exception e) {
-            return false;
-        }
+        return isDisplayed(loginScreen);
     }
 
     @Override
     public String getLoginInputErrorMessageText() {
-        return getText(driver.findElement(loginInputErrorMessage));
+        return getText(loginInputErrorMessage);
     }
 }
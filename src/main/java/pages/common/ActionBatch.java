@@ -0,0 +1,248 @@
+package pages.common;
+
+import core.CommandMetrics;
+import core.MobileConfig;
+import core.PageSnapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.interactions.Interaction;
+import org.openqa.selenium.interactions.KeyInput;
+import org.openqa.selenium.interactions.Pause;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Queues a sequence of page interactions and sends them to the server as W3C Actions requests.
+ * A login flow that would otherwise cost a wait, find, clear and sendKeys/click per step becomes
+ * one page snapshot and one performActions call per typed field.
+ *
+ * Usage from a page object:
+ * <pre>
+ * batch().type(emailField, email).type(passwordField, password).click(loginButton).perform();
+ * </pre>
+ *
+ * Batched typing taps the field and types into it, without clearing existing text first.
+ * If a target cannot be located on the snapshot the batch falls back to executing the remaining steps one by one
+ * with the regular BasePage methods; either way a failure is reported as an {@link ActionBatchException}
+ * naming the step that failed.
+ */
+public final class ActionBatch {
+
+    private static final Logger log = LogManager.getLogger(ActionBatch.class);
+
+    private final BasePage page;
+    private final List<Step> steps = new ArrayList<>();
+    private int roundTrips;
+
+    private record Step(String kind, By target, String text) {
+        @Override
+        public String toString() {
+            return kind.equals("type") ? "type '" + text + "' into " + target : "click " + target;
+        }
+    }
+
+    ActionBatch(BasePage page) {
+        this.page = page;
+    }
+
+    /**
+     * Queues a tap on the element followed by typing the text into it.
+     */
+    public ActionBatch type(By target, String text) {
+        steps.add(new Step("type", target, text));
+        return this;
+    }
+
+    /**
+     * Queues a tap on the element.
+     */
+    public ActionBatch click(By target) {
+        steps.add(new Step("click", target, null));
+        return this;
+    }
+
+    /**
+     * Returns the number of server requests the last {@link #perform()} needed.
+     */
+    public int roundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * Sends the queued steps. On return, every step has been dispatched.
+     * Tapping a field raises the keyboard, which can move or cover the targets after it, so the steps are sent in
+     * segments that each end with a typing step, and every segment's targets are located on a fresh snapshot.
+     * @throws ActionBatchException naming the failing step.
+     */
+    public void perform() {
+        if (steps.isEmpty()) {
+            return;
+        }
+        long commands = CommandMetrics.commandsSent();
+        page.track("batch of " + steps.size() + " step(s)");
+        int requests = 0;
+        try {
+            for (int from = 0; from < steps.size(); ) {
+                int to = segmentEnd(from);
+                List<Rectangle> targets = resolveTargets(from, to);
+                if (targets == null) {
+                    performSequentially(from);
+                    return;
+                }
+                send(from, to, targets);
+                requests++;
+                from = to;
+            }
+        } finally {
+            roundTrips = (int) (CommandMetrics.commandsSent() - commands);
+        }
+        log.info("Performed {} step(s) in {} actions request(s) ({} round trip(s))", steps.size(), requests, roundTrips);
+    }
+
+    /**
+     * Returns the end (exclusive) of the segment starting at the given step: just after its first typing step.
+     */
+    private int segmentEnd(int from) {
+        for (int i = from; i < steps.size(); i++) {
+            if (steps.get(i).kind().equals("type")) {
+                return i + 1;
+            }
+        }
+        return steps.size();
+    }
+
+    private void send(int from, int to, List<Rectangle> targets) {
+        // Gives the app time to move focus to a tapped field before the keys arrive
+        Duration focusPause = Duration.ofMillis(MobileConfig.get().getLong("batch.focus.pause.millis", 100));
+        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+        KeyInput keyboard = new KeyInput("keyboard");
+        Sequence tap = new Sequence(finger, 0);
+        Sequence keys = new Sequence(keyboard, 0);
+
+        for (int i = from; i < to; i++) {
+            Step step = steps.get(i);
+            Rectangle rect = targets.get(i - from);
+            int x = rect.getX() + rect.getWidth() / 2;
+            int y = rect.getY() + rect.getHeight() / 2;
+
+            // Both sources advance tick by tick, so every action is paired with a pause on the other source
+            addTick(tap, finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), x, y), keys, keyboard);
+            addTick(tap, finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()), keys, keyboard);
+            addTick(tap, finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()), keys, keyboard);
+
+            if (step.kind().equals("type")) {
+                tap.addAction(new Pause(finger, focusPause));
+                keys.addAction(new Pause(keyboard, focusPause));
+                step.text().codePoints().forEach(codePoint -> {
+                    keys.addAction(keyboard.createKeyDown(codePoint));
+                    tap.addAction(new Pause(finger, Duration.ZERO));
+                    keys.addAction(keyboard.createKeyUp(codePoint));
+                    tap.addAction(new Pause(finger, Duration.ZERO));
+                });
+            }
+        }
+
+        page.invalidateSnapshot();
+        try {
+            page.driver.perform(List.of(tap, keys));
+        } catch (RuntimeException e) {
+            int failed = firstUnappliedStep(from, to);
+            throw new ActionBatchException(failed,
+                    failed >= 0 ? steps.get(failed).toString() : "dispatch of " + steps.subList(from, to), e);
+        }
+    }
+
+    /**
+     * Locates the targets of steps [from, to) on a page snapshot. Returns null if any of them is not on the snapshot.
+     */
+    private List<Rectangle> resolveTargets(int from, int to) {
+        try {
+            PageSnapshot snapshot = page.snapshot();
+            List<Rectangle> targets = new ArrayList<>();
+            for (Step step : steps.subList(from, to)) {
+                Optional<PageSnapshot.Node> node = snapshot.find(step.target());
+                Rectangle rect = node.filter(PageSnapshot.Node::isDisplayed).map(PageSnapshot.Node::bounds).orElse(null);
+                if (rect == null) {
+                    log.debug("Batch target not resolvable on the snapshot: {}", step);
+                    return null;
+                }
+                targets.add(rect);
+            }
+            return targets;
+        } catch (UnsupportedOperationException e) {
+            log.debug("Batch target cannot be evaluated on a snapshot: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * After a failed dispatch of steps [from, to), finds the first typing step whose text did not reach its field.
+     * Returns -1 if that cannot be determined.
+     */
+    private int firstUnappliedStep(int from, int to) {
+        try {
+            PageSnapshot after = page.snapshot();
+            for (int i = from; i < to; i++) {
+                Step step = steps.get(i);
+                if (step.kind().equals("type")) {
+                    String text = after.text(step.target());
+                    if (text == null || !text.contains(step.text())) {
+                        return i;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("Could not inspect the screen after a failed batch: {}", e.getMessage());
+        }
+        return -1;
+    }
+
+    private void performSequentially(int from) {
+        log.info("Batch targets not all on screen yet, executing {} step(s) one by one", steps.size() - from);
+        for (int i = from; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            try {
+                if (step.kind().equals("type")) {
+                    page.type(page.find(step.target()), step.text());
+                } else {
+                    page.click(page.find(step.target()));
+                }
+            } catch (RuntimeException e) {
+                throw new ActionBatchException(i, step.toString(), e);
+            }
+        }
+    }
+
+    private static void addTick(Sequence pointerSequence, Interaction pointerAction,
+                                Sequence keySequence, KeyInput keyboard) {
+        pointerSequence.addAction(pointerAction);
+        keySequence.addAction(new Pause(keyboard, Duration.ZERO));
+    }
+
+    /**
+     * Raised when a batch fails; carries the index and description of the failing step.
+     */
+    public static class ActionBatchException extends RuntimeException {
+
+        private final int stepIndex;
+
+        ActionBatchException(int stepIndex, String step, Throwable cause) {
+            super(stepIndex >= 0 ? "Batch step " + (stepIndex + 1) + " failed: " + step : "Batch failed: " + step, cause);
+            this.stepIndex = stepIndex;
+        }
+
+        /**
+         * Returns the zero-based index of the failing step, or -1 if it could not be determined.
+         */
+        public int getStepIndex() {
+            return stepIndex;
+        }
+    }
+}
@@ -1,43 +1,69 @@
 package pages.common;
 
+import core.CommandMetrics;
+import core.FailureClassifier;
+import core.MobileConfig;
+import core.PageSnapshot;
 import io.appium.java_client.AppiumDriver;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Platform;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.PageFactory;
 import utils.WaitHelper;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 /**
  * Base class for all Page Object Model (POM) classes.
- * Provides driver access, initializes PageFactory elements, and encapsulates common mobile interactions.
+ * Provides driver access, binds annotated elements, and encapsulates common mobile interactions.
+ *
+ * Read-only checks taking a By ({@link #isDisplayed(By)}, {@link #getText(By)}) are answered from a
+ * {@link PageSnapshot} of the screen, so several assertions on the same screen cost a single
+ * getPageSource call. The snapshot is shared by all pages of a driver and becomes stale after any
+ * interaction (click, type) or after "snapshot.ttl.millis" (default 2000 ms).
+ *
+ * Sessions have no implicit wait: live lookups go through {@link #find(By)}, which waits with the
+ * locator's learned timeout, and {@link #isAbsent(By)} checks expected-absent elements without waiting.
+ * Elements found with {@link #find(By)} are cached for the current screen (see {@link ElementCache}).
+ * Touch gestures are available through {@link #gestures()}.
  */
 public abstract class BasePage {
 
     private static final Logger log = LogManager.getLogger(BasePage.class);
+
+    // Latest snapshot per driver; weak keys so quit drivers are not retained
+    private static final Map<AppiumDriver, PageSnapshot> snapshots = Collections.synchronizedMap(new WeakHashMap<>());
+
     protected AppiumDriver driver;
     protected WaitHelper waitHelper;
+    protected final Platform platform;
 
     /**
-     * Constructor initializes the driver and PageFactory elements.
+     * Constructor initializes the driver and binds the annotated elements (see {@link ElementBinder}).
      * @param driver The AppiumDriver instance obtained from DriverFactory.
      */
     public BasePage(AppiumDriver driver) {
         this.driver = driver;
         this.waitHelper = new WaitHelper(driver);
-        // Initializes all @FindBy, @AndroidFindBy, @iOSXCUITFindBy elements defined in the subclass
-        PageFactory.initElements(driver, this);
+        this.platform = driver.getCapabilities().getPlatformName();
+        // Binds all @FindBy, @AndroidFindBy, @iOSXCUITFindBy elements defined in the subclass to lazy proxies
+        ElementBinder.bind(this, driver, platform);
     }
 
     /**
      * Clicks a web element after ensuring it is visible and clickable.
      */
     protected void click(WebElement element) {
+        invalidateSnapshot();
         try {
             waitHelper.waitForClickability(element).click();
             System.out.println("Clicked on element: ");
         } catch (Exception e) {
-            System.err.println("Failed to click  " + e.getMessage());
-            // Optional: add screenshot logic here for better debugging
+            // Artifacts are captured once, by the test teardown
+            System.err.println("Failed to click (" + FailureClassifier.classify(e) + "): " + e.getMessage());
             throw new RuntimeException("Element not clickable: ", e);
         }
     }
@@ -54,6 +80,7 @@ public abstract class BasePage {
      * Sends text to a web element after ensuring it is visible.
      */
     protected void type(WebElement element, String text) {
+        invalidateSnapshot();
         try {
             WebElement visibleElement = waitHelper.waitForVisibility(element);
             visibleElement.clear();
@@ -77,5 +104,139 @@ public abstract class BasePage {
         }
     }
 
-    // TODO: Add common gesture methods here (e.g., protected void swipeUp() { ... })
+    /**
+     * Returns true if an element matching the locator is displayed.
+     * Checked against the current snapshot first. A miss (or a locator the snapshot cannot evaluate) waits for
+     * the element live with the locator's learned timeout, so a screen that is still appearing is not reported
+     * as missing; use {@link #isAbsent(By)} for elements expected to be gone.
+     */
+    protected boolean isDisplayed(By locator) {
+        track(locator);
+        try {
+            if (snapshot().isDisplayed(locator)) {
+                return true;
+            }
+            invalidateSnapshot(); // the screen may still be changing, wait for it live
+        } catch (UnsupportedOperationException e) {
+            log.debug("Snapshot cannot evaluate {}, using a live query", locator);
+        } catch (Exception e) {
+            return false;
+        }
+        try {
+            return waitHelper.waitForVisibility(locator).isDisplayed();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if no element matching the locator is on screen. Does not wait: use it for elements
+     * that are expected to be gone, so the check does not cost a timeout.
+     */
+    protected boolean isAbsent(By locator) {
+        track(locator);
+        try {
+            if (hasSnapshot() && snapshot().find(locator).isPresent()) {
+                return false;
+            }
+        } catch (UnsupportedOperationException e) {
+            log.debug("Snapshot cannot evaluate {}, using a live query", locator);
+        }
+        return !waitHelper.isPresentNow(locator);
+    }
+
+    /**
+     * Waits for an element matching the locator to be present and returns it.
+     */
+    protected WebElement find(By locator) {
+        track(locator);
+        return ElementCache.of(driver).get(locator, waitHelper::waitForPresence);
+    }
+
+    /**
+     * Clicks an element that leads to another screen (e.g. a tab) and drops the element handles
+     * cached for the current screen.
+     */
+    protected void navigate(WebElement target) {
+        click(target);
+        ElementCache.of(driver).invalidate("navigation from " + getClass().getSimpleName());
+    }
+
+    /**
+     * Returns the text of the element matching the locator, read from the current snapshot
+     * when possible and from a live (waiting) lookup otherwise.
+     */
+    protected String getText(By locator) {
+        track(locator);
+        try {
+            String text = snapshot().text(locator);
+            if (text != null) {
+                return text;
+            }
+        } catch (UnsupportedOperationException e) {
+            log.debug("Snapshot cannot evaluate {}, using a live query", locator);
+        }
+        try {
+            String text = getText(find(locator));
+            invalidateSnapshot();
+            return text;
+        } catch (Exception e) {
+            System.err.println("Failed to get text from " + locator + ". Error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns a fresh snapshot of the screen, fetching the page source only if the current one is stale.
+     */
+    protected PageSnapshot snapshot() {
+        PageSnapshot current = snapshots.get(driver);
+        if (current == null || current.ageMillis() > snapshotTtlMillis()) {
+            current = PageSnapshot.parse(driver.getPageSource(), platform);
+            snapshots.put(driver, current);
+            ElementCache.of(driver).observe(current.fingerprint());
+            log.debug("Took a page snapshot with {} nodes", current.size());
+        }
+        return current;
+    }
+
+    /**
+     * Returns true if a snapshot that is not stale is available for this driver.
+     */
+    boolean hasSnapshot() {
+        PageSnapshot current = snapshots.get(driver);
+        return current != null && current.ageMillis() <= snapshotTtlMillis();
+    }
+
+    private static long snapshotTtlMillis() {
+        return MobileConfig.get().getLong("snapshot.ttl.millis", 2000);
+    }
+
+    /**
+     * Starts a batch of interactions that is sent to the server in as few requests as possible.
+     */
+    protected ActionBatch batch() {
+        return new ActionBatch(this);
+    }
+
+    /**
+     * Attributes the following driver commands of this thread to this page and locator in {@link CommandMetrics}.
+     */
+    protected void track(Object locator) {
+        CommandMetrics.setTarget(getClass().getSimpleName(), locator);
+    }
+
+    /**
+     * Marks the snapshot as stale. Called before any interaction that can change the screen.
+     */
+    protected void invalidateSnapshot() {
+        snapshots.remove(driver);
+    }
+
+    /**
+     * Returns the touch gestures (swipe, scroll, drag-and-drop, long-press, pinch) of this page, each sent in one request.
+     */
+    protected Gestures gestures() {
+        return new Gestures(this);
+    }
 }
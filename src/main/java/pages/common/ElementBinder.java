@@ -0,0 +1,196 @@
+package pages.common;
+
+import io.appium.java_client.pagefactory.AndroidFindAll;
+import io.appium.java_client.pagefactory.AndroidFindBy;
+import io.appium.java_client.pagefactory.AndroidFindBys;
+import io.appium.java_client.pagefactory.DefaultElementByBuilder;
+import io.appium.java_client.pagefactory.iOSXCUITFindAll;
+import io.appium.java_client.pagefactory.iOSXCUITFindBy;
+import io.appium.java_client.pagefactory.iOSXCUITFindBys;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Locatable;
+import org.openqa.selenium.support.FindAll;
+import org.openqa.selenium.support.FindBy;
+import org.openqa.selenium.support.FindBys;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static core.LocatorCompiler.compile;
+
+/**
+ * Replacement for PageFactory.initElements. Binds the WebElement and List&lt;WebElement&gt; fields of a page
+ * that carry @AndroidFindBy / @iOSXCUITFindBy / @FindBy annotations (and their Bys/All variants):
+ * <ul>
+ *     <li>the field locators of a page class are built once per JVM and cached per platform;</li>
+ *     <li>fields get lazy proxies: constructing a page sends nothing to the server;</li>
+ *     <li>an element proxy looks its element up on first use and keeps the handle, looking it up again
+ *     only after a StaleElementReferenceException. List proxies look the elements up on every use.</li>
+ * </ul>
+ * Fields without an annotation for the session's platform are left untouched.
+ */
+public final class ElementBinder {
+
+    private record Binding(Field field, By locator, boolean list) {
+    }
+
+    private static final ClassValue<Map<Platform, List<Binding>>> BINDINGS = new ClassValue<>() {
+        @Override
+        protected Map<Platform, List<Binding>> computeValue(Class<?> type) {
+            Map<Platform, List<Binding>> bindings = new EnumMap<>(Platform.class);
+            bindings.put(Platform.ANDROID, bindingsOf(type, Platform.ANDROID));
+            bindings.put(Platform.IOS, bindingsOf(type, Platform.IOS));
+            return bindings;
+        }
+    };
+
+    private ElementBinder() {
+    }
+
+    /**
+     * Sets lazy element proxies on the annotated fields of the page.
+     * @param page The page object whose fields are bound.
+     * @param context The driver (or parent element) the elements are looked up in.
+     * @param platform The platform whose annotations apply.
+     */
+    public static void bind(Object page, SearchContext context, Platform platform) {
+        List<Binding> bindings = BINDINGS.get(page.getClass()).getOrDefault(platform, List.of());
+        for (Binding binding : bindings) {
+            Object proxy = binding.list() ? lazyList(context, binding.locator()) : lazyElement(context, binding.locator());
+            try {
+                binding.field().set(page, proxy);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot bind field " + binding.field(), e);
+            }
+        }
+    }
+
+    private static List<Binding> bindingsOf(Class<?> type, Platform platform) {
+        List<Binding> bindings = new ArrayList<>();
+        String platformName = platform == Platform.IOS ? "iOS" : "Android";
+        String automationName = platform == Platform.IOS ? "XCUITest" : "UiAutomator2";
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                boolean list = isElementList(field);
+                if ((field.getType() != WebElement.class && !list) || Modifier.isStatic(field.getModifiers())
+                        || Modifier.isFinal(field.getModifiers()) || !isAnnotatedFor(field, platform)) {
+                    continue;
+                }
+                DefaultElementByBuilder builder = new DefaultElementByBuilder(platformName, automationName);
+                builder.setAnnotated(field);
+                field.setAccessible(true);
+                bindings.add(new Binding(field, compile(builder.buildBy(), platform), list));
+            }
+        }
+        return Collections.unmodifiableList(bindings);
+    }
+
+    private static boolean isElementList(Field field) {
+        return field.getType() == List.class
+                && field.getGenericType() instanceof ParameterizedType type
+                && type.getActualTypeArguments()[0] == WebElement.class;
+    }
+
+    private static boolean isAnnotatedFor(Field field, Platform platform) {
+        List<Class<? extends Annotation>> annotations = platform == Platform.IOS
+                ? List.of(iOSXCUITFindBy.class, iOSXCUITFindBys.class, iOSXCUITFindAll.class, FindBy.class, FindBys.class, FindAll.class)
+                : List.of(AndroidFindBy.class, AndroidFindBys.class, AndroidFindAll.class, FindBy.class, FindBys.class, FindAll.class);
+        return annotations.stream().anyMatch(field::isAnnotationPresent);
+    }
+
+    private static WebElement lazyElement(SearchContext context, By locator) {
+        return lazyElement(context, locator, null);
+    }
+
+    /**
+     * Returns a proxy for the element, starting from an already located handle (or null to locate on first use).
+     */
+    static WebElement lazyElement(SearchContext context, By locator, WebElement resolved) {
+        return (WebElement) Proxy.newProxyInstance(ElementBinder.class.getClassLoader(),
+                new Class<?>[]{WebElement.class, WrapsElement.class, Locatable.class},
+                new LazyElement(context, locator, resolved));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<WebElement> lazyList(SearchContext context, By locator) {
+        return (List<WebElement>) Proxy.newProxyInstance(ElementBinder.class.getClassLoader(),
+                new Class<?>[]{List.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> "Lazy element list (" + locator + ")";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> invoke(context.findElements(locator), method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Resolves its element on first use and caches the handle until it goes stale.
+     */
+    private static final class LazyElement implements InvocationHandler {
+
+        private final SearchContext context;
+        private final By locator;
+        private volatile WebElement resolved;
+
+        LazyElement(SearchContext context, By locator, WebElement resolved) {
+            this.context = context;
+            this.locator = locator;
+            this.resolved = resolved;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "toString":
+                    return "Lazy element (" + locator + ")";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "getWrappedElement":
+                    return element();
+                default:
+                    break;
+            }
+            try {
+                return ElementBinder.invoke(element(), method, args);
+            } catch (StaleElementReferenceException e) {
+                resolved = null;
+                return ElementBinder.invoke(element(), method, args);
+            }
+        }
+
+        private WebElement element() {
+            WebElement current = resolved;
+            if (current == null) {
+                current = context.findElement(locator);
+                resolved = current;
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package pages.common;
+
+import io.appium.java_client.AppiumDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Element handles located on the current screen of a driver, keyed by locator, so repeated
+ * interactions with the same element do not locate it again. The cache is scoped to one screen and
+ * is emptied when the screen changes:
+ * <ul>
+ *     <li>on navigation ({@link BasePage#navigate(WebElement)}, used by the goTo* methods);</li>
+ *     <li>when a new page snapshot shows a different screen structure (see PageSnapshot.fingerprint);</li>
+ *     <li>when the test ends and the session goes back to the pool.</li>
+ * </ul>
+ * Cached handles re-locate their element if it went stale.
+ */
+public final class ElementCache {
+
+    private static final Logger log = LogManager.getLogger(ElementCache.class);
+
+    // One cache per driver; weak keys so quit drivers are not retained
+    private static final Map<AppiumDriver, ElementCache> caches = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder invalidations = new LongAdder();
+
+    private final AppiumDriver driver;
+    private final Map<By, WebElement> elements = new ConcurrentHashMap<>();
+    private volatile Integer fingerprint;
+
+    private ElementCache(AppiumDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Returns the cache of the driver.
+     */
+    public static ElementCache of(AppiumDriver driver) {
+        return caches.computeIfAbsent(driver, ElementCache::new);
+    }
+
+    /**
+     * Drops the cache of the driver, e.g. when its session is handed to another test.
+     */
+    public static void discard(AppiumDriver driver) {
+        caches.remove(driver);
+    }
+
+    /**
+     * Returns the cached handle for the locator, or locates the element with the lookup and caches it.
+     */
+    WebElement get(By locator, Function<By, WebElement> lookup) {
+        WebElement cached = elements.get(locator);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        WebElement handle = ElementBinder.lazyElement(driver, locator, lookup.apply(locator));
+        elements.put(locator, handle);
+        return handle;
+    }
+
+    /**
+     * Empties the cache because the app moved to another screen.
+     */
+    void invalidate(String reason) {
+        if (!elements.isEmpty()) {
+            elements.clear();
+            invalidations.increment();
+            log.debug("Element cache invalidated: {}", reason);
+        }
+    }
+
+    /**
+     * Reports the fingerprint of a freshly taken snapshot; a different screen empties the cache.
+     */
+    void observe(int screenFingerprint) {
+        Integer previous = fingerprint;
+        fingerprint = screenFingerprint;
+        if (previous != null && previous != screenFingerprint) {
+            invalidate("screen fingerprint changed");
+        }
+    }
+
+    public static long hits() {
+        return hits.sum();
+    }
+
+    public static long misses() {
+        return misses.sum();
+    }
+
+    public static String stats() {
+        return String.format("Element cache: %d hit(s) (findElement round trips saved), %d miss(es), %d invalidation(s)",
+                hits.sum(), misses.sum(), invalidations.sum());
+    }
+}
@@ -0,0 +1,364 @@
+package pages.common;
+
+import core.CommandMetrics;
+import core.CompiledLocator;
+import core.MobileConfig;
+import core.PageSnapshot;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.AppiumDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Pause;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Touch gestures of a page: swipe, scroll, drag-and-drop, long-press and two-finger pinch / zoom.
+ * Every gesture is computed up front as W3C pointer {@link Sequence}s (one per finger) and sent in a single
+ * performActions request. Target rectangles come from a fresh page snapshot when there is one (or when a gesture
+ * has several targets), otherwise from a live lookup; the screen size is asked once per session.
+ *
+ * {@link #scrollIntoView(By)} lets the platform scroll: a UiScrollable lookup on Android, "mobile: scroll"
+ * on iOS. Only locators that cannot be expressed that way fall back to scrolling and checking from the client.
+ *
+ * The round trips of each gesture (every command the thread sent, lookups included) are counted,
+ * see {@link #stats()}. Durations are configurable: "gesture.swipe.millis" (default 300),
+ * "gesture.scroll.millis" (default 600), "gesture.drag.hold.millis" (default 300) and
+ * "gesture.scroll.max.swipes" (default 10) for the client-side fallback.
+ */
+public final class Gestures {
+
+    private static final Logger log = LogManager.getLogger(Gestures.class);
+
+    // Screen size per session; weak keys so quit drivers are not retained
+    private static final Map<AppiumDriver, Dimension> viewports = Collections.synchronizedMap(new WeakHashMap<>());
+    // Per gesture: count, round trips, total micros
+    private static final Map<String, long[]> totals = new ConcurrentHashMap<>();
+
+    public enum Direction {
+        UP, DOWN, LEFT, RIGHT;
+
+        Direction opposite() {
+            return switch (this) {
+                case UP -> DOWN;
+                case DOWN -> UP;
+                case LEFT -> RIGHT;
+                case RIGHT -> LEFT;
+            };
+        }
+    }
+
+    private final BasePage page;
+
+    Gestures(BasePage page) {
+        this.page = page;
+    }
+
+    /**
+     * Swipes across the middle of the screen; the finger moves in the given direction.
+     */
+    public void swipe(Direction direction) {
+        long commands = CommandMetrics.commandsSent();
+        long start = System.nanoTime();
+        page.track("swipe " + direction);
+        send(stroke(finger(1), along(screen(), direction, 0.2), swipeDuration()));
+        record("swipe", commands, start);
+    }
+
+    /**
+     * Swipes inside an element (e.g. a carousel); the finger moves in the given direction.
+     */
+    public void swipe(By area, Direction direction) {
+        long commands = CommandMetrics.commandsSent();
+        long start = System.nanoTime();
+        page.track(area);
+        send(stroke(finger(1), along(rectsOf(area).get(0), direction, 0.2), swipeDuration()));
+        record("swipe", commands, start);
+    }
+
+    /**
+     * Scrolls the screen to reveal the content lying in the given direction (the finger moves the other way).
+     * Slower and shorter than a swipe, so the content does not fling.
+     */
+    public void scroll(Direction direction) {
+        long commands = CommandMetrics.commandsSent();
+        long start = System.nanoTime();
+        page.track("scroll " + direction);
+        send(stroke(finger(1), along(screen(), direction.opposite(), 0.3), scrollDuration()));
+        record("scroll", commands, start);
+    }
+
+    /**
+     * Presses the source element, holds it so the app picks it up, and drops it on the center of the target.
+     */
+    public void dragAndDrop(By source, By target) {
+        long commands = CommandMetrics.commandsSent();
+        long start = System.nanoTime();
+        page.track(source + " -> " + target);
+        List<Rectangle> rects = rectsOf(source, target);
+        PointerInput finger = finger(1);
+        Sequence drag = new Sequence(finger, 0);
+        moveTo(drag, finger, center(rects.get(0)), Duration.ZERO);
+        drag.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+        drag.addAction(new Pause(finger, Duration.ofMillis(MobileConfig.get().getLong("gesture.drag.hold.millis", 300))));
+        moveTo(drag, finger, center(rects.get(1)), scrollDuration());
+        drag.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        send(drag);
+        record("dragAndDrop", commands, start);
+    }
+
+    /**
+     * Presses the center of the element for the given time.
+     */
+    public void longPress(By target, Duration hold) {
+        long commands = CommandMetrics.commandsSent();
+        long start = System.nanoTime();
+        page.track(target);
+        PointerInput finger = finger(1);
+        Sequence press = new Sequence(finger, 0);
+        moveTo(press, finger, center(rectsOf(target).get(0)), Duration.ZERO);
+        press.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+        press.addAction(new Pause(finger, hold));
+        press.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        send(press);
+        record("longPress", commands, start);
+    }
+
+    /**
+     * Moves two fingers from the edges of the element towards its center.
+     */
+    public void pinch(By area) {
+        twoFingers("pinch", area, true);
+    }
+
+    /**
+     * Moves two fingers from the center of the element towards its edges.
+     */
+    public void zoom(By area) {
+        twoFingers("zoom", area, false);
+    }
+
+    /**
+     * Scrolls until an element matching the locator is on screen and returns it, letting the platform do the
+     * scrolling where the locator allows it.
+     * @throws NoSuchElementException if the element is not found.
+     */
+    public WebElement scrollIntoView(By locator) {
+        long commands = CommandMetrics.commandsSent();
+        long start = System.nanoTime();
+        page.track(locator);
+        page.invalidateSnapshot();
+        By target = locator instanceof CompiledLocator compiled ? compiled.getOptimized() : locator;
+        WebElement element;
+        String selector = page.platform == Platform.ANDROID ? uiSelector(target) : null;
+        Map<String, Object> iosArguments = page.platform == Platform.IOS ? iosScrollArguments(target) : null;
+        if (selector != null) {
+            // UiAutomator scrolls on the device until the element is there, in one findElement
+            element = page.driver.findElement(AppiumBy.androidUIAutomator(
+                    "new UiScrollable(new UiSelector().scrollable(true)).scrollIntoView(" + selector + ")"));
+        } else if (iosArguments != null) {
+            page.driver.executeScript("mobile: scroll", iosArguments);
+            element = page.find(locator);
+        } else {
+            log.debug("No native scroll for {}, scrolling from the client", locator);
+            element = scrollUntilPresent(locator);
+        }
+        record("scrollIntoView", commands, start);
+        return element;
+    }
+
+    /**
+     * Returns a summary of the gestures performed so far with their round trips, one line per gesture.
+     */
+    public static String stats() {
+        StringBuilder out = new StringBuilder("Gestures: " + totals.values().stream().mapToLong(t -> t[0]).sum() + " performed");
+        totals.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> {
+            long[] t;
+            synchronized (e.getValue()) {
+                t = e.getValue().clone();
+            }
+            out.append(String.format("%n  %-14s count=%d round trips=%d (%.1f per gesture) avg=%d ms", e.getKey(),
+                    t[0], t[1], (double) t[1] / t[0], TimeUnit.MICROSECONDS.toMillis(t[2] / t[0])));
+        });
+        return out.toString();
+    }
+
+    private void twoFingers(String gesture, By area, boolean inwards) {
+        long commands = CommandMetrics.commandsSent();
+        long start = System.nanoTime();
+        page.track(area);
+        Rectangle rect = rectsOf(area).get(0);
+        Point center = center(rect);
+        int reach = Math.min(rect.getWidth(), rect.getHeight()) * 2 / 5;
+        Point[] edges = {new Point(center.x - reach, center.y - reach), new Point(center.x + reach, center.y + reach)};
+        Duration duration = swipeDuration();
+        Sequence[] fingers = new Sequence[2];
+        for (int i = 0; i < 2; i++) {
+            Point inner = new Point(center.x + (i == 0 ? -1 : 1) * reach / 8, center.y + (i == 0 ? -1 : 1) * reach / 8);
+            fingers[i] = stroke(finger(i + 1), inwards ? new Point[]{edges[i], inner} : new Point[]{inner, edges[i]}, duration);
+        }
+        send(fingers);
+        record(gesture, commands, start);
+    }
+
+    private WebElement scrollUntilPresent(By locator) {
+        int maxScrolls = MobileConfig.get().getInt("gesture.scroll.max.swipes", 10);
+        for (int scrolls = 0; ; scrolls++) {
+            if (page.waitHelper.isPresentNow(locator)) {
+                return page.find(locator);
+            }
+            if (scrolls == maxScrolls) {
+                throw new NoSuchElementException("Element " + locator + " not found after " + maxScrolls + " scrolls");
+            }
+            send(stroke(finger(1), along(screen(), Direction.UP, 0.3), scrollDuration()));
+        }
+    }
+
+    private void send(Sequence... sequences) {
+        page.invalidateSnapshot();
+        page.driver.perform(List.of(sequences));
+    }
+
+    private static void record(String gesture, long commandsBefore, long startNanos) {
+        long roundTrips = CommandMetrics.commandsSent() - commandsBefore;
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        long[] t = totals.computeIfAbsent(gesture, g -> new long[3]);
+        synchronized (t) {
+            t[0]++;
+            t[1] += roundTrips;
+            t[2] += micros;
+        }
+        log.info("Performed {} in {} round trip(s), {} ms", gesture, roundTrips, micros / 1000);
+    }
+
+    /**
+     * Returns the rectangles of the targets, from the snapshot when it is fresh or when there are several targets
+     * (one page source instead of a lookup per target), and from live lookups otherwise.
+     */
+    private List<Rectangle> rectsOf(By... targets) {
+        Rectangle[] rects = new Rectangle[targets.length];
+        if (targets.length > 1 || page.hasSnapshot()) {
+            try {
+                PageSnapshot snapshot = page.snapshot();
+                for (int i = 0; i < targets.length; i++) {
+                    rects[i] = snapshot.find(targets[i]).filter(PageSnapshot.Node::isDisplayed)
+                            .map(PageSnapshot.Node::bounds).orElse(null);
+                }
+            } catch (UnsupportedOperationException e) {
+                log.debug("Gesture target cannot be evaluated on a snapshot: {}", e.getMessage());
+            }
+        }
+        for (int i = 0; i < targets.length; i++) {
+            if (rects[i] == null) {
+                rects[i] = page.find(targets[i]).getRect();
+            }
+        }
+        return List.of(rects);
+    }
+
+    private Rectangle screen() {
+        Dimension size = viewports.computeIfAbsent(page.driver, driver -> driver.manage().window().getSize());
+        return new Rectangle(0, 0, size.getHeight(), size.getWidth());
+    }
+
+    private static PointerInput finger(int index) {
+        return new PointerInput(PointerInput.Kind.TOUCH, "finger" + index);
+    }
+
+    /**
+     * Returns the start and end of a stroke through the middle of the rectangle, keeping the given fraction
+     * of its size free at both ends.
+     */
+    private static Point[] along(Rectangle rect, Direction direction, double margin) {
+        Point center = center(rect);
+        int near = (int) (margin * (direction == Direction.UP || direction == Direction.DOWN ? rect.getHeight() : rect.getWidth()));
+        int top = rect.getY() + near;
+        int bottom = rect.getY() + rect.getHeight() - near;
+        int left = rect.getX() + near;
+        int right = rect.getX() + rect.getWidth() - near;
+        return switch (direction) {
+            case UP -> new Point[]{new Point(center.x, bottom), new Point(center.x, top)};
+            case DOWN -> new Point[]{new Point(center.x, top), new Point(center.x, bottom)};
+            case LEFT -> new Point[]{new Point(right, center.y), new Point(left, center.y)};
+            case RIGHT -> new Point[]{new Point(left, center.y), new Point(right, center.y)};
+        };
+    }
+
+    private static Duration swipeDuration() {
+        return Duration.ofMillis(MobileConfig.get().getLong("gesture.swipe.millis", 300));
+    }
+
+    private static Duration scrollDuration() {
+        return Duration.ofMillis(MobileConfig.get().getLong("gesture.scroll.millis", 600));
+    }
+
+    private static Sequence stroke(PointerInput finger, Point[] path, Duration duration) {
+        Sequence stroke = new Sequence(finger, 0);
+        moveTo(stroke, finger, path[0], Duration.ZERO);
+        stroke.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+        moveTo(stroke, finger, path[1], duration);
+        stroke.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        return stroke;
+    }
+
+    private static void moveTo(Sequence sequence, PointerInput finger, Point point, Duration duration) {
+        sequence.addAction(finger.createPointerMove(duration, PointerInput.Origin.viewport(), point.x, point.y));
+    }
+
+    private static Point center(Rectangle rect) {
+        return new Point(rect.getX() + rect.getWidth() / 2, rect.getY() + rect.getHeight() / 2);
+    }
+
+    /**
+     * Returns the UiSelector matching the locator, or null if it has none.
+     */
+    private static String uiSelector(By locator) {
+        if (!(locator instanceof By.Remotable remotable)) {
+            return null;
+        }
+        String value = String.valueOf(remotable.getRemoteParameters().value());
+        return switch (remotable.getRemoteParameters().using()) {
+            case "accessibility id" -> "new UiSelector().description(" + javaString(value) + ")";
+            case "id" -> value.contains(":id/") ? "new UiSelector().resourceId(" + javaString(value) + ")"
+                    : "new UiSelector().resourceIdMatches(" + javaString(".*:id/" + value) + ")";
+            case "class name" -> "new UiSelector().className(" + javaString(value) + ")";
+            case "-android uiautomator" -> value.startsWith("new UiSelector()") ? value.replaceAll(";\\s*$", "") : null;
+            default -> null;
+        };
+    }
+
+    /**
+     * Returns the "mobile: scroll" arguments that scroll to the element matching the locator, or null if there are none.
+     */
+    private static Map<String, Object> iosScrollArguments(By locator) {
+        if (!(locator instanceof By.Remotable remotable)) {
+            return null;
+        }
+        String value = String.valueOf(remotable.getRemoteParameters().value());
+        return switch (remotable.getRemoteParameters().using()) {
+            case "accessibility id", "id" -> Map.of("name", value);
+            case "-ios predicate string" -> Map.of("predicateString", value);
+            default -> null;
+        };
+    }
+
+    private static String javaString(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
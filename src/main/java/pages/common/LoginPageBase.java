@@ -12,6 +12,9 @@ public interface LoginPageBase {
     void enterPassword(String password);
     void clickLoginButton();
 
+    // Enters both credentials and submits the form as a single batched interaction
+    void logIn(String email, String password);
+
     // Define methods that perform validations
     boolean isLoginScreenDisplayed();
     String getLoginInputErrorMessageText();
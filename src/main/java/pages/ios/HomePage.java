@@ -1,19 +1,24 @@
 package pages.ios;
 
+import core.PageImpl;
 import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.pagefactory.iOSXCUITFindBy;
 import org.openqa.selenium.By;
+import org.openqa.selenium.Platform;
 import org.openqa.selenium.WebElement;
 import pages.common.BasePage;
 import pages.common.BottomNavigationBase;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import static core.LocatorCompiler.compile;
+
 /**
  * Concrete Page Object Model for the iOS Dashboard Screen.
  * Implements the DashboardPageBase contract using iOS-specific locators.
  * Note: Accessibility IDs are often the same on both platforms.
  */
+@PageImpl(platform = Platform.IOS, contract = BottomNavigationBase.class)
 public class HomePage extends BasePage implements BottomNavigationBase {
 
     private static final Logger logger = LogManager.getLogger(HomePage.class);
@@ -30,7 +35,7 @@ public class HomePage extends BasePage implements BottomNavigationBase {
 //    private WebElement webviewTab;
 
 //    @iOSXCUITFindBy(accessibility = "Login")
-    private final By loginTab = By.xpath("//XCUIElementTypeButton[@name=\"Login\"]");
+    private final By loginTab = compile(By.xpath("//XCUIElementTypeButton[@name=\"Login\"]"), Platform.IOS);
 //
 //    @iOSXCUITFindBy(accessibility = "Forms")
 //    private WebElement formsTab;
@@ -60,7 +65,7 @@ public class HomePage extends BasePage implements BottomNavigationBase {
 
     @Override
     public void goToLogin() {
-        click(driver.findElement(loginTab));
+        navigate(find(loginTab));
 
     }
 
@@ -1,15 +1,20 @@
 package pages.ios;
 
+import core.PageImpl;
 import io.appium.java_client.AppiumDriver;
 import org.openqa.selenium.By;
+import org.openqa.selenium.Platform;
 import pages.common.BasePage;
 import pages.common.LoginPageBase;
 
+import static core.LocatorCompiler.compile;
+
 /**
  * Concrete implementation of the LoginPageBase interface for the iOS platform.
  * It inherits utility methods from BasePage and uses platform-specific locators
  * (@iOSXCUITFindBy) to fulfill the login contract.
  */
+@PageImpl(platform = Platform.IOS, contract = LoginPageBase.class)
 public class LoginPage extends BasePage implements LoginPageBase {
 
     // --- SECTION 1: Locators (The "WHERE" on the screen for iOS) ---
@@ -18,26 +23,26 @@ public class LoginPage extends BasePage implements LoginPageBase {
     // --- SECTION 1: Locators (The "WHERE" on the screen for Android) ---
 //    @FindBy(accessibility = "Login-screen")
 //    private WebElement loginScreen;
-    private final By loginScreen = By.xpath("//XCUIElementTypeOther[@name = \"Login-screen\"]/XCUIElementTypeScrollView");
+    private final By loginScreen = compile(By.xpath("//XCUIElementTypeOther[@name = \"Login-screen\"]/XCUIElementTypeScrollView"), Platform.IOS);
     //    @AndroidFindBy(xpath = "/android.widget.TextView[@text=\"Login / Sign up Form\"]")
 //    private WebElement loginSignUpForm;
-    private final By loginSignUpForm = By.xpath("/android.widget.TextView[@text=\"Login / Sign up Form\"]");
+    private final By loginSignUpForm = compile(By.xpath("/android.widget.TextView[@text=\"Login / Sign up Form\"]"), Platform.IOS);
     //    @AndroidFindBy(accessibility = "input-email")
 //    private WebElement emailField;
-    private final By emailField = By.xpath("//XCUIElementTypeTextField[@name=\"input-email\"]");
+    private final By emailField = compile(By.xpath("//XCUIElementTypeTextField[@name=\"input-email\"]"), Platform.IOS);
     //    @AndroidFindBy(accessibility = "input-password")
 //    private WebElement passwordField;
-    private final By passwordField = By.xpath("//XCUIElementTypeSecureTextField[@name=\"input-password\"]");
+    private final By passwordField = compile(By.xpath("//XCUIElementTypeSecureTextField[@name=\"input-password\"]"), Platform.IOS);
     //    @AndroidFindBy(accessibility = "button-LOGIN")
 //    private WebElement loginButton;
-    private final By loginButton = By.xpath("//XCUIElementTypeStaticText[@name=\"LOGIN\"]");
+    private final By loginButton = compile(By.xpath("//XCUIElementTypeStaticText[@name=\"LOGIN\"]"), Platform.IOS);
     // Locator for an error message after failed login
 //    @AndroidFindBy(xpath = "//android.widget.TextView[@text=\"Please enter a valid email address\"]")
 //    private WebElement loginInputErrorMessage;
-    private final By loginInputErrorMessage = By.xpath("//XCUIElementTypeStaticText[@name=\"Please enter a valid email address\"]");
+    private final By loginInputErrorMessage = compile(By.xpath("//XCUIElementTypeStaticText[@name=\"Please enter a valid email address\"]"), Platform.IOS);
     //    @AndroidFindBy(xpath = "//android.widget.TextView[@text=\"Please enter at least 8 characters\"]")
 //    private WebElement passwordInputErrorMessage;
-    private final By passwordInputErrorMessage = By.xpath("//XCUIElementTypeStaticText[@name=\"Please enter at least 8 characters\"]");
+    private final By passwordInputErrorMessage = compile(By.xpath("//XCUIElementTypeStaticText[@name=\"Please enter at least 8 characters\"]"), Platform.IOS);
 
 
 
@@ -52,33 +57,37 @@ public class LoginPage extends BasePage implements LoginPageBase {
     @Override
     public void enterEmail(String email) {
         // Uses the reusable type() method from BasePage
-        type(driver.findElement(emailField), email);
+        type(find(emailField), email);
     }
 
     @Override
     public void enterPassword(String password) {
         // Uses the reusable type() method from BasePage
-        type(driver.findElement(passwordField), password);
+        type(find(passwordField), password);
     }
 
     @Override
     public void clickLoginButton() {
         // Uses the reusable click() method from BasePage
-        click(driver.findElement(loginButton));
+        click(find(loginButton));
+    }
+
+    @Override
+    public void logIn(String email, String password) {
+        batch().type(emailField, email)
+                .type(passwordField, password)
+                .click(loginButton)
+                .perform();
     }
 
     @Override
     public boolean isLoginScreenDisplayed() {
-        try {
-            return isDisplayed(driver.findElement(loginScreen));
-        } catch (Exception e) {
-            return false;
-        }
+        return isDisplayed(loginScreen);
     }
 
     @Override
     public String getLoginInputErrorMessageText() {
         // Uses the reusable getText() method from BasePage
-        return getText(driver.findElement(loginInputErrorMessage));
+        return getText(loginInputErrorMessage);
     }
 }
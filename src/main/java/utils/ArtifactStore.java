@@ -0,0 +1,210 @@
+package utils;
+
+import core.MobileConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Background writer for test artifacts (screenshots, page sources, device logs).
+ * The test thread only hands over the raw bytes; a single daemon thread then:
+ * <ul>
+ *     <li>names the artifact by the SHA-256 of its content, so identical artifacts are stored once
+ *     (objects/ab/abcd....png.gz under "artifacts.dir", default target/artifacts);</li>
+ *     <li>gzips it and writes it through a FileChannel, moving it into place only when complete;</li>
+ *     <li>appends a line "test, name, object, size, stored size" to index.tsv.</li>
+ * </ul>
+ * The queue holds "artifacts.queue.capacity" (default 32) artifacts; when it is full, or when the run
+ * has written "artifacts.budget.mb" (default 256) MB, new artifacts are dropped and counted instead
+ * of slowing the tests down.
+ */
+public final class ArtifactStore {
+
+    private static final Logger log = LogManager.getLogger(ArtifactStore.class);
+
+    private static final Path ROOT = Paths.get(MobileConfig.get().getString("artifacts.dir", "target/artifacts"));
+    private static final int QUEUE_CAPACITY = MobileConfig.get().getInt("artifacts.queue.capacity", 32);
+    private static final long BUDGET_BYTES = MobileConfig.get().getLong("artifacts.budget.mb", 256) * 1024 * 1024;
+
+    private record Artifact(String test, String name, String extension, byte[] data) {
+    }
+
+    private static final BlockingQueue<Artifact> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // Submitted but not yet written (queued or in progress)
+    private static final AtomicLong pending = new AtomicLong();
+    private static final AtomicLong maxQueueDepth = new AtomicLong();
+    private static final AtomicLong storedBytes = new AtomicLong();
+    private static final LongAdder written = new LongAdder();
+    private static final LongAdder deduplicated = new LongAdder();
+    private static final LongAdder droppedQueueFull = new LongAdder();
+    private static final LongAdder droppedOverBudget = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+    private static final LatencyHistogram writeLatency = new LatencyHistogram();
+
+    static {
+        Thread writer = new Thread(ArtifactStore::drainQueue, "artifact-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private ArtifactStore() {
+    }
+
+    /**
+     * Queues an artifact for writing. Never blocks: returns false if the artifact was dropped
+     * because the queue is full.
+     * @param test The test the artifact belongs to.
+     * @param name A short description, e.g. "test failure screenshot".
+     * @param extension The file extension of the raw content, e.g. "png".
+     * @param data The raw content; must not be modified afterwards.
+     */
+    public static boolean submit(String test, String name, String extension, byte[] data) {
+        pending.incrementAndGet();
+        if (!queue.offer(new Artifact(test, name, extension, data))) {
+            pending.decrementAndGet();
+            droppedQueueFull.increment();
+            log.warn("Artifact queue is full, dropped {} of {}", name, test);
+            return false;
+        }
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+        return true;
+    }
+
+    /**
+     * Waits until every submitted artifact is written, or the timeout elapses.
+     * @return true if nothing is left to write.
+     */
+    public static boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return pending.get() == 0;
+    }
+
+    public static int queueDepth() {
+        return queue.size();
+    }
+
+    public static LatencyHistogram writeLatency() {
+        return writeLatency;
+    }
+
+    public static String stats() {
+        return String.format("Artifacts: written=%d deduplicated=%d dropped(queue full)=%d dropped(over budget)=%d"
+                        + " failed=%d stored=%d KB of %d MB, queue depth=%d (max %d), write latency p50=%d ms p99=%d ms",
+                written.sum(), deduplicated.sum(), droppedQueueFull.sum(), droppedOverBudget.sum(), failed.sum(),
+                storedBytes.get() / 1024, BUDGET_BYTES / (1024 * 1024), queue.size(), maxQueueDepth.get(),
+                TimeUnit.MICROSECONDS.toMillis(writeLatency.percentileMicros(50)),
+                TimeUnit.MICROSECONDS.toMillis(writeLatency.percentileMicros(99)));
+    }
+
+    private static void drainQueue() {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        while (true) {
+            Artifact artifact;
+            try {
+                artifact = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                write(artifact, HexFormat.of().formatHex(sha256.digest(artifact.data())));
+            } catch (IOException | RuntimeException e) {
+                failed.increment();
+                log.warn("Could not write {} of {}: {}", artifact.name(), artifact.test(), e.getMessage());
+            } finally {
+                writeLatency.recordMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    private static void write(Artifact artifact, String hash) throws IOException {
+        Path object = Paths.get("objects", hash.substring(0, 2), hash + "." + artifact.extension() + ".gz");
+        Path target = ROOT.resolve(object);
+        long stored;
+        if (Files.exists(target)) {
+            deduplicated.increment();
+            stored = Files.size(target);
+        } else {
+            byte[] compressed = gzip(artifact.data());
+            if (storedBytes.addAndGet(compressed.length) > BUDGET_BYTES) {
+                storedBytes.addAndGet(-compressed.length);
+                droppedOverBudget.increment();
+                log.warn("Artifact disk budget of {} MB reached, dropped {} of {}",
+                        BUDGET_BYTES / (1024 * 1024), artifact.name(), artifact.test());
+                return;
+            }
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            writeFully(temp, ByteBuffer.wrap(compressed), StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                Files.delete(temp);
+            }
+            written.increment();
+            stored = compressed.length;
+        }
+        String line = String.join("\t", artifact.test(), artifact.name(), object.toString().replace('\\', '/'),
+                String.valueOf(artifact.data().length), String.valueOf(stored)) + "\n";
+        writeFully(ROOT.resolve("index.tsv"), ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static void writeFully(Path file, ByteBuffer content, StandardOpenOption... options) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+        // Screenshots are PNGs already, so favour speed over ratio
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        }) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,59 @@
+package utils;
+
+import core.CommandMetrics;
+import core.MobileConfig;
+import io.appium.java_client.AppiumDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Platform;
+import org.openqa.selenium.logging.LogEntry;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Captures the screenshot, page source and device log of a session when something fails.
+ * Only fetching the bytes from the server happens on the calling thread; compressing and writing
+ * them is left to {@link ArtifactStore}. Capture problems are logged, never thrown, so they cannot
+ * hide the original failure.
+ */
+public final class FailureArtifacts {
+
+    private static final Logger log = LogManager.getLogger(FailureArtifacts.class);
+
+    private FailureArtifacts() {
+    }
+
+    /**
+     * Captures the session's artifacts for the test running on this thread.
+     * @param driver The session to capture.
+     * @param reason What failed, e.g. "test failure"; used in the artifact names.
+     */
+    public static void capture(AppiumDriver driver, String reason) {
+        String test = CommandMetrics.currentTest();
+        try {
+            ArtifactStore.submit(test, reason + " screenshot", "png", driver.getScreenshotAs(OutputType.BYTES));
+        } catch (RuntimeException e) {
+            log.warn("Could not take a screenshot for {}: {}", test, e.getMessage());
+        }
+        try {
+            ArtifactStore.submit(test, reason + " page source", "xml",
+                    driver.getPageSource().getBytes(StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            log.warn("Could not get the page source for {}: {}", test, e.getMessage());
+        }
+        if (MobileConfig.get().getBoolean("artifacts.device.logs", true)) {
+            String logType = driver.getCapabilities().getPlatformName() == Platform.IOS ? "syslog" : "logcat";
+            try {
+                StringBuilder lines = new StringBuilder();
+                for (LogEntry entry : driver.manage().logs().get(logType)) {
+                    lines.append(entry).append('\n');
+                }
+                ArtifactStore.submit(test, reason + " " + logType, "log",
+                        lines.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (RuntimeException e) {
+                log.warn("Could not get the {} for {}: {}", logType, test, e.getMessage());
+            }
+        }
+    }
+}
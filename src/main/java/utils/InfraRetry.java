@@ -0,0 +1,65 @@
+package utils;
+
+import core.FailureClassifier;
+import org.testng.IAnnotationTransformer;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.annotations.ITestAnnotation;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retries a test once when it failed for infrastructure reasons (see {@link FailureClassifier}), within the
+ * run's retry budget. BaseTest gives the failed session back with DriverPool.discard, so the device's circuit
+ * breaker counts the failure, and the retry leases the next free device (a different one whenever another is free).
+ * Failures of the app and failed assertions are never retried.
+ *
+ * Registered as a listener, it becomes the retry analyzer of every test that does not declare its own.
+ */
+public class InfraRetry implements IAnnotationTransformer, IRetryAnalyzer, ITestListener {
+
+    private static final AtomicInteger retried = new AtomicInteger();
+    private static final AtomicInteger recovered = new AtomicInteger();
+
+    // One analyzer per test invocation (method and parameters)
+    private int retries;
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
+        Class<? extends IRetryAnalyzer> current = annotation.getRetryAnalyzerClass();
+        if (current == null || current.getSimpleName().equals("DisabledRetryAnalyzer")) {
+            annotation.setRetryAnalyzer(InfraRetry.class);
+        }
+    }
+
+    @Override
+    public boolean retry(ITestResult result) {
+        if (retries > 0 || !FailureClassifier.isInfrastructure(result.getThrowable()) || !FailureClassifier.tryConsumeRetry()) {
+            return false;
+        }
+        retries++;
+        retried.incrementAndGet();
+        System.out.println("Retrying " + result.getMethod().getQualifiedName() + " on another device after an infrastructure failure: "
+                + result.getThrowable().getMessage());
+        return true;
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        if (result.getMethod().getRetryAnalyzer(result) instanceof InfraRetry analyzer && analyzer.retries > 0) {
+            recovered.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a one-line summary of the test retries of this run.
+     */
+    public static String stats() {
+        return "Infrastructure retries: " + retried.get() + " test(s) retried, " + recovered.get()
+                + " passed on the retry, budget used (sessions and tests): " + FailureClassifier.retriesUsed();
+    }
+}
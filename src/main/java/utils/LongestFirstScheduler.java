@@ -0,0 +1,224 @@
+package utils;
+
+import core.DeviceRegistry;
+import core.MobileConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.Platform;
+import org.testng.IAlterSuiteListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Longest-processing-time-first scheduling of test methods over the devices of a platform.
+ * <ul>
+ *     <li>Before the suite starts, every &lt;test&gt; with a "platform" parameter and more than one device
+ *     in the {@link DeviceRegistry} is switched to parallel methods, one worker per device.</li>
+ *     <li>Its methods are then handed out longest first, by their duration in previous runs on that
+ *     platform (kept in .test-history/durations.properties as a moving average). Methods without
+ *     history are estimated at the median of the known ones, or "schedule.default.millis" (default 60 s).</li>
+ *     <li>When a &lt;test&gt; ends, the predicted makespan (wall time of the slowest worker) is printed
+ *     next to the actual one.</li>
+ * </ul>
+ * Registered in testng.xml; -Dschedule.longest.first=false keeps the declaration order and worker counts.
+ * The schedule.* settings are read once, when the suite starts.
+ * Either way, a suite that leaves data-provider-thread-count at TestNG's default (10) has it lowered to the
+ * device count of its largest platform; a count set in testng.xml is kept.
+ */
+public class LongestFirstScheduler implements IAlterSuiteListener, IMethodInterceptor, ITestListener, ISuiteListener {
+
+    private static final Logger log = LogManager.getLogger(LongestFirstScheduler.class);
+
+    private static final boolean ENABLED = MobileConfig.get().getBoolean("schedule.longest.first", true);
+    private static final long DEFAULT_MILLIS = MobileConfig.get().getLong("schedule.default.millis", 60_000);
+    // Weight of the latest run in the moving average
+    private static final double SMOOTHING = 0.3;
+    private static final Path HISTORY_FILE = Paths.get(".test-history", "durations.properties");
+
+    private static final Map<String, Long> history = loadHistory();
+
+    // Time spent in each method during this run, summed over its invocations
+    private final Map<String, LongAdder> runMillis = new ConcurrentHashMap<>();
+    private final Map<String, Long> predictedMakespan = new ConcurrentHashMap<>();
+    private final Map<String, Integer> workers = new ConcurrentHashMap<>();
+    // First start and last end of the test methods of each <test>
+    private final Map<String, long[]> spans = new ConcurrentHashMap<>();
+
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        for (XmlSuite suite : suites) {
+            int maxDevices = 1;
+            for (XmlTest test : suite.getTests()) {
+                String platform = test.getParameter("platform");
+                if (platform == null) {
+                    continue;
+                }
+                int devices = DeviceRegistry.getDefault().getDevices(Platform.fromString(platform)).size();
+                if (ENABLED && devices > 1) {
+                    test.setParallel(XmlSuite.ParallelMode.METHODS);
+                    test.setThreadCount(devices);
+                }
+                maxDevices = Math.max(maxDevices, devices);
+            }
+            // Rows of a parallel DataProvider beyond the device count would only wait for a device lease
+            if (suite.getDataProviderThreadCount() == XmlSuite.DEFAULT_DATA_PROVIDER_THREAD_COUNT) {
+                suite.setDataProviderThreadCount(Math.min(maxDevices, XmlSuite.DEFAULT_DATA_PROVIDER_THREAD_COUNT));
+            }
+        }
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!ENABLED || methods.isEmpty()) {
+            return methods;
+        }
+        XmlTest test = context.getCurrentXmlTest();
+        String platform = platformOf(context);
+        long fallback = medianEstimate(platform);
+        Map<IMethodInstance, Long> estimates = new IdentityHashMap<>();
+        for (IMethodInstance method : methods) {
+            estimates.put(method, estimateMillis(platform, method.getMethod(), fallback));
+        }
+        List<IMethodInstance> ordered = new ArrayList<>(methods);
+        ordered.sort(Comparator.comparingLong(estimates::get).reversed()); // stable: ties keep declaration order
+
+        int workerCount = test.getParallel() == XmlSuite.ParallelMode.METHODS ? Math.max(1, test.getThreadCount()) : 1;
+        // Each method goes to the worker that frees up first, as the thread pool will do
+        PriorityQueue<long[]> loads = new PriorityQueue<>(Comparator.comparingLong(load -> load[0]));
+        for (int i = 0; i < workerCount; i++) {
+            loads.add(new long[1]);
+        }
+        long makespan = 0;
+        for (IMethodInstance method : ordered) {
+            long[] load = loads.poll();
+            load[0] += estimates.get(method);
+            makespan = Math.max(makespan, load[0]);
+            loads.add(load);
+        }
+        predictedMakespan.put(context.getName(), makespan);
+        workers.put(context.getName(), workerCount);
+        return ordered;
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        record(result, true);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        record(result, true);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        record(result, false);
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        Long predicted = predictedMakespan.get(context.getName());
+        long[] span = spans.get(context.getName());
+        if (predicted != null && span != null) {
+            System.out.printf("Makespan of '%s' on %d worker(s): predicted %.1f s, actual %.1f s%n", context.getName(),
+                    workers.get(context.getName()), predicted / 1000.0, (span[1] - span[0]) / 1000.0);
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        runMillis.forEach((key, millis) -> history.merge(key, millis.sum(),
+                (previous, latest) -> Math.round(previous * (1 - SMOOTHING) + latest * SMOOTHING)));
+        saveHistory();
+    }
+
+    private void record(ITestResult result, boolean ran) {
+        long start = result.getStartMillis();
+        long end = result.getEndMillis();
+        spans.merge(result.getTestContext().getName(), new long[]{start, end},
+                (current, added) -> new long[]{Math.min(current[0], added[0]), Math.max(current[1], added[1])});
+        if (ran) {
+            runMillis.computeIfAbsent(keyOf(platformOf(result.getTestContext()), result.getMethod()), k -> new LongAdder())
+                    .add(Math.max(0, end - start));
+        }
+    }
+
+    /**
+     * Returns the historical duration of the method on the platform, or the fallback if it has none.
+     */
+    static long estimateMillis(String platform, ITestNGMethod method, long fallback) {
+        return history.getOrDefault(keyOf(platform, method), fallback);
+    }
+
+    /**
+     * Returns the median historical duration on the platform, used for methods without history.
+     */
+    static long medianEstimate(String platform) {
+        long[] known = history.entrySet().stream()
+                .filter(e -> e.getKey().startsWith(platform + "."))
+                .mapToLong(Map.Entry::getValue)
+                .sorted()
+                .toArray();
+        return known.length == 0 ? DEFAULT_MILLIS : known[known.length / 2];
+    }
+
+    static String platformOf(ITestContext context) {
+        String platform = context.getCurrentXmlTest().getParameter("platform");
+        return platform == null ? "ANY" : platform.toUpperCase();
+    }
+
+    static String keyOf(String platform, ITestNGMethod method) {
+        return platform + "." + method.getRealClass().getName() + "." + method.getMethodName();
+    }
+
+    private static Map<String, Long> loadHistory() {
+        Map<String, Long> loaded = new ConcurrentHashMap<>();
+        if (Files.isRegularFile(HISTORY_FILE)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(HISTORY_FILE)) {
+                properties.load(in);
+                properties.stringPropertyNames().forEach(key -> loaded.put(key, Long.parseLong(properties.getProperty(key))));
+            } catch (IOException | NumberFormatException e) {
+                log.warn("Ignoring unreadable test durations in {}: {}", HISTORY_FILE, e.getMessage());
+            }
+        }
+        return loaded;
+    }
+
+    private static synchronized void saveHistory() {
+        Properties properties = new Properties();
+        history.forEach((key, millis) -> properties.setProperty(key, String.valueOf(millis)));
+        try {
+            Files.createDirectories(HISTORY_FILE.getParent());
+            try (OutputStream out = Files.newOutputStream(HISTORY_FILE)) {
+                properties.store(out, "Duration (ms) per platform and test method, moving average over runs");
+            }
+        } catch (IOException e) {
+            log.warn("Could not save test durations to {}: {}", HISTORY_FILE, e.getMessage());
+        }
+    }
+}
@@ -1,14 +1,24 @@
 package utils;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class to load properties from a file.
+ * Parsed files are cached per path and only read again once their size or modification time changes.
  */
 public class PropertyReader {
 
+    private record CachedFile(long lastModified, long length, Properties properties) {
+    }
+
+    private static final Map<String, CachedFile> cache = new ConcurrentHashMap<>();
+
     private final Properties properties;
 
     /**
@@ -16,6 +26,14 @@ public class PropertyReader {
      * @param filePath The path to the properties file (relative to project root).
      */
     public PropertyReader(String filePath) {
+        File file = new File(filePath);
+        long lastModified = file.lastModified();
+        long length = file.length();
+        CachedFile cached = cache.get(file.getAbsolutePath());
+        if (cached != null && cached.lastModified() == lastModified && cached.length() == length) {
+            properties = cached.properties();
+            return;
+        }
         properties = new Properties();
         try (FileInputStream fis = new FileInputStream(filePath)) {
             properties.load(fis);
@@ -24,6 +42,7 @@ public class PropertyReader {
             e.printStackTrace(); //todo: look at log4g library
             throw new RuntimeException("Failed to load configuration properties.", e);
         }
+        cache.put(file.getAbsolutePath(), new CachedFile(lastModified, length, properties));
     }
 
     /**
@@ -32,5 +51,20 @@ public class PropertyReader {
     public String getProperty(String key) {
         return properties.getProperty(key);
     }
+
+    /**
+     * Gets a property value by key, falling back to the default when the key is missing or blank.
+     */
+    public String getProperty(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Returns all keys defined in the file.
+     */
+    public Set<String> getPropertyNames() {
+        return properties.stringPropertyNames();
+    }
 }
 
@@ -1,4 +1,387 @@
 package utils;
 
-public class ReportManager {
+import core.MobileConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonOutput;
+import org.testng.IConfigurationListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * TestNG listener that streams every result, as soon as it completes, to "report.dir" (default target/reports):
+ * <ul>
+ *     <li>results.jsonl: one JSON object per test or configuration method result, appended as they arrive;</li>
+ *     <li>junit.xml: JUnit XML, whose test cases are streamed to a side file and wrapped in the
+ *     testsuite element (which needs the totals) when the run ends.</li>
+ * </ul>
+ * Memory use does not grow with the suite: test threads format their result and put it on a bounded
+ * queue, and a single writer thread is the only one touching the files. Only the totals are kept.
+ *
+ * Registered in testng.xml. Reports of several JVMs (e.g. shards) are combined with the merge tool, which also
+ * checks the shard manifests next to them (see {@link ShardSelector}):
+ * mvn exec:java -Dexec.mainClass=utils.ReportManager -Dexec.args="merge target/merged-report shard-0 shard-1"
+ */
+public class ReportManager implements ISuiteListener, ITestListener, IConfigurationListener {
+
+    private static final Logger log = LogManager.getLogger(ReportManager.class);
+
+    private static final Path REPORT_DIR = Paths.get(MobileConfig.get().getString("report.dir", "target/reports"));
+    private static final String RESULTS_FILE = "results.jsonl";
+    private static final String JUNIT_FILE = "junit.xml";
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_TRACE_CHARS = 8000;
+    private static final Result END = new Result("", "", "", "", "", 0, 0, "", null, null, null);
+
+    private final BlockingQueue<Result> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private int runningSuites;
+    private Thread writerThread;
+
+    /**
+     * One reported result, as stored in a line of results.jsonl.
+     */
+    record Result(String suite, String test, String className, String name, String status, long startMillis,
+                  long durationMillis, String thread, String failureType, String failureMessage, String trace) {
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("suite", suite);
+            json.put("test", test);
+            json.put("class", className);
+            json.put("name", name);
+            json.put("status", status);
+            json.put("start", startMillis);
+            json.put("durationMillis", durationMillis);
+            json.put("thread", thread);
+            if (failureType != null) {
+                json.put("failureType", failureType);
+                json.put("failureMessage", failureMessage);
+                json.put("trace", trace);
+            }
+            return json;
+        }
+
+        static Result fromJson(Map<String, Object> json) {
+            return new Result((String) json.get("suite"), (String) json.get("test"), (String) json.get("class"),
+                    (String) json.get("name"), (String) json.get("status"), ((Number) json.get("start")).longValue(),
+                    ((Number) json.get("durationMillis")).longValue(), (String) json.get("thread"),
+                    (String) json.get("failureType"), (String) json.get("failureMessage"), (String) json.get("trace"));
+        }
+    }
+
+    @Override
+    public synchronized void onStart(ISuite suite) {
+        if (runningSuites++ > 0) {
+            return;
+        }
+        ReportWriter writer = ReportWriter.open(REPORT_DIR, suite.getName());
+        writerThread = new Thread(() -> drain(writer), "report-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public synchronized void onFinish(ISuite suite) {
+        if (--runningSuites > 0) {
+            return;
+        }
+        enqueue(END);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        report(result, "PASS");
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        report(result, "FAIL");
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        // A retried attempt is reported as SKIP by TestNG; only the retry's own result counts
+        if (!result.wasRetried()) {
+            report(result, "SKIP");
+        }
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        report(result, "PASS");
+    }
+
+    @Override
+    public void onConfigurationFailure(ITestResult result) {
+        report(result, "FAIL");
+    }
+
+    /**
+     * Formats the result on the calling thread and hands it to the writer thread.
+     */
+    private void report(ITestResult result, String status) {
+        // Passed tests can carry the exception they expected
+        Throwable failure = status.equals("PASS") ? null : result.getThrowable();
+        enqueue(new Result(result.getTestContext().getSuite().getName(), result.getTestContext().getName(),
+                result.getMethod().getRealClass().getName(), nameOf(result), status, result.getStartMillis(),
+                Math.max(0, result.getEndMillis() - result.getStartMillis()), Thread.currentThread().getName(),
+                failure == null ? null : failure.getClass().getName(),
+                failure == null ? null : String.valueOf(failure.getMessage()),
+                failure == null ? null : traceOf(failure)));
+    }
+
+    private void enqueue(Result result) {
+        try {
+            queue.put(result); // blocks only if the writer is 1024 results behind
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain(ReportWriter writer) {
+        List<Result> batch = new ArrayList<>();
+        boolean writing = true;
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            try {
+                for (Result result : batch) {
+                    if (result == END) {
+                        writer.close();
+                        return;
+                    }
+                    if (writing) {
+                        writer.write(result);
+                    }
+                }
+                if (writing) {
+                    writer.flush();
+                }
+            } catch (IOException | UncheckedIOException e) {
+                // Keep taking results so the test threads never block on a full queue
+                log.error("Stopped writing the report to {}: {}", REPORT_DIR, e.getMessage());
+                writing = false;
+            }
+            batch.clear();
+        }
+    }
+
+    private static String nameOf(ITestResult result) {
+        Object[] parameters = result.getParameters();
+        if (parameters == null || parameters.length == 0) {
+            return result.getMethod().getMethodName();
+        }
+        StringBuilder name = new StringBuilder(result.getMethod().getMethodName()).append('[');
+        for (int i = 0; i < parameters.length; i++) {
+            name.append(i == 0 ? "" : ", ")
+                    .append(parameters[i] instanceof Method method ? method.getName() : String.valueOf(parameters[i]));
+        }
+        return name.append(']').toString();
+    }
+
+    private static String traceOf(Throwable failure) {
+        StringWriter trace = new StringWriter();
+        failure.printStackTrace(new PrintWriter(trace));
+        return trace.getBuffer().length() > MAX_TRACE_CHARS ? trace.getBuffer().substring(0, MAX_TRACE_CHARS) : trace.toString();
+    }
+
+    /**
+     * Merges the reports of several runs into one.
+     * Usage: merge &lt;output dir&gt; &lt;report dir or results.jsonl&gt;...
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !args[0].equals("merge")) {
+            System.err.println("Usage: merge <output dir> <report dir or results.jsonl>...");
+            System.exit(2);
+        }
+        long merged = 0;
+        List<Path> manifests = new ArrayList<>();
+        Json json = new Json();
+        try (ReportWriter writer = ReportWriter.open(Paths.get(args[1]), "Merged report")) {
+            for (int i = 2; i < args.length; i++) {
+                Path input = Paths.get(args[i]);
+                if (Files.isDirectory(input)) {
+                    input = input.resolve(RESULTS_FILE);
+                }
+                Path manifest = input.resolveSibling(ShardSelector.MANIFEST_FILE);
+                if (Files.isRegularFile(manifest)) {
+                    manifests.add(manifest);
+                }
+                try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        if (!line.isBlank()) {
+                            writer.write(Result.fromJson(json.toType(line, Json.MAP_TYPE)));
+                            merged++;
+                        }
+                    }
+                }
+            }
+        }
+        System.out.println("Merged " + merged + " results from " + (args.length - 2) + " reports into " + args[1]);
+        if (!manifests.isEmpty() && !ShardSelector.verify(manifests)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Streams results to results.jsonl and junit.xml in a directory. Not thread-safe: used by one thread.
+     */
+    static final class ReportWriter implements AutoCloseable {
+
+        private final Path directory;
+        private final String suiteName;
+        private final Path casesFile;
+        private final BufferedWriter results;
+        private final BufferedWriter cases;
+        private final Json json = new Json();
+        private final StringBuilder buffer = new StringBuilder();
+        private final long startMillis = System.currentTimeMillis();
+        private long tests;
+        private long failures;
+        private long skipped;
+        private long totalMillis;
+
+        private ReportWriter(Path directory, String suiteName) throws IOException {
+            this.directory = directory;
+            this.suiteName = suiteName;
+            Files.createDirectories(directory);
+            this.casesFile = directory.resolve(JUNIT_FILE + ".cases");
+            this.results = Files.newBufferedWriter(directory.resolve(RESULTS_FILE), StandardCharsets.UTF_8);
+            this.cases = Files.newBufferedWriter(casesFile, StandardCharsets.UTF_8);
+        }
+
+        static ReportWriter open(Path directory, String suiteName) {
+            try {
+                return new ReportWriter(directory, suiteName);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create the report in " + directory, e);
+            }
+        }
+
+        void write(Result result) throws IOException {
+            buffer.setLength(0);
+            try (JsonOutput out = json.newOutput(buffer)) {
+                out.setPrettyPrint(false).write(result.toJson());
+            }
+            results.append(buffer).append('\n');
+
+            tests++;
+            totalMillis += result.durationMillis();
+            buffer.setLength(0);
+            buffer.append("  <testcase classname=\"");
+            escape(result.className());
+            buffer.append("\" name=\"");
+            escape(result.name());
+            buffer.append("\" time=\"").append(result.durationMillis() / 1000.0).append('"');
+            switch (result.status()) {
+                case "FAIL" -> {
+                    failures++;
+                    buffer.append(">\n    <failure type=\"");
+                    escape(result.failureType());
+                    buffer.append("\" message=\"");
+                    escape(result.failureMessage());
+                    buffer.append("\">");
+                    escape(result.trace());
+                    buffer.append("</failure>\n  </testcase>\n");
+                }
+                case "SKIP" -> {
+                    skipped++;
+                    buffer.append(">\n    <skipped");
+                    if (result.failureMessage() != null) {
+                        buffer.append(" message=\"");
+                        escape(result.failureMessage());
+                        buffer.append('"');
+                    }
+                    buffer.append("/>\n  </testcase>\n");
+                }
+                default -> buffer.append("/>\n");
+            }
+            cases.append(buffer);
+        }
+
+        void flush() throws IOException {
+            results.flush();
+            cases.flush();
+        }
+
+        /**
+         * Writes junit.xml: the testsuite element with the totals around the streamed test cases.
+         */
+        @Override
+        public void close() throws IOException {
+            results.close();
+            cases.close();
+            buffer.setLength(0);
+            buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<testsuite name=\"");
+            escape(suiteName);
+            buffer.append("\" tests=\"").append(tests).append("\" failures=\"").append(failures)
+                    .append("\" errors=\"0\" skipped=\"").append(skipped)
+                    .append("\" time=\"").append(totalMillis / 1000.0)
+                    .append("\" timestamp=\"").append(Instant.ofEpochMilli(startMillis)).append("\">\n");
+            try (FileChannel out = FileChannel.open(directory.resolve(JUNIT_FILE), StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                 FileChannel in = FileChannel.open(casesFile, StandardOpenOption.READ)) {
+                out.write(StandardCharsets.UTF_8.encode(buffer.toString()));
+                for (long position = 0, size = in.size(); position < size; ) {
+                    position += in.transferTo(position, size - position, out);
+                }
+                out.write(StandardCharsets.UTF_8.encode("</testsuite>\n"));
+            }
+            Files.delete(casesFile);
+        }
+
+        private void escape(String text) {
+            if (text == null) {
+                return;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '&' -> buffer.append("&amp;");
+                    case '<' -> buffer.append("&lt;");
+                    case '>' -> buffer.append("&gt;");
+                    case '"' -> buffer.append("&quot;");
+                    default -> {
+                        // Control characters other than tab and line breaks are not allowed in XML 1.0
+                        if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                            buffer.append(c);
+                        }
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,316 @@
+package utils;
+
+import core.MobileConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.json.Json;
+import org.testng.IDataProviderInterceptor;
+import org.testng.IDataProviderMethod;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs one shard of the suite when started with -Dshard.index=i -Dshard.total=n (0 &lt;= i &lt; n), so several
+ * JVMs / CI nodes can share the work. Every shard computes the same split on its own:
+ * <ul>
+ *     <li>the methods of each &lt;test&gt; are spread longest first over the shards, using the durations
+ *     recorded by {@link LongestFirstScheduler} (ties broken by name, so equal histories give equal splits);</li>
+ *     <li>the rows of a DataProvider are dealt round-robin, starting at a shard derived from the method name.</li>
+ * </ul>
+ * All shards must therefore start from the same .test-history/durations.properties (e.g. restored from a CI cache).
+ * At suite end the shard writes shard-manifest.json to "report.dir" (default target/reports): the executions it
+ * saw, the ones it was assigned, the ones it reported and a digest of the durations it split by.
+ * {@link ReportManager}'s merge tool checks the manifests for missing shards and missing or duplicated executions.
+ *
+ * Without the properties every method and row runs, and no manifest is written.
+ */
+public class ShardSelector implements IMethodInterceptor, IDataProviderInterceptor, ITestListener, ISuiteListener {
+
+    private static final Logger log = LogManager.getLogger(ShardSelector.class);
+
+    static final String MANIFEST_FILE = "shard-manifest.json";
+    private static final Path REPORT_DIR = Paths.get(MobileConfig.get().getString("report.dir", "target/reports"));
+    private static final int INDEX = MobileConfig.get().getInt("shard.index", 0);
+    private static final int TOTAL = MobileConfig.get().getInt("shard.total", 1);
+
+    // Execution keys: "PLATFORM.class.method", with "#row" appended for DataProvider rows
+    private final Set<String> universe = ConcurrentHashMap.newKeySet();
+    private final Set<String> assigned = ConcurrentHashMap.newKeySet();
+    private final Set<String> reported = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> weights = new ConcurrentHashMap<>();
+    // Rows passed on per data-driven method, to find the original index of a reported row
+    private final Map<String, List<KeptRow>> keptRows = new ConcurrentHashMap<>();
+
+    private static final class KeptRow {
+        final Object[] values;
+        final int index;
+        boolean reported;
+
+        KeptRow(Object[] values, int index) {
+            this.values = values;
+            this.index = index;
+        }
+    }
+
+    public ShardSelector() {
+        if (TOTAL < 1 || INDEX < 0 || INDEX >= TOTAL) {
+            throw new IllegalArgumentException("Invalid shard " + INDEX + " of " + TOTAL
+                    + ": expected -Dshard.total >= 1 and 0 <= -Dshard.index < shard.total");
+        }
+    }
+
+    static boolean isSharded() {
+        return TOTAL > 1;
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!isSharded()) {
+            return methods;
+        }
+        String platform = LongestFirstScheduler.platformOf(context);
+        long fallback = LongestFirstScheduler.medianEstimate(platform);
+        Map<String, Long> plain = new TreeMap<>();
+        long[] loads = new long[TOTAL];
+        for (IMethodInstance instance : methods) {
+            ITestNGMethod method = instance.getMethod();
+            String key = LongestFirstScheduler.keyOf(platform, method);
+            long weight = LongestFirstScheduler.estimateMillis(platform, method, fallback);
+            weights.put(key, weight);
+            if (method.isDataDriven()) {
+                // Its rows are dealt evenly over the shards, see intercept(Iterator, ...)
+                for (int shard = 0; shard < TOTAL; shard++) {
+                    loads[shard] += weight / TOTAL;
+                }
+            } else {
+                plain.merge(key, weight, Math::max);
+            }
+        }
+
+        List<Map.Entry<String, Long>> longestFirst = new ArrayList<>(plain.entrySet());
+        longestFirst.sort(Map.Entry.<String, Long>comparingByValue().reversed()); // stable: ties stay sorted by key
+        Set<String> mine = new TreeSet<>();
+        for (Map.Entry<String, Long> entry : longestFirst) {
+            int lightest = 0;
+            for (int shard = 1; shard < TOTAL; shard++) {
+                if (loads[shard] < loads[lightest]) {
+                    lightest = shard;
+                }
+            }
+            loads[lightest] += entry.getValue();
+            universe.add(entry.getKey());
+            if (lightest == INDEX) {
+                mine.add(entry.getKey());
+            }
+        }
+        assigned.addAll(mine);
+
+        List<IMethodInstance> kept = new ArrayList<>();
+        for (IMethodInstance instance : methods) {
+            if (instance.getMethod().isDataDriven()
+                    || mine.contains(LongestFirstScheduler.keyOf(platform, instance.getMethod()))) {
+                kept.add(instance);
+            }
+        }
+        System.out.printf("Shard %d of %d: running %d of %d method(s) of '%s' (estimated %.1f s)%n", INDEX, TOTAL,
+                kept.size(), methods.size(), context.getName(), loads[INDEX] / 1000.0);
+        return kept;
+    }
+
+    @Override
+    public Iterator<Object[]> intercept(Iterator<Object[]> rows, IDataProviderMethod dataProviderMethod,
+                                        ITestNGMethod method, ITestContext context) {
+        if (!isSharded()) {
+            return rows;
+        }
+        String key = LongestFirstScheduler.keyOf(LongestFirstScheduler.platformOf(context), method);
+        int offset = Math.floorMod(key.hashCode(), TOTAL);
+        List<KeptRow> kept = keptRows.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>()));
+        // Lazy filter, so rows streamed from a data file are not loaded all at once
+        return new Iterator<>() {
+            private int index = -1;
+            private Object[] next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && rows.hasNext()) {
+                    Object[] row = rows.next();
+                    index++;
+                    String rowKey = key + "#" + index;
+                    universe.add(rowKey);
+                    if ((index + offset) % TOTAL == INDEX) {
+                        assigned.add(rowKey);
+                        kept.add(new KeptRow(row, index));
+                        next = row;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object[] row = next;
+                next = null;
+                return row;
+            }
+        };
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        report(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        report(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        // The retry of an attempt reports the same row again, so the retried attempt must not consume it
+        if (!result.wasRetried()) {
+            report(result);
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (!isSharded()) {
+            return;
+        }
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("shardIndex", INDEX);
+        manifest.put("shardTotal", TOTAL);
+        manifest.put("durationsDigest", digest(weights));
+        manifest.put("universe", new TreeSet<>(universe));
+        manifest.put("assigned", new TreeSet<>(assigned));
+        manifest.put("reported", new TreeSet<>(reported));
+        try {
+            Files.createDirectories(REPORT_DIR);
+            Files.writeString(REPORT_DIR.resolve(MANIFEST_FILE), new Json().toJson(manifest));
+        } catch (IOException e) {
+            log.warn("Could not write the shard manifest to {}: {}", REPORT_DIR, e.getMessage());
+        }
+    }
+
+    private void report(ITestResult result) {
+        if (!isSharded()) {
+            return;
+        }
+        String key = LongestFirstScheduler.keyOf(LongestFirstScheduler.platformOf(result.getTestContext()), result.getMethod());
+        if (result.getMethod().isDataDriven()) {
+            key += "#" + rowIndexOf(keptRows.getOrDefault(key, List.of()), result.getParameters());
+        }
+        reported.add(key);
+    }
+
+    /**
+     * Returns the original index of the first not yet reported row with these parameters (the same array,
+     * or else equal values), or -1 if the row was not passed on by this shard.
+     */
+    private static int rowIndexOf(List<KeptRow> kept, Object[] parameters) {
+        synchronized (kept) {
+            KeptRow match = null;
+            for (KeptRow row : kept) {
+                if (!row.reported && row.values == parameters) {
+                    match = row;
+                    break;
+                }
+                if (match == null && !row.reported && Arrays.deepEquals(row.values, parameters)) {
+                    match = row;
+                }
+            }
+            if (match == null) {
+                return -1;
+            }
+            match.reported = true;
+            return match.index;
+        }
+    }
+
+    /**
+     * Checks the manifests of all shards of a run against each other and prints what is wrong.
+     * @return true if every shard is present and every execution was reported by exactly one shard.
+     */
+    @SuppressWarnings("unchecked")
+    static boolean verify(Collection<Path> manifests) throws IOException {
+        Json json = new Json();
+        Set<String> universe = new TreeSet<>();
+        Map<String, Integer> reportedBy = new HashMap<>();
+        Set<Long> shards = new TreeSet<>();
+        Set<String> digests = new TreeSet<>();
+        long total = 0;
+        for (Path path : manifests) {
+            Map<String, Object> manifest = json.toType(Files.readString(path, StandardCharsets.UTF_8), Json.MAP_TYPE);
+            total = ((Number) manifest.get("shardTotal")).longValue();
+            shards.add(((Number) manifest.get("shardIndex")).longValue());
+            digests.add((String) manifest.get("durationsDigest"));
+            universe.addAll((Collection<String>) manifest.get("universe"));
+            for (String key : (Collection<String>) manifest.get("reported")) {
+                reportedBy.merge(key, 1, Integer::sum);
+            }
+        }
+        List<String> problems = new ArrayList<>();
+        for (long shard = 0; shard < total; shard++) {
+            if (!shards.contains(shard)) {
+                problems.add("shard " + shard + " of " + total + " has no manifest");
+            }
+        }
+        if (digests.size() > 1) {
+            problems.add("shards split the suite using different duration histories");
+        }
+        universe.stream().filter(key -> !reportedBy.containsKey(key))
+                .forEach(key -> problems.add("not executed: " + key));
+        reportedBy.entrySet().stream().filter(e -> e.getValue() > 1).map(Map.Entry::getKey).sorted()
+                .forEach(key -> problems.add("executed by " + reportedBy.get(key) + " shards: " + key));
+
+        System.out.println("Shard check: " + shards.size() + " of " + total + " shard(s), " + universe.size()
+                + " execution(s), " + problems.size() + " problem(s)");
+        problems.forEach(problem -> System.out.println("  " + problem));
+        return problems.isEmpty();
+    }
+
+    private static String digest(Map<String, Long> weights) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            new TreeMap<>(weights).forEach((key, weight) ->
+                    sha256.update((key + "=" + weight + "\n").getBytes(StandardCharsets.UTF_8)));
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,4 +1,346 @@
 package utils;
 
-public class TestData {
+import core.MobileConfig;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Rows of a CSV (with a header line) or JSONL (one object per line) data file, for data-driven tests.
+ * The file is memory-mapped and scanned on demand: nothing is read until rows are iterated, and a row is
+ * only decoded when its values are used (by a filter or by the test). Sampling is decided from the row
+ * number alone, so sampled-out rows are never decoded.
+ *
+ * Typical DataProvider:
+ * <pre>
+ * &#64;DataProvider(parallel = true)
+ * public Iterator&lt;Object[]&gt; logins() {
+ *     return TestData.open("src/test/resources/data/logins.csv").where("valid", "false").selected().provider();
+ * }
+ * </pre>
+ * {@link #selected()} applies the command line selection: -Ddata.filter=column=value, -Ddata.sample=0.1
+ * (fraction of rows, same rows on every run for the same -Ddata.seed) and -Ddata.limit=100.
+ * Files up to 2 GB are supported.
+ */
+public final class TestData {
+
+    private enum Format { CSV, JSONL }
+
+    private final Path path;
+    private final Format format;
+    private final ByteBuffer content;
+    private final int firstRow;
+    private final List<String> columns;
+    private final Predicate<Row> filter;
+    private final double sample;
+    private final long seed;
+    private final long limit;
+
+    private TestData(Path path, Format format, ByteBuffer content, int firstRow, List<String> columns,
+                     Predicate<Row> filter, double sample, long seed, long limit) {
+        this.path = path;
+        this.format = format;
+        this.content = content;
+        this.firstRow = firstRow;
+        this.columns = columns;
+        this.filter = filter;
+        this.sample = sample;
+        this.seed = seed;
+        this.limit = limit;
+    }
+
+    /**
+     * Maps the data file; its format follows from the extension (.csv or .jsonl).
+     * @param filePath The path to the data file (relative to project root).
+     */
+    public static TestData open(String filePath) {
+        Path path = Paths.get(filePath);
+        String name = path.getFileName().toString().toLowerCase();
+        Format format = name.endsWith(".csv") ? Format.CSV : name.endsWith(".jsonl") ? Format.JSONL : null;
+        if (format == null) {
+            throw new IllegalArgumentException("Unsupported data file " + path + ": expected .csv or .jsonl");
+        }
+        ByteBuffer content;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read test data " + path, e);
+        }
+        if (format == Format.JSONL) {
+            return new TestData(path, format, content, 0, List.of(), row -> true, 1, 0, Long.MAX_VALUE);
+        }
+        int headerEnd = endOfRecord(content, 0, true);
+        List<String> header = Collections.unmodifiableList(parseCsv(decode(content, 0, headerEnd).replace("\uFEFF", "")));
+        return new TestData(path, format, content, skipLineBreak(content, headerEnd), header, row -> true, 1, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Keeps the rows whose column has the given value.
+     */
+    public TestData where(String column, String value) {
+        return filter(row -> value.equals(row.get(column)));
+    }
+
+    /**
+     * Keeps the rows matching the predicate (on top of the filters already set).
+     */
+    public TestData filter(Predicate<Row> predicate) {
+        return new TestData(path, format, content, firstRow, columns, filter.and(predicate), sample, seed, limit);
+    }
+
+    /**
+     * Keeps about the given fraction (0-1] of the rows. The same seed picks the same rows.
+     */
+    public TestData sample(double fraction, long sampleSeed) {
+        if (fraction <= 0 || fraction > 1) {
+            throw new IllegalArgumentException("Sample fraction must be in (0, 1]: " + fraction);
+        }
+        return new TestData(path, format, content, firstRow, columns, filter, fraction, sampleSeed, limit);
+    }
+
+    /**
+     * Stops after the given number of rows.
+     */
+    public TestData limit(long rows) {
+        return new TestData(path, format, content, firstRow, columns, filter, sample, seed, rows);
+    }
+
+    /**
+     * Applies the selection given on the command line (data.filter, data.sample, data.seed, data.limit).
+     */
+    public TestData selected() {
+        TestData selected = this;
+        MobileConfig config = MobileConfig.get();
+        String filterProperty = config.getString("data.filter", null);
+        if (filterProperty != null && filterProperty.contains("=")) {
+            int split = filterProperty.indexOf('=');
+            selected = selected.where(filterProperty.substring(0, split).trim(), filterProperty.substring(split + 1).trim());
+        }
+        double sample = config.getDouble("data.sample", 1);
+        if (sample < 1) {
+            selected = selected.sample(sample, config.getLong("data.seed", 0));
+        }
+        long limit = config.getLong("data.limit", Long.MAX_VALUE);
+        return limit == Long.MAX_VALUE ? selected : selected.limit(limit);
+    }
+
+    /**
+     * Returns the selected rows, scanning the file as the iterator advances.
+     */
+    public Iterator<Row> rows() {
+        return new RowIterator();
+    }
+
+    /**
+     * Returns the selected rows in the shape of a DataProvider: one {@link Row} argument per invocation.
+     */
+    public Iterator<Object[]> provider() {
+        Iterator<Row> rows = rows();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                return new Object[]{rows.next()};
+            }
+        };
+    }
+
+    /**
+     * One data row. Only its location in the file is kept until a value is asked for.
+     */
+    public final class Row {
+
+        private final long number;
+        private final int start;
+        private final int end;
+        private Map<String, String> values;
+
+        private Row(long number, int start, int end) {
+            this.number = number;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Returns the position of the row in the file (0 for the first data row).
+         */
+        public long number() {
+            return number;
+        }
+
+        /**
+         * Returns the value of the column, or null if the row has none.
+         */
+        public String get(String column) {
+            return asMap().get(column);
+        }
+
+        public synchronized Map<String, String> asMap() {
+            if (values == null) {
+                try {
+                    values = Collections.unmodifiableMap(parse(decode(content, start, end)));
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Malformed row " + number + " in " + path, e);
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return "row " + number + " " + asMap();
+        }
+    }
+
+    private Map<String, String> parse(String line) {
+        Map<String, String> parsed = new LinkedHashMap<>();
+        if (format == Format.JSONL) {
+            Map<String, Object> json = new Json().toType(line, Json.MAP_TYPE);
+            json.forEach((key, value) -> parsed.put(key, value == null ? null : String.valueOf(value)));
+        } else {
+            List<String> fields = parseCsv(line);
+            for (int i = 0; i < columns.size(); i++) {
+                parsed.put(columns.get(i), i < fields.size() ? fields.get(i) : null);
+            }
+        }
+        return parsed;
+    }
+
+    private final class RowIterator implements Iterator<Row> {
+
+        private int position = firstRow;
+        private long number = -1;
+        private long returned;
+        private Row next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && returned < limit && position < content.limit()) {
+                int end = endOfRecord(content, position, format == Format.CSV);
+                int start = position;
+                position = skipLineBreak(content, end);
+                if (isBlank(content, start, end)) {
+                    continue;
+                }
+                number++;
+                if (sample < 1 && !sampled(number)) {
+                    continue;
+                }
+                Row row = new Row(number, start, end);
+                if (filter.test(row)) {
+                    next = row;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row row = next;
+            next = null;
+            returned++;
+            return row;
+        }
+    }
+
+    private boolean sampled(long rowNumber) {
+        // SplitMix64 finalizer: a well-mixed, reproducible hash of the row number
+        long hash = seed + rowNumber * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        hash ^= hash >>> 31;
+        return (hash >>> 11) * 0x1.0p-53 < sample;
+    }
+
+    /**
+     * Returns the index of the line break ending the record that starts at the position (or the end of the
+     * content). In CSV, line breaks inside double quotes belong to the record.
+     */
+    private static int endOfRecord(ByteBuffer content, int position, boolean csv) {
+        boolean quoted = false;
+        int limit = content.limit();
+        for (int i = position; i < limit; i++) {
+            byte b = content.get(i);
+            if (b == '"' && csv) {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                return i > position && content.get(i - 1) == '\r' ? i - 1 : i;
+            }
+        }
+        return limit;
+    }
+
+    private static int skipLineBreak(ByteBuffer content, int end) {
+        int position = end;
+        if (position < content.limit() && content.get(position) == '\r') {
+            position++;
+        }
+        return position < content.limit() ? position + 1 : position;
+    }
+
+    private static boolean isBlank(ByteBuffer content, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(content.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuffer content, int start, int end) {
+        return StandardCharsets.UTF_8.decode(content.slice(start, end - start)).toString();
+    }
+
+    /**
+     * Splits a CSV record into fields (RFC 4180: fields may be quoted, "" is an escaped quote).
+     */
+    private static List<String> parseCsv(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
 }
@@ -0,0 +1,293 @@
+package utils;
+
+import core.MobileConfig;
+import io.appium.java_client.AppiumDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebElement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Polling wait engine used instead of stacking a global implicit wait with explicit waits.
+ * Sessions run without an implicit wait; every wait goes through this class, which:
+ * <ul>
+ *     <li>polls with exponential backoff (first poll after "wait.poll.initial.millis", default 50 ms,
+ *     growing by 1.5x up to "wait.poll.max.millis", default 500 ms);</li>
+ *     <li>learns per-locator timeouts from how long the locator historically took to appear
+ *     (3x the slowest recent sample plus 1 s, within [2 s, "wait.timeout.seconds"]), persisted
+ *     between runs in .test-history/wait-profiles.properties;</li>
+ *     <li>offers single-probe checks for elements that are expected to be absent;</li>
+ *     <li>records the time spent waiting per test and for the whole run.</li>
+ * </ul>
+ */
+public class WaitEngine {
+
+    private static final Logger log = LogManager.getLogger(WaitEngine.class);
+
+    private static final Duration MIN_LEARNED_TIMEOUT = Duration.ofSeconds(2);
+    private static final double BACKOFF = 1.5;
+    private static final int MIN_SAMPLES = 5;
+    private static final int MAX_SAMPLES = 20;
+
+    private static final Path PROFILE_FILE = Paths.get(".test-history", "wait-profiles.properties");
+    private static final Map<String, TimeoutProfile> profiles = loadProfiles();
+
+    private static final ThreadLocal<long[]> testWaitNanos = ThreadLocal.withInitial(() -> new long[1]);
+    private static final AtomicLong totalWaitNanos = new AtomicLong();
+
+    /**
+     * Returns the "wait.timeout.seconds" of the current configuration (default 15 s).
+     */
+    public static Duration defaultTimeout() {
+        return Duration.ofSeconds(MobileConfig.get().getLong("wait.timeout.seconds", 15));
+    }
+
+    private final AppiumDriver driver;
+
+    public WaitEngine(AppiumDriver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Waits until an element matching the locator is present, within the locator's learned timeout.
+     */
+    public WebElement waitForPresence(By locator) {
+        return waitForLocator(locator, element -> true);
+    }
+
+    /**
+     * Waits until an element matching the locator is displayed, within the locator's learned timeout.
+     */
+    public WebElement waitForVisibility(By locator) {
+        return waitForLocator(locator, WebElement::isDisplayed);
+    }
+
+    /**
+     * Waits until an already located element (or PageFactory proxy) is displayed.
+     */
+    public WebElement waitForVisibility(WebElement element) {
+        return until("visibility of " + element, defaultTimeout(), () -> element.isDisplayed() ? element : null);
+    }
+
+    /**
+     * Waits until an already located element (or PageFactory proxy) is displayed and enabled.
+     */
+    public WebElement waitForClickability(WebElement element) {
+        return until("clickability of " + element, defaultTimeout(),
+                () -> element.isDisplayed() && element.isEnabled() ? element : null);
+    }
+
+    /**
+     * Single probe without waiting: returns true if an element matching the locator exists right now.
+     * Use for elements that are expected to be absent, so a negative check does not burn a timeout.
+     */
+    public boolean isPresentNow(By locator) {
+        long start = System.nanoTime();
+        try {
+            return !driver.findElements(locator).isEmpty();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Waits until no element matches the locator.
+     * @return true if the element disappeared within the timeout.
+     */
+    public boolean waitForAbsence(By locator, Duration timeout) {
+        try {
+            until("absence of " + locator, timeout, () -> driver.findElements(locator).isEmpty() ? Boolean.TRUE : null);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Waits until the page source contains the text.
+     */
+    public boolean waitForPageText(String text) {
+        return until("page text '" + text + "'", defaultTimeout(),
+                () -> driver.getPageSource().contains(text) ? Boolean.TRUE : null);
+    }
+
+    /**
+     * Returns the timeout currently used for the locator.
+     */
+    public static Duration timeoutFor(By locator) {
+        TimeoutProfile profile = profiles.get(locator.toString());
+        return profile == null ? defaultTimeout() : profile.timeout();
+    }
+
+    /**
+     * Polls the probe with backoff until it returns a non-null value or the timeout expires.
+     * Lookups that fail with "not found" or "stale" are retried; any other error is rethrown.
+     * @throws TimeoutException if the probe did not succeed in time.
+     */
+    public <T> T until(String description, Duration timeout, Supplier<T> probe) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        MobileConfig config = MobileConfig.get();
+        long pollMillis = config.getLong("wait.poll.initial.millis", 50);
+        long maxPollMillis = config.getLong("wait.poll.max.millis", 500);
+        RuntimeException lastError = null;
+        try {
+            while (true) {
+                try {
+                    T result = probe.get();
+                    if (result != null) {
+                        return result;
+                    }
+                } catch (NotFoundException | StaleElementReferenceException e) {
+                    lastError = e;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException("Timed out after " + timeout.toMillis() + " ms waiting for " + description, lastError);
+                }
+                sleep(Math.min(pollMillis, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+                pollMillis = Math.min(maxPollMillis, (long) (pollMillis * BACKOFF));
+            }
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    // --- Metrics ---
+
+    /**
+     * Resets the wait time counter of the current thread. Called when a test starts.
+     */
+    public static void startTest() {
+        testWaitNanos.get()[0] = 0;
+    }
+
+    /**
+     * Returns the time the current thread spent waiting since the test started.
+     */
+    public static long currentTestWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(testWaitNanos.get()[0]);
+    }
+
+    public static long totalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    /**
+     * Persists the learned per-locator latency profiles for the next run.
+     */
+    public static void saveProfiles() {
+        Properties properties = new Properties();
+        profiles.forEach((key, profile) -> properties.setProperty(key, profile.serialize()));
+        try {
+            Files.createDirectories(PROFILE_FILE.getParent());
+            try (OutputStream out = Files.newOutputStream(PROFILE_FILE)) {
+                properties.store(out, "Observed time-to-appear (ms) per locator, most recent last");
+            }
+        } catch (IOException e) {
+            log.warn("Could not save wait profiles to {}: {}", PROFILE_FILE, e.getMessage());
+        }
+    }
+
+    private WebElement waitForLocator(By locator, java.util.function.Predicate<WebElement> condition) {
+        String key = locator.toString();
+        TimeoutProfile profile = profiles.computeIfAbsent(key, k -> new TimeoutProfile());
+        long start = System.nanoTime();
+        WebElement element = until(key, profile.timeout(), () -> {
+            List<WebElement> found = driver.findElements(locator);
+            return !found.isEmpty() && condition.test(found.get(0)) ? found.get(0) : null;
+        });
+        profile.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return element;
+    }
+
+    private static void record(long nanos) {
+        testWaitNanos.get()[0] += nanos;
+        totalWaitNanos.addAndGet(nanos);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted while waiting", e);
+        }
+    }
+
+    private static Map<String, TimeoutProfile> loadProfiles() {
+        Map<String, TimeoutProfile> loaded = new ConcurrentHashMap<>();
+        if (Files.isRegularFile(PROFILE_FILE)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(PROFILE_FILE)) {
+                properties.load(in);
+                properties.stringPropertyNames().forEach(key -> loaded.put(key, TimeoutProfile.parse(properties.getProperty(key))));
+            } catch (IOException | NumberFormatException e) {
+                log.warn("Ignoring unreadable wait profiles in {}: {}", PROFILE_FILE, e.getMessage());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Recent time-to-appear samples of one locator, and the timeout derived from them.
+     */
+    static final class TimeoutProfile {
+        private final long[] samples = new long[MAX_SAMPLES];
+        private int count;
+        private int next;
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % MAX_SAMPLES;
+            count = Math.min(count + 1, MAX_SAMPLES);
+        }
+
+        synchronized Duration timeout() {
+            if (count < MIN_SAMPLES) {
+                return defaultTimeout();
+            }
+            long slowest = 0;
+            for (int i = 0; i < count; i++) {
+                slowest = Math.max(slowest, samples[i]);
+            }
+            long learned = slowest * 3 + 1000;
+            return Duration.ofMillis(Math.max(MIN_LEARNED_TIMEOUT.toMillis(), Math.min(defaultTimeout().toMillis(), learned)));
+        }
+
+        synchronized String serialize() {
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                int index = (next - count + i + MAX_SAMPLES) % MAX_SAMPLES;
+                out.append(i == 0 ? "" : ",").append(samples[index]);
+            }
+            return out.toString();
+        }
+
+        static TimeoutProfile parse(String value) {
+            TimeoutProfile profile = new TimeoutProfile();
+            Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty())
+                    .mapToLong(Long::parseLong).forEach(profile::add);
+            return profile;
+        }
+    }
+}
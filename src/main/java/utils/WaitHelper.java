@@ -1,24 +1,19 @@
 package utils;
 
 import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
-
-import java.time.Duration;
 
 /**
  * Utility class to manage Explicit Waits for mobile elements, improving test stability.
+ * Waits are delegated to the {@link WaitEngine}; sessions have no implicit wait, so these are the only waits.
  */
 public class WaitHelper {
 
-    private final WebDriverWait wait;
+    private final WaitEngine engine;
 
     public WaitHelper(AppiumDriver driver) {
-        // Initialize WebDriverWait with the driver and a default timeout.
-        // Default wait time
-        Duration TIMEOUT = Duration.ofSeconds(15);
-        this.wait = new WebDriverWait(driver, TIMEOUT);
+        this.engine = new WaitEngine(driver);
     }
 
     /**
@@ -27,7 +22,25 @@ public class WaitHelper {
      * @return The visible WebElement.
      */
     public WebElement waitForVisibility(WebElement element) {
-        return wait.until(ExpectedConditions.visibilityOf(element));
+        return engine.waitForVisibility(element);
+    }
+
+    /**
+     * Waits for an element matching the locator to be visible, within the locator's learned timeout.
+     * @param locator The locator to wait for.
+     * @return The visible WebElement.
+     */
+    public WebElement waitForVisibility(By locator) {
+        return engine.waitForVisibility(locator);
+    }
+
+    /**
+     * Waits for an element matching the locator to be present, within the locator's learned timeout.
+     * @param locator The locator to wait for.
+     * @return The located WebElement.
+     */
+    public WebElement waitForPresence(By locator) {
+        return engine.waitForPresence(locator);
     }
 
     /**
@@ -36,7 +49,16 @@ public class WaitHelper {
      * @return The clickable WebElement.
      */
     public WebElement waitForClickability(WebElement element) {
-        return wait.until(ExpectedConditions.elementToBeClickable(element));
+        return engine.waitForClickability(element);
+    }
+
+    /**
+     * Checks once, without waiting, whether an element matching the locator is present.
+     * @param locator The locator of an element that is expected to be absent.
+     * @return True if the element is present right now.
+     */
+    public boolean isPresentNow(By locator) {
+        return engine.isPresentNow(locator);
     }
 
     /**
@@ -45,6 +67,6 @@ public class WaitHelper {
      * @return True if the text is found within the timeout.
      */
     public boolean waitForPageText(String text) {
-        return wait.until(ExpectedConditions.textToBePresentInElement(null, text));
+        return engine.waitForPageText(text);
     }
 }
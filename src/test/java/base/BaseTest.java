@@ -1,12 +1,35 @@
 package base;
 
-import core.DriverFactory;
+import core.AppDeployment;
+import core.AppiumServerPool;
+import core.CommandMetrics;
+import core.CommandTransport;
+import core.DeviceRegistry;
+import core.DriverPool;
+import core.FailureClassifier;
+import core.LocatorCompiler;
+import core.MobileConfig;
 import core.PageObjectManager;
+import core.SessionPrewarmer;
+import core.StartupProfiler;
 import io.appium.java_client.AppiumDriver;
 import org.openqa.selenium.Platform;
+import org.testng.ITestResult;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Parameters;
+import pages.common.ElementCache;
+import pages.common.Gestures;
+import utils.ArtifactStore;
+import utils.FailureArtifacts;
+import utils.InfraRetry;
+import utils.WaitEngine;
+
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
+import java.time.Duration;
 
 /**
  * Base class for all test classes. It handles driver initialization and teardown,
@@ -53,16 +76,31 @@ public class BaseTest {
     }
 
 
+    /**
+     * Starts building sessions for every device of the platform in the background,
+     * so the first test on each device does not wait for the full session startup.
+     * @param platform The mobile platform (ANDROID or IOS) passed from testng.xml.
+     */
+    @BeforeTest(alwaysRun = true)
+    @Parameters({"platform"})
+    public void prewarmDrivers(String platform) {
+        DriverPool.prewarm(platform);
+    }
+
     /**
      * Initializes the driver and PageObjectManager before each test method runs.
      * @param platform The mobile platform (ANDROID or IOS) passed from testng.xml.
      */
     @BeforeMethod(alwaysRun = true)
     @Parameters({"platform"})
-    public void setupDriver(String platform) {
+    public void setupDriver(String platform, Method method) {
+        // Pick up edited configuration files between tests (-Dconfig.watch=true)
+        MobileConfig.reloadIfChanged();
+        WaitEngine.startTest();
+        CommandMetrics.setTest(method.getDeclaringClass().getSimpleName() + "." + method.getName());
         try {
-            // 1. Create and set the driver
-            AppiumDriver driver = DriverFactory.initializeDriver(platform);
+            // 1. Lease a (possibly warm) driver from the pool and set it
+            AppiumDriver driver = DriverPool.lease(platform);
             setDriver(driver);
             Platform plat = Platform.fromString(platform);
 
@@ -70,7 +108,8 @@ public class BaseTest {
             PageObjectManager manager = new PageObjectManager(driver, plat);
             setPageManager(manager);
 
-            System.out.println("Framework setup successful for platform: " + platform + " on thread: " + Thread.currentThread().getId());
+            System.out.println("Framework setup successful for platform: " + platform + " on thread: " + Thread.currentThread().getId()
+                    + " (" + SessionPrewarmer.lastLatency() + ")");
         } catch (Exception e) {
             System.err.println("Failed to initialize driver and manager for " + platform + ": " + e.getMessage());
             throw new RuntimeException("Driver setup failed.", e);
@@ -78,16 +117,63 @@ public class BaseTest {
     }
 
     /**
-     * Quits the driver and removes instances from ThreadLocal storage after each test method.
+     * Returns the driver to the pool and removes instances from ThreadLocal storage after each test method.
      */
     @AfterMethod(alwaysRun = true)
-    public void tearDown() {
+    public void tearDown(ITestResult result) {
+        System.out.println("Time spent waiting in " + result.getMethod().getMethodName() + ": "
+                + WaitEngine.currentTestWaitMillis() + " ms");
         AppiumDriver driver = driverThreadLocal.get();
         if (driver != null) {
-            driver.quit();
+            // An attempt that InfraRetry retries ends as SKIP, but it failed like any other
+            boolean failed = result.wasRetried() || result.getStatus() == ITestResult.FAILURE;
+            ElementCache.discard(driver); // the next test starts on a reset app
+            if (failed && FailureClassifier.isInfrastructure(result.getThrowable())) {
+                // The session or device is broken: no artifacts to fetch, and the device's circuit breaker is told
+                DriverPool.discard(driver, result.getEndMillis() - result.getStartMillis());
+            } else {
+                if (failed) {
+                    FailureArtifacts.capture(driver, "test failure"); // written in the background
+                }
+                DriverPool.release(driver, result.isSuccess());
+            }
         }
         driverThreadLocal.remove();
         pageManagerThreadLocal.remove(); // Also clean up the PageObjectManager
+        CommandMetrics.setTest(null);
         System.out.println("Driver and Manager successfully cleaned up on thread: " + Thread.currentThread().getId());
     }
+
+    /**
+     * Quits every pooled session once the whole suite has finished.
+     */
+    @AfterSuite(alwaysRun = true)
+    public void shutdownDriverPool() {
+        DriverPool.shutdown();
+        SessionPrewarmer.shutdown();
+        System.out.println("Driver pool metrics: " + DriverPool.stats() + " " + SessionPrewarmer.stats());
+        System.out.println(AppDeployment.stats());
+        System.out.println(StartupProfiler.getDefault().stats());
+        System.out.println(DeviceRegistry.getDefault().stats());
+        System.out.println(InfraRetry.stats());
+        if (AppiumServerPool.isEnabled()) {
+            AppiumServerPool.getDefault().shutdown();
+            System.out.println(AppiumServerPool.getDefault().stats());
+        }
+        if (CommandTransport.isSelected()) {
+            CommandTransport.getDefault().shutdown();
+            System.out.println(CommandTransport.getDefault().stats());
+        }
+        System.out.println(LocatorCompiler.report());
+        System.out.println("Total time spent waiting: " + WaitEngine.totalWaitMillis() + " ms");
+        WaitEngine.saveProfiles();
+        System.out.println(CommandMetrics.summary());
+        System.out.println(ElementCache.stats());
+        System.out.println(Gestures.stats());
+        CommandMetrics.export(Paths.get("target", "metrics"));
+        if (!ArtifactStore.flush(Duration.ofSeconds(30))) {
+            System.err.println("Some failure artifacts were still being written at suite end");
+        }
+        System.out.println(ArtifactStore.stats());
+    }
 }
@@ -2,23 +2,36 @@ package tests.common;
 
 import base.BaseTest;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import pages.common.BottomNavigationBase;
 import pages.common.LoginPageBase;
+import utils.TestData;
+
+import java.util.Iterator;
 
 public class LoginTest extends BaseTest {
 
-    @Test(description = "Log in")
-    public void logInNegative() {
+    /**
+     * Invalid credentials with the error they should produce, streamed from the data file.
+     * Narrow the run with -Ddata.filter / -Ddata.sample / -Ddata.limit (see TestData).
+     */
+    @DataProvider(name = "invalidLogins", parallel = true)
+    public Iterator<Object[]> invalidLogins() {
+        return TestData.open("src/test/resources/data/invalid-logins.csv").selected().provider();
+    }
+
+    @Test(description = "Log in", dataProvider = "invalidLogins")
+    public void logInNegative(TestData.Row credentials) {
         BottomNavigationBase bottomNavigation = getPageManager().getPage(BottomNavigationBase.class);
         LoginPageBase loginPage = getPageManager().getPage(LoginPageBase.class);
 
         bottomNavigation.goToLogin();
 
         Assert.assertTrue(loginPage.isLoginScreenDisplayed());
-        loginPage.enterEmail("poo");
-        loginPage.enterPassword("");
+        loginPage.enterEmail(credentials.get("email"));
+        loginPage.enterPassword(credentials.get("password"));
         loginPage.clickLoginButton();
-        Assert.assertEquals(loginPage.getLoginInputErrorMessageText(), "Please enter a valid email address");
+        Assert.assertEquals(loginPage.getLoginInputErrorMessageText(), credentials.get("error"));
     }
 }
@@ -0,0 +1,163 @@
+package tests.framework;
+
+import core.AppiumServerPool;
+import core.Device;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openqa.selenium.Platform;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Device-free tests of the AppiumServerPool, launching {@link StubAppium} in its own JVM instead of appium.
+ */
+public class AppiumServerPoolTest {
+
+    private final List<AppiumServerPool> pools = new ArrayList<>();
+
+    /**
+     * Stand-in for the appium executable: answers /status, creates sessions and reports two timed commands.
+     * Stops answering /status while the file named by "stub.appium.unhealthy" holds its pid.
+     */
+    public static final class StubAppium {
+
+        public static void main(String[] args) throws IOException {
+            int port = Integer.parseInt(args[List.of(args).indexOf("--port") + 1]);
+            Path unhealthy = Paths.get(System.getProperty("stub.appium.unhealthy", "none"));
+            String pid = String.valueOf(ProcessHandle.current().pid());
+            // Runs until the pool destroys the process
+            StubDriverServer.start(port, Map.of("platformName", "Android"), request -> {
+                if (request.path().equals("/status")) {
+                    if (isUnhealthy(unhealthy, pid)) {
+                        throw new IllegalStateException("stub closes the connection");
+                    }
+                    return Map.of("ready", true);
+                }
+                if (request.path().equals("/appium/events")) {
+                    return Map.of("commands", List.of(
+                            Map.of("cmd", "findElement", "startTime", 1_000, "endTime", 1_012),
+                            Map.of("cmd", "click", "startTime", 1_020, "endTime", 1_050)));
+                }
+                return null;
+            });
+        }
+
+        private static boolean isUnhealthy(Path marker, String pid) {
+            try {
+                return Files.isRegularFile(marker) && Files.readString(marker).equals(pid);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    private AppiumServerPool newPool(int sessionsPerServer) throws IOException {
+        return newPool(sessionsPerServer, Paths.get("none"));
+    }
+
+    private AppiumServerPool newPool(int sessionsPerServer, Path unhealthy) throws IOException {
+        List<String> command = List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Dstub.appium.unhealthy=" + unhealthy, "-cp", System.getProperty("java.class.path"),
+                StubAppium.class.getName());
+        AppiumServerPool pool = new AppiumServerPool(command, sessionsPerServer, Duration.ofSeconds(30),
+                Files.createTempDirectory("appium-servers"));
+        pools.add(pool);
+        return pool;
+    }
+
+    private static Device device(int index) {
+        return new Device("android-" + index, Platform.ANDROID, "emulator-" + (5554 + 2 * index),
+                "emulator-" + (5554 + 2 * index), null, 8200 + index, 8100 + index, 9100 + index);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stopServers() {
+        pools.forEach(AppiumServerPool::shutdown);
+        pools.clear();
+    }
+
+    @Test(description = "Each device gets its own server on a free port and keeps it")
+    public void devicesGetTheirOwnServer() throws Exception {
+        AppiumServerPool pool = newPool(1);
+        URL first = pool.urlFor(device(0));
+        URL second = pool.urlFor(device(1));
+
+        Assert.assertNotEquals(first.getPort(), second.getPort());
+        Assert.assertEquals(pool.urlFor(device(0)), first);
+        Assert.assertEquals(pool.servers().size(), 2);
+        Assert.assertEquals(pool.servers().get(0).sessions(), 2);
+
+        pool.shutdown();
+        Assert.assertTrue(pool.servers().stream().noneMatch(AppiumServerPool.Server::isAlive));
+    }
+
+    @Test(description = "Devices share a server up to the sessions per server")
+    public void devicesShareServers() throws Exception {
+        AppiumServerPool pool = newPool(2);
+        Assert.assertEquals(pool.urlFor(device(0)), pool.urlFor(device(1)));
+        Assert.assertNotEquals(pool.urlFor(device(2)), pool.urlFor(device(0)));
+        Assert.assertEquals(pool.servers().size(), 2);
+    }
+
+    @Test(description = "A server that died is relaunched on the next session")
+    public void deadServerIsRelaunched() throws Exception {
+        AppiumServerPool pool = newPool(1);
+        pool.urlFor(device(0));
+        AppiumServerPool.Server server = pool.servers().get(0);
+        ProcessHandle process = ProcessHandle.of(server.pid()).orElseThrow();
+        process.destroyForcibly();
+        process.onExit().get(10, TimeUnit.SECONDS);
+
+        URL relaunched = pool.urlFor(device(0));
+        Assert.assertTrue(server.isAlive());
+        Assert.assertEquals(server.restarts(), 1);
+        Assert.assertEquals(relaunched, server.url());
+        Assert.assertEquals(pool.servers().size(), 1);
+    }
+
+    @Test(description = "A live server that does not answer is not relaunched while another device holds a session on it")
+    public void unresponsiveServerIsRelaunchedOnlyWithoutOtherSessions() throws Exception {
+        Path unhealthy = Files.createTempFile("appium-unhealthy", ".pid");
+        AppiumServerPool pool = newPool(2, unhealthy);
+        pool.urlFor(device(0));
+        AppiumServerPool.Server server = pool.servers().get(0);
+        long pid = server.pid();
+        Files.writeString(unhealthy, String.valueOf(pid));
+
+        pool.urlFor(device(1));
+        pool.sessionEnded(device(1));
+        pool.urlFor(device(1));
+        Assert.assertEquals(server.pid(), pid, "Device 0 still holds a session");
+        Assert.assertEquals(server.restarts(), 0);
+
+        pool.sessionEnded(device(0));
+        pool.urlFor(device(1));
+        Assert.assertNotEquals(server.pid(), pid, "Relaunched after 3 failed checks without other sessions");
+        Assert.assertEquals(server.restarts(), 1);
+        Assert.assertTrue(server.isAlive());
+    }
+
+    @Test(description = "Server-side command durations are collected per server")
+    public void serverTimingsAreCollected() throws Exception {
+        AppiumServerPool pool = newPool(1);
+        AndroidDriver driver = new AndroidDriver(pool.urlFor(device(0)), new UiAutomator2Options());
+        try {
+            pool.recordServerTimings(device(0), driver);
+        } finally {
+            driver.quit();
+        }
+        Assert.assertTrue(pool.stats().contains("commands=2 p50=12 ms p95=30 ms max=30 ms"), pool.stats());
+    }
+}
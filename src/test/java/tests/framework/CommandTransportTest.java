@@ -0,0 +1,193 @@
+package tests.framework;
+
+import core.CommandTransport;
+import core.InstrumentedCommandExecutor;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Proxy;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Device-free tests of the pooled CommandTransport, against a stub server that notes the client port of every request.
+ */
+public class CommandTransportTest {
+
+    private static final Map<String, Duration> TIMEOUTS = Map.of("getPageSource", Duration.ofSeconds(5));
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+    private StubDriverServer server;
+    private URL url;
+
+    @BeforeClass
+    public void startStubServer() throws IOException {
+        server = StubDriverServer.start(request -> {
+            clientPorts.add(request.clientPort());
+            if (request.path().startsWith("/closing")
+                    && attempts.merge(request.method() + " " + request.path(), 1, Integer::sum) == 1) {
+                // Runs the command but closes the connection instead of answering
+                throw new IllegalStateException("stub closes the connection");
+            }
+            if (request.path().equals("/url")) {
+                return "stub://home";
+            }
+            if (request.path().equals("/source") || request.path().equals("/title")) {
+                sleep(1_500); // slower than the 1 s default timeout, faster than the 5 s of getPageSource
+                // The page source is sent chunked, every other response with a Content-Length
+                return request.path().equals("/source") ? new StubDriverServer.Chunked("<hierarchy/>") : "<hierarchy/>";
+            }
+            return null;
+        });
+        url = server.url();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStubServer() {
+        server.close();
+    }
+
+    private static CommandTransport newTransport(int maxConnections) {
+        return new CommandTransport(maxConnections, Duration.ofSeconds(10), Duration.ofSeconds(30),
+                command -> command == null ? Duration.ofSeconds(1) : TIMEOUTS.getOrDefault(command, Duration.ofSeconds(1)));
+    }
+
+    @Test(description = "32 concurrent sessions share a bounded pool of keep-alive connections")
+    public void sessionsShareConnections() throws Exception {
+        CommandTransport transport = newTransport(8);
+        clientPorts.clear();
+        ExecutorService sessions = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                runs.add(sessions.submit(() -> {
+                    AndroidDriver driver = new AndroidDriver(new InstrumentedCommandExecutor(url, "ANDROID", transport),
+                            new UiAutomator2Options());
+                    for (int command = 0; command < 20; command++) {
+                        Assert.assertEquals(driver.getCurrentUrl(), "stub://home");
+                    }
+                    driver.quit();
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            sessions.shutdownNow();
+        }
+
+        Assert.assertTrue(clientPorts.size() <= 8, "Connections used: " + clientPorts.size());
+        Assert.assertTrue(transport.stats().contains("connections=" + clientPorts.size() + " requests=" + (32 * 22)),
+                transport.stats());
+        transport.shutdown();
+    }
+
+    @Test(description = "Read timeouts are per command: a slow page source is awaited, other slow commands time out")
+    public void readTimeoutsArePerCommand() {
+        CommandTransport transport = newTransport(2);
+        AndroidDriver driver = new AndroidDriver(new InstrumentedCommandExecutor(url, "ANDROID", transport),
+                new UiAutomator2Options());
+        try {
+            Assert.assertEquals(driver.getPageSource(), "<hierarchy/>");
+            Assert.assertThrows(TimeoutException.class, driver::getTitle);
+            // The connection that timed out is replaced
+            Assert.assertEquals(driver.getPageSource(), "<hierarchy/>");
+            Assert.assertTrue(transport.stats().contains("timeouts=1"), transport.stats());
+        } finally {
+            driver.quit();
+            transport.shutdown();
+        }
+    }
+
+    @Test(description = "A client's own read timeout caps the timeout of its commands")
+    public void clientReadTimeoutIsHonored() throws Exception {
+        CommandTransport transport = newTransport(1);
+        HttpClient client = transport.createClient(ClientConfig.defaultConfig().baseUri(url.toURI())
+                .readTimeout(Duration.ofMillis(500)));
+        CommandTransport.setCommand("getPageSource");
+        try {
+            Assert.assertThrows(TimeoutException.class,
+                    () -> client.execute(new HttpRequest(HttpMethod.GET, "/session/stub-session/source")));
+        } finally {
+            CommandTransport.setCommand(null);
+            transport.shutdown();
+        }
+    }
+
+    @Test(description = "A GET on a connection closed before the response is sent again, a POST is not")
+    public void onlyIdempotentRequestsAreSentAgain() throws Exception {
+        CommandTransport transport = newTransport(1);
+        HttpClient client = transport.createClient(ClientConfig.defaultConfig().baseUri(url.toURI()));
+        try {
+            client.execute(new HttpRequest(HttpMethod.GET, "/session/stub-session/url"));
+            Assert.assertEquals(client.execute(new HttpRequest(HttpMethod.GET, "/session/stub-session/closing/get")).getStatus(), 200);
+            Assert.assertEquals(attempts.get("GET /closing/get"), 2);
+
+            Assert.assertThrows(UncheckedIOException.class,
+                    () -> client.execute(new HttpRequest(HttpMethod.POST, "/session/stub-session/closing/post")));
+            Assert.assertEquals(attempts.get("POST /closing/post"), 1);
+            Assert.assertTrue(transport.stats().contains("stale retries=1"), transport.stats());
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    @Test(description = "A zero idle timeout closes every connection after its request, a negative one is rejected")
+    public void zeroIdleTimeoutDisablesReuse() throws Exception {
+        CommandTransport transport = new CommandTransport(1, Duration.ofSeconds(10), Duration.ZERO, command -> Duration.ofSeconds(1));
+        HttpClient client = transport.createClient(ClientConfig.defaultConfig().baseUri(url.toURI()));
+        try {
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(client.execute(new HttpRequest(HttpMethod.GET, "/session/stub-session/url")).getStatus(), 200);
+            }
+            Assert.assertTrue(transport.stats().contains("connections=3 requests=3"), transport.stats());
+        } finally {
+            transport.shutdown();
+        }
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new CommandTransport(1, Duration.ofSeconds(10), Duration.ofMillis(-1), command -> Duration.ofSeconds(1)));
+    }
+
+    @Test(description = "A client with a proxy is left to Selenium's default client")
+    public void proxiedClientIsNotPooled() throws Exception {
+        CommandTransport transport = newTransport(1);
+        HttpClient client = transport.createClient(ClientConfig.defaultConfig().baseUri(url.toURI()).proxy(Proxy.NO_PROXY));
+        try {
+            Assert.assertEquals(client.execute(new HttpRequest(HttpMethod.GET, "/session/stub-session/url")).getStatus(), 200);
+            Assert.assertTrue(transport.stats().contains("no requests (1 client(s) left to Selenium's default"),
+                    transport.stats());
+        } finally {
+            client.close();
+            transport.shutdown();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package tests.framework;
+
+import core.Device;
+import core.DeviceLease;
+import core.DeviceRegistry;
+import org.openqa.selenium.Platform;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Device-free tests of the DeviceRegistry lease scheduler, using a fake device list.
+ */
+public class DeviceRegistryTest {
+
+    private static List<Device> fakeAndroidDevices(int count) {
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            devices.add(new Device("android-" + i, Platform.ANDROID, "emulator-" + (5554 + 2 * i),
+                    "emulator-" + (5554 + 2 * i), null, 8200 + i, 8100 + i, 9100 + i));
+        }
+        return devices;
+    }
+
+    @Test(description = "Concurrent workers never share a device")
+    public void leasesAreExclusive() throws Exception {
+        DeviceRegistry registry = new DeviceRegistry(fakeAndroidDevices(3), 5_000);
+        Set<String> inUse = ConcurrentHashMap.newKeySet();
+        AtomicInteger collisions = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 64; i++) {
+            futures.add(workers.submit(() -> {
+                try (DeviceLease lease = registry.acquire(Platform.ANDROID)) {
+                    if (!inUse.add(lease.getDevice().udid())) {
+                        collisions.incrementAndGet();
+                    }
+                    Thread.sleep(2);
+                    inUse.remove(lease.getDevice().udid());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        workers.shutdown();
+
+        Assert.assertEquals(collisions.get(), 0);
+        Assert.assertEquals(registry.freeCount(Platform.ANDROID), 3);
+    }
+
+    @Test(description = "A waiting worker gets the device as soon as it is given back")
+    public void waitingWorkerIsServedOnRelease() throws Exception {
+        DeviceRegistry registry = new DeviceRegistry(fakeAndroidDevices(1), 5_000);
+        DeviceLease first = registry.acquire(Platform.ANDROID);
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        Thread waiter = new Thread(() -> {
+            try (DeviceLease ignored = registry.acquire(Platform.ANDROID)) {
+                acquired.countDown();
+            }
+        });
+        waiter.start();
+
+        Assert.assertFalse(acquired.await(100, TimeUnit.MILLISECONDS), "Device must not be shared");
+        first.close();
+        first.close(); // closing twice must not hand the device out twice
+        Assert.assertTrue(acquired.await(2, TimeUnit.SECONDS));
+        waiter.join();
+        Assert.assertEquals(registry.freeCount(Platform.ANDROID), 1);
+    }
+
+    @Test(description = "Lease fails after the timeout when no device frees up", expectedExceptions = IllegalStateException.class)
+    public void leaseTimesOut() {
+        DeviceRegistry registry = new DeviceRegistry(fakeAndroidDevices(1), 50);
+        registry.acquire(Platform.ANDROID);
+        registry.acquire(Platform.ANDROID);
+    }
+
+    @Test(description = "Devices sharing a port are rejected", expectedExceptions = IllegalArgumentException.class)
+    public void duplicatePortsAreRejected() {
+        List<Device> devices = new ArrayList<>(fakeAndroidDevices(1));
+        devices.add(new Device("android-dup", Platform.ANDROID, "emulator-9999", "emulator-9999", null, 8200, 8150, 9150));
+        new DeviceRegistry(devices, 50);
+    }
+
+    @Test(description = "Leases carry the unique ports of their device")
+    public void leaseCarriesDevicePorts() {
+        DeviceRegistry registry = new DeviceRegistry(fakeAndroidDevices(2), 50);
+        try (DeviceLease a = registry.acquire(Platform.ANDROID); DeviceLease b = registry.acquire(Platform.ANDROID)) {
+            Assert.assertNotEquals(a.getDevice().udid(), b.getDevice().udid());
+            Assert.assertNotEquals(a.getDevice().systemPort(), b.getDevice().systemPort());
+            Assert.assertNotEquals(a.getDevice().mjpegServerPort(), b.getDevice().mjpegServerPort());
+        }
+    }
+
+    @Test(description = "A device failing repeatedly is quarantined and no longer leased")
+    public void failingDeviceIsQuarantined() {
+        DeviceRegistry registry = new DeviceRegistry(fakeAndroidDevices(2), 50, 2, 60_000);
+        Device broken = registry.getDevices(Platform.ANDROID).get(0);
+        registry.reportFailure(broken, 1_000);
+        Assert.assertFalse(registry.isQuarantined(broken));
+        registry.reportFailure(broken, 1_000);
+        Assert.assertTrue(registry.isQuarantined(broken));
+
+        for (int i = 0; i < 5; i++) {
+            try (DeviceLease lease = registry.acquire(Platform.ANDROID)) {
+                Assert.assertNotEquals(lease.getDevice(), broken);
+            }
+        }
+        Assert.assertEquals(registry.freeCount(Platform.ANDROID), 1);
+    }
+
+    @Test(description = "Leases fail fast while every device of the platform is quarantined",
+            expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = ".*quarantined.*")
+    public void allQuarantinedFailsFast() {
+        DeviceRegistry registry = new DeviceRegistry(fakeAndroidDevices(1), 60_000, 1, 60_000);
+        registry.reportFailure(registry.getDevices(Platform.ANDROID).get(0), 1_000);
+        registry.acquire(Platform.ANDROID);
+    }
+
+    @Test(description = "After the quarantine a device gets one trial lease; failing it quarantines the device again")
+    public void quarantineEndsWithATrial() throws Exception {
+        DeviceRegistry registry = new DeviceRegistry(fakeAndroidDevices(1), 1_000, 3, 100);
+        Device device = registry.getDevices(Platform.ANDROID).get(0);
+        for (int i = 0; i < 3; i++) {
+            registry.reportFailure(device, 1_000);
+        }
+        Assert.assertTrue(registry.isQuarantined(device));
+
+        Thread.sleep(150);
+        try (DeviceLease trial = registry.acquire(Platform.ANDROID)) {
+            Assert.assertEquals(trial.getDevice(), device);
+            registry.reportFailure(device, 1_000);
+        }
+        Assert.assertTrue(registry.isQuarantined(device));
+        Assert.assertEquals(registry.freeCount(Platform.ANDROID), 0);
+
+        Thread.sleep(150);
+        try (DeviceLease trial = registry.acquire(Platform.ANDROID)) {
+            registry.reportSuccess(trial.getDevice());
+        }
+        registry.reportFailure(device, 1_000);
+        Assert.assertFalse(registry.isQuarantined(device), "A success closes the breaker again");
+    }
+}
@@ -0,0 +1,165 @@
+package tests.framework;
+
+import core.CommandMetrics;
+import core.InstrumentedCommandExecutor;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openqa.selenium.json.Json;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pages.common.BasePage;
+import pages.common.Gestures;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Device-free tests of the gestures, against a stub server that records the requests it gets.
+ */
+public class GesturesTest {
+
+    private static final String SOURCE = "<hierarchy>"
+            + "<android.view.ViewGroup content-desc=\"drag-l1\" bounds=\"[100,200][300,400]\" displayed=\"true\"/>"
+            + "<android.view.ViewGroup content-desc=\"drop-l1\" bounds=\"[500,1200][700,1400]\" displayed=\"true\"/>"
+            + "</hierarchy>";
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private StubDriverServer server;
+    private AndroidDriver driver;
+    private Gestures gestures;
+
+    private static final class StubPage extends BasePage {
+
+        StubPage(AppiumDriver driver) {
+            super(driver);
+        }
+
+        Gestures touch() {
+            return gestures();
+        }
+    }
+
+    @BeforeClass
+    public void startStubServer() throws IOException {
+        server = StubDriverServer.start(request -> {
+            if (request.isNewSession()) {
+                return null;
+            }
+            String path = request.path();
+            requests.add(request.method() + " " + path);
+            bodies.add(request.body());
+            if (path.endsWith("/rect")) {
+                return Map.of("x", 0, "y", 0, "width", 1000, "height", 2000);
+            } else if (path.equals("/source")) {
+                return SOURCE;
+            } else if (path.equals("/element")) {
+                return Map.of("element-6066-11e4-a52e-4f735466cecf", "el-1");
+            } else if (path.equals("/elements")) {
+                return List.of(Map.of("element-6066-11e4-a52e-4f735466cecf", "el-1"));
+            }
+            return null;
+        });
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStubServer() {
+        server.close();
+    }
+
+    /**
+     * Every test gets its own session, so none of them finds the screen size cached by another.
+     */
+    @BeforeMethod
+    public void startSession() {
+        driver = new AndroidDriver(new InstrumentedCommandExecutor(server.url(), "ANDROID"), new UiAutomator2Options());
+        gestures = new StubPage(driver).touch();
+        requests.clear();
+        bodies.clear();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void quitSession() {
+        if (driver != null) {
+            driver.quit();
+            driver = null;
+        }
+    }
+
+    @Test(description = "A swipe is one actions request once the screen size is known")
+    public void swipeIsOneRequest() {
+        gestures.swipe(Gestures.Direction.UP);
+        long before = CommandMetrics.commandsSent();
+        gestures.swipe(Gestures.Direction.UP);
+
+        Assert.assertEquals(CommandMetrics.commandsSent() - before, 1);
+        Assert.assertEquals(requests, List.of("GET /window/rect", "POST /actions", "POST /actions"));
+        Map<String, Object> finger = pointerActions(bodies.get(2)).get(0);
+        Assert.assertEquals(actions(finger).get(0).get("y"), 1600L);
+        Assert.assertEquals(actions(finger).get(2).get("y"), 400L);
+    }
+
+    @Test(description = "Round trips are counted with command metrics disabled")
+    public void roundTripsAreCountedWithoutMetrics() {
+        gestures.swipe(Gestures.Direction.DOWN);
+        System.setProperty("command.metrics", "false");
+        try {
+            long before = CommandMetrics.commandsSent();
+            gestures.swipe(Gestures.Direction.DOWN);
+            Assert.assertEquals(CommandMetrics.commandsSent() - before, 1);
+        } finally {
+            System.clearProperty("command.metrics");
+        }
+    }
+
+    @Test(description = "Drag and drop locates both targets on one snapshot and sends one actions request")
+    public void dragAndDropUsesOneSnapshot() {
+        long before = CommandMetrics.commandsSent();
+        gestures.dragAndDrop(AppiumBy.accessibilityId("drag-l1"), AppiumBy.accessibilityId("drop-l1"));
+
+        Assert.assertEquals(CommandMetrics.commandsSent() - before, 2);
+        Assert.assertEquals(requests, List.of("GET /source", "POST /actions"));
+        List<Map<String, Object>> steps = actions(pointerActions(bodies.get(1)).get(0));
+        Assert.assertEquals(List.of(steps.get(0).get("x"), steps.get(0).get("y")), List.of(200L, 300L));
+        Assert.assertEquals(List.of(steps.get(3).get("x"), steps.get(3).get("y")), List.of(600L, 1300L));
+    }
+
+    @Test(description = "A pinch moves two fingers in the same request")
+    public void pinchSendsTwoFingers() {
+        gestures.pinch(AppiumBy.accessibilityId("drop-l1"));
+
+        Assert.assertEquals(requests.stream().filter(r -> r.equals("POST /actions")).count(), 1);
+        Assert.assertEquals(pointerActions(bodies.get(bodies.size() - 1)).size(), 2);
+    }
+
+    @Test(description = "Scrolling into view on Android is a single UiScrollable lookup")
+    public void scrollIntoViewIsNative() {
+        long before = CommandMetrics.commandsSent();
+        gestures.scrollIntoView(AppiumBy.accessibilityId("WebdriverIO logo"));
+
+        Assert.assertEquals(CommandMetrics.commandsSent() - before, 1);
+        Assert.assertEquals(requests, List.of("POST /element"));
+        Assert.assertTrue(bodies.get(0).contains(
+                "new UiScrollable(new UiSelector().scrollable(true)).scrollIntoView(new UiSelector().description(\\\"WebdriverIO logo\\\"))"),
+                bodies.get(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> pointerActions(String body) {
+        Map<String, Object> request = new Json().toType(body, Map.class);
+        return (List<Map<String, Object>>) request.get("actions");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> actions(Map<String, Object> source) {
+        return (List<Map<String, Object>>) source.get("actions");
+    }
+}
@@ -0,0 +1,106 @@
+package tests.framework;
+
+import core.Device;
+import core.StartupProfiler;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openqa.selenium.Platform;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static core.StartupProfiler.Launch.INSTALL;
+import static core.StartupProfiler.Launch.REUSE;
+
+/**
+ * Device-free tests of the StartupProfiler, using a stub server that answers new-session requests with a
+ * synthetic event timeline.
+ */
+public class StartupProfilerTest {
+
+    private static final Device DEVICE = new Device("android-0", Platform.ANDROID, "emulator-5554",
+            "emulator-5554", null, 8200, 8100, 9100);
+
+    private StubDriverServer server;
+
+    @BeforeClass
+    public void startStubServer() throws IOException {
+        server = StubDriverServer.start(0, Map.of(
+                "platformName", "Android",
+                "automationName", "UiAutomator2",
+                "events", Map.of(
+                        "newSessionRequested", List.of(1_000),
+                        "uiautomator2ServerInstalled", List.of(4_000),
+                        "appInstalled", List.of(9_000),
+                        "newSessionStarted", List.of(10_000))), request -> null);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStubServer() {
+        server.close();
+    }
+
+    @Test(description = "Phases follow the event timeline returned with the session")
+    public void phasesFollowTheServerTimeline() throws Exception {
+        StartupProfiler profiler = new StartupProfiler(Files.createTempFile("startup", ".properties"), 10, 1.5, 2000);
+        AndroidDriver driver = new AndroidDriver(server.url(), new UiAutomator2Options().setDeviceName(DEVICE.name()));
+        try {
+            StartupProfiler.Profile profile = profiler.record(DEVICE, driver, INSTALL, 12_000);
+
+            Assert.assertEquals(profile.phases(), Map.of(
+                    StartupProfiler.TOTAL, 12_000L,
+                    StartupProfiler.CLIENT, 3_000L,
+                    "uiautomator2ServerInstalled", 3_000L,
+                    "appInstalled", 5_000L,
+                    "newSessionStarted", 1_000L));
+            Assert.assertEquals(List.copyOf(profile.phases().keySet()), List.of(StartupProfiler.TOTAL,
+                    StartupProfiler.CLIENT, "uiautomator2ServerInstalled", "appInstalled", "newSessionStarted"));
+        } finally {
+            driver.quit();
+        }
+    }
+
+    @Test(description = "A phase well above its rolling baseline is flagged, also after a restart")
+    public void regressionsAreFlaggedAgainstTheBaseline() throws Exception {
+        Path history = Files.createTempFile("startup", ".properties");
+        StartupProfiler first = new StartupProfiler(history, 5, 1.5, 2000);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(first.record(DEVICE, timeline(5_000 + 100 * i), INSTALL, 8_000).regressions().isEmpty());
+        }
+
+        // A new profiler over the same file starts from the persisted baseline
+        StartupProfiler second = new StartupProfiler(history, 5, 1.5, 2000);
+        Assert.assertTrue(second.record(DEVICE, timeline(6_500), INSTALL, 9_500).regressions().isEmpty(),
+                "Within 2 s of the baseline is not a regression");
+        StartupProfiler.Profile slow = second.record(DEVICE, timeline(15_000), INSTALL, 18_000);
+        Assert.assertEquals(slow.regressions(), List.of(StartupProfiler.TOTAL, "appInstalled"));
+    }
+
+    @Test(description = "Installing sessions are compared with installing sessions only, not with reuses")
+    public void launchKindsHaveTheirOwnBaseline() throws Exception {
+        StartupProfiler profiler = new StartupProfiler(Files.createTempFile("startup", ".properties"), 5, 1.5, 2000);
+        for (int i = 0; i < 4; i++) {
+            profiler.record(DEVICE, timeline(500), REUSE, 2_000);
+        }
+
+        Assert.assertTrue(profiler.record(DEVICE, timeline(15_000), INSTALL, 18_000).regressions().isEmpty(),
+                "The first install has no baseline yet");
+        Assert.assertTrue(profiler.record(DEVICE, timeline(500), REUSE, 2_000).regressions().isEmpty(),
+                "The install did not enter the reuse baseline");
+        Assert.assertEquals(profiler.record(DEVICE, timeline(5_000), REUSE, 6_500).regressions(),
+                List.of(StartupProfiler.TOTAL, "appInstalled"));
+    }
+
+    private static Map<String, List<Long>> timeline(long appInstallMillis) {
+        return Map.of("newSessionRequested", List.of(0L),
+                "appInstalled", List.of(appInstallMillis),
+                "newSessionStarted", List.of(appInstallMillis + 1_000));
+    }
+}
@@ -0,0 +1,119 @@
+package tests.framework;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * WebDriver stub shared by the device-free framework tests. It answers POST /session with the session
+ * {@link #SESSION_ID} and the given capabilities, and asks a {@link Handler} for the "value" of every response.
+ */
+public final class StubDriverServer implements AutoCloseable {
+
+    public static final String SESSION_ID = "stub-session";
+
+    private static final String SESSION_PREFIX = "/session/" + SESSION_ID;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Object> capabilities;
+    private final Handler handler;
+
+    /**
+     * One request to the stub.
+     * @param path The path relative to the session ("/url" for /session/stub-session/url), else the full path.
+     * @param clientPort The port the request came from, telling connections apart.
+     */
+    public record Request(String method, String path, String body, int clientPort) {
+
+        public boolean isNewSession() {
+            return method.equals("POST") && path.equals("/session");
+        }
+    }
+
+    /**
+     * Returns the value of the response to a request, or null for the default: the new session for POST /session,
+     * an empty object otherwise.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        Object respond(Request request);
+    }
+
+    /**
+     * A response value sent with chunked transfer encoding instead of a Content-Length.
+     */
+    public record Chunked(Object value) {
+    }
+
+    private StubDriverServer(int port, Map<String, Object> capabilities, Handler handler) throws IOException {
+        this.capabilities = capabilities;
+        this.handler = handler;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-driver-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 64);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Starts a stub of an Android session on a free port.
+     */
+    public static StubDriverServer start(Handler handler) throws IOException {
+        return start(0, Map.of("platformName", "Android"), handler);
+    }
+
+    /**
+     * Starts a stub on the port (0 for a free one) whose sessions have the capabilities.
+     */
+    public static StubDriverServer start(int port, Map<String, Object> capabilities, Handler handler) throws IOException {
+        return new StubDriverServer(port, capabilities, handler);
+    }
+
+    public URL url() {
+        try {
+            return new URL("http://127.0.0.1:" + server.getAddress().getPort());
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Request request = new Request(exchange.getRequestMethod(),
+                path.startsWith(SESSION_PREFIX) ? path.substring(SESSION_PREFIX.length()) : path,
+                new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8),
+                exchange.getRemoteAddress().getPort());
+        Object value = handler.respond(request);
+        if (value == null) {
+            value = request.isNewSession() ? Map.of("sessionId", SESSION_ID, "capabilities", capabilities) : Map.of();
+        }
+        Object payload = value instanceof Chunked chunked ? chunked.value() : value;
+        byte[] body = new Json().toJson(Map.of("value", payload)).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, value instanceof Chunked ? 0 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
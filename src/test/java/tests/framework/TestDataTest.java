@@ -0,0 +1,110 @@
+package tests.framework;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import utils.TestData;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of the TestData reader on small CSV and JSONL files written to a temporary directory.
+ */
+public class TestDataTest {
+
+    private static String write(String suffix, String content) throws IOException {
+        Path file = Files.createTempFile("test-data", suffix);
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+
+    private static List<Map<String, String>> values(TestData data) {
+        List<Map<String, String>> rows = new ArrayList<>();
+        data.rows().forEachRemaining(row -> rows.add(row.asMap()));
+        return rows;
+    }
+
+    private static List<Long> numbers(TestData data) {
+        List<Long> numbers = new ArrayList<>();
+        data.rows().forEachRemaining(row -> numbers.add(row.number()));
+        return numbers;
+    }
+
+    private static String numberedCsv(int rows) {
+        StringBuilder csv = new StringBuilder("id,valid\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(i).append(',').append(i % 2 == 0).append('\n');
+        }
+        return csv.toString();
+    }
+
+    @Test(description = "Quoted fields keep their commas, escaped quotes and line breaks")
+    public void parsesQuotedFields() throws IOException {
+        String file = write(".csv", "email,note\n"
+                + "\"a,b@example.com\",\"say \"\"hi\"\"\"\n"
+                + "c@example.com,\"first line\nsecond line\"\n"
+                + "d@example.com,\n");
+
+        Assert.assertEquals(values(TestData.open(file)), List.of(
+                Map.of("email", "a,b@example.com", "note", "say \"hi\""),
+                Map.of("email", "c@example.com", "note", "first line\nsecond line"),
+                Map.of("email", "d@example.com", "note", "")));
+    }
+
+    @Test(description = "CRLF line endings and a UTF-8 byte order mark do not leak into the values or column names")
+    public void handlesCrlfAndBom() throws IOException {
+        String file = write(".csv", "\uFEFFemail,password\r\n"
+                + "a@example.com,secret\r\n"
+                + "\"b@example.com\",\"multi\r\nline\"\r\n"
+                + "\r\n");
+
+        Assert.assertEquals(values(TestData.open(file)), List.of(
+                Map.of("email", "a@example.com", "password", "secret"),
+                Map.of("email", "b@example.com", "password", "multi\r\nline")));
+    }
+
+    @Test(description = "Missing trailing fields read as null, JSONL rows are read as objects")
+    public void readsShortRowsAndJsonl() throws IOException {
+        TestData.Row shortRow = TestData.open(write(".csv", "email,password\nonly@example.com\n")).rows().next();
+        Assert.assertEquals(shortRow.get("email"), "only@example.com");
+        Assert.assertNull(shortRow.get("password"));
+
+        String jsonl = write(".jsonl", "{\"email\":\"a@example.com\",\"attempts\":3}\n\n{\"email\":\"b@example.com\"}\n");
+        Assert.assertEquals(values(TestData.open(jsonl)), List.of(
+                Map.of("email", "a@example.com", "attempts", "3"),
+                Map.of("email", "b@example.com")));
+    }
+
+    @Test(description = "The same seed samples the same rows, another seed other rows")
+    public void samplingIsSeeded() throws IOException {
+        TestData data = TestData.open(write(".csv", numberedCsv(1_000)));
+
+        List<Long> first = numbers(data.sample(0.1, 42));
+        Assert.assertEquals(numbers(data.sample(0.1, 42)), first);
+        Assert.assertNotEquals(numbers(data.sample(0.1, 7)), first);
+        Assert.assertTrue(first.size() > 50 && first.size() < 150, "Sampled rows: " + first.size());
+        Assert.assertEquals(numbers(data.sample(1, 42)).size(), 1_000);
+    }
+
+    @Test(description = "The limit counts the rows kept by the filters and sampling")
+    public void limitAppliesAfterSelection() throws IOException {
+        TestData data = TestData.open(write(".csv", numberedCsv(100)));
+
+        Assert.assertEquals(numbers(data.limit(3)), List.of(0L, 1L, 2L));
+        Assert.assertEquals(numbers(data.where("valid", "false").limit(3)), List.of(1L, 3L, 5L));
+        List<Long> sampled = numbers(data.sample(0.5, 1));
+        Assert.assertEquals(numbers(data.sample(0.5, 1).limit(4)), sampled.subList(0, 4));
+
+        Iterator<Object[]> provider = data.limit(2).provider();
+        Assert.assertEquals(((TestData.Row) provider.next()[0]).get("id"), "0");
+        Assert.assertEquals(((TestData.Row) provider.next()[0]).get("id"), "1");
+        Assert.assertFalse(provider.hasNext());
+    }
+}